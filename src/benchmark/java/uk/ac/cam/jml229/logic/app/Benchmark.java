@@ -0,0 +1,638 @@
+package uk.ac.cam.jml229.logic.app;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.components.bus.Merger;
+import uk.ac.cam.jml229.logic.components.gates.*;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.components.seq.Clock;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.EventScheduler;
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
+import uk.ac.cam.jml229.logic.core.SimulationEngine;
+import uk.ac.cam.jml229.logic.core.Wire;
+import uk.ac.cam.jml229.logic.core.compiled.CircuitCompiler;
+import uk.ac.cam.jml229.logic.core.compiled.CompiledCircuit;
+import uk.ac.cam.jml229.logic.core.compiled.GeneratedCircuit;
+import uk.ac.cam.jml229.logic.core.compiled.PartitionedCircuit;
+import uk.ac.cam.jml229.logic.io.StorageManager;
+
+/**
+ * Micro-benchmarks for the simulation core.
+ * Lives in the benchmark source set, outside the product jar.
+ * Run with: ./gradlew benchmark --args="[suite] [size]"
+ * where suite is one of: scheduler, netlist, kernel, parallel, inertial,
+ * clocks, connectivity, bus, all (default).
+ */
+public class Benchmark {
+
+  public static void main(String[] args) {
+    String suite = (args.length > 0) ? args[0] : "all";
+    int size = (args.length > 1) ? Integer.parseInt(args[1]) : -1;
+
+    if (suite.equals("scheduler") || suite.equals("all"))
+      runSchedulerSuite((size > 0) ? size : 200_000, 5_000_000);
+    if (suite.equals("netlist") || suite.equals("all"))
+      runNetlistSuite((size > 0) ? size : 20_000, 200);
+    if (suite.equals("kernel") || suite.equals("all"))
+      runKernelSuite((size > 0) ? size : 20_000, 2_000);
+    if (suite.equals("parallel") || suite.equals("all"))
+      runParallelSuite((size > 0) ? size : 50_000, 2_000);
+    if (suite.equals("inertial") || suite.equals("all"))
+      runInertialSuite((size > 0) ? Math.min(size, 31) : 16, 500);
+    if (suite.equals("clocks") || suite.equals("all"))
+      runClockSuite((size > 0) ? size : 200_000, 30_000);
+    if (suite.equals("connectivity") || suite.equals("all"))
+      runConnectivitySuite((size > 0) ? size : 100_000);
+    if (suite.equals("bus") || suite.equals("all"))
+      runBusSuite((size > 0) ? size : 200, 200);
+  }
+
+  // --- Scheduler ---
+
+  static void runSchedulerSuite(int pending, int events) {
+    System.out.printf("Scheduler: %,d pending events, %,d processed%n", pending, events);
+    for (int round = 0; round < 3; round++) {
+      for (EventScheduler.Type type : EventScheduler.Type.values()) {
+        double rate = schedulerThroughput(type, pending, events);
+        if (round == 2) // First rounds are JIT warm-up
+          System.out.printf("  %-13s %,14.0f events/s%n", type, rate);
+      }
+    }
+  }
+
+  /**
+   * Keeps a fixed population of pending events alive: each event re-arms its
+   * component with a small random delay (like a gate), and 1 in 64 uses a
+   * long delay so the far-future path is exercised too.
+   */
+  static double schedulerThroughput(EventScheduler.Type type, int pending, int events) {
+    SimulationEngine engine = new SimulationEngine(type);
+    SplittableRandom rng = new SplittableRandom(42);
+    long[] processed = { 0 };
+
+    Component pulse = new Component("Pulse") {
+      @Override
+      public void update() {
+        if (++processed[0] + pending <= events) {
+          int r = rng.nextInt(64);
+          engine.scheduleUpdate(this, (r == 0) ? 2000 + rng.nextInt(2000) : 1 + (r & 7));
+        }
+      }
+    };
+    pulse.setEngine(engine);
+    for (int i = 0; i < pending; i++)
+      engine.scheduleUpdate(pulse, 1 + rng.nextInt(8));
+
+    long start = System.nanoTime();
+    while (!engine.isStable())
+      engine.run(64);
+    long elapsed = System.nanoTime() - start;
+    return processed[0] * 1e9 / elapsed;
+  }
+
+  // --- Netlist ---
+
+  /**
+   * Applies the same random switch toggles to the object-graph engine and
+   * the compiled engine, letting each settle, then checks they agree.
+   */
+  static void runNetlistSuite(int gates, int toggles) {
+    System.out.printf("Netlist: %,d random gates, %,d switch toggles%n", gates, toggles);
+    List<Switch> switches = new ArrayList<>();
+    Circuit circuit = randomNetlist(gates, 64, 7, switches);
+    settle(circuit.getEngine());
+
+    CompiledCircuit compiled = CircuitCompiler.compile(circuit);
+    compiled.runUntilStable(Integer.MAX_VALUE);
+    long baseEvals = compiled.getEvaluationCount();
+
+    SplittableRandom rng = new SplittableRandom(99);
+    int[] picks = new int[toggles];
+    for (int i = 0; i < toggles; i++)
+      picks[i] = rng.nextInt(switches.size());
+
+    long start = System.nanoTime();
+    for (int pick : picks) {
+      Switch sw = switches.get(pick);
+      sw.toggle(!sw.getState());
+      settle(circuit.getEngine());
+    }
+    long objectNs = System.nanoTime() - start;
+
+    start = System.nanoTime();
+    boolean[] state = new boolean[switches.size()];
+    for (int i = 0; i < switches.size(); i++)
+      state[i] = compiled.getOutput(switches.get(i), 0);
+    for (int pick : picks) {
+      state[pick] = !state[pick];
+      compiled.setSwitch(switches.get(pick), state[pick]);
+      compiled.runUntilStable(Integer.MAX_VALUE);
+    }
+    long compiledNs = System.nanoTime() - start;
+    long evals = compiled.getEvaluationCount() - baseEvals;
+
+    int mismatches = 0;
+    for (Component c : circuit.getComponents()) {
+      Wire w = c.getOutputWire(0);
+      if (w != null && w.getSignal() != compiled.getOutput(c, 0))
+        mismatches++;
+    }
+
+    System.out.printf("  %-13s %,10.1f ms%n", "OBJECT", objectNs / 1e6);
+    System.out.printf("  %-13s %,10.1f ms  (%,.0f gate evals/s, %.1fx)%n", "COMPILED", compiledNs / 1e6,
+        evals * 1e9 / compiledNs, (double) objectNs / compiledNs);
+    System.out.printf("  mismatched nets: %d%n", mismatches);
+  }
+
+  // --- Generated Kernel ---
+
+  /**
+   * Zero-delay settles of the same random netlist: compiled event-driven
+   * engine versus the generated straight-line kernel.
+   */
+  static void runKernelSuite(int gates, int toggles) {
+    System.out.printf("Kernel: %,d random gates, %,d switch toggles%n", gates, toggles);
+    List<Switch> switches = new ArrayList<>();
+    Circuit circuit = randomNetlist(gates, 64, 7, switches);
+    settle(circuit.getEngine());
+
+    CompiledCircuit compiled = CircuitCompiler.compile(circuit, false, 0);
+    compiled.runUntilStable(Integer.MAX_VALUE);
+    GeneratedCircuit generated = new GeneratedCircuit(circuit);
+
+    SplittableRandom rng = new SplittableRandom(99);
+    for (int round = 0; round < 3; round++) {
+      int[] picks = new int[toggles];
+      for (int i = 0; i < toggles; i++)
+        picks[i] = rng.nextInt(switches.size());
+
+      long start = System.nanoTime();
+      for (int pick : picks) {
+        Switch sw = switches.get(pick);
+        compiled.setSwitch(sw, !compiled.getOutput(sw, 0));
+        compiled.runUntilStable(Integer.MAX_VALUE);
+      }
+      long compiledNs = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (int pick : picks) {
+        Switch sw = switches.get(pick);
+        generated.setSwitch(sw, !generated.getOutput(sw, 0));
+      }
+      long generatedNs = System.nanoTime() - start;
+
+      if (round == 2) {
+        int mismatches = 0;
+        for (Component c : circuit.getComponents()) {
+          if (compiled.getOutput(c, 0) != generated.getOutput(c, 0))
+            mismatches++;
+        }
+        System.out.printf("  %-13s %,10.1f ms%n", "COMPILED", compiledNs / 1e6);
+        System.out.printf("  %-13s %,10.1f ms  (%,.0f gate evals/s, %.1fx)%n", "GENERATED", generatedNs / 1e6,
+            (double) toggles * gates * 1e9 / generatedNs, (double) compiledNs / generatedNs);
+        System.out.printf("  mismatched nets: %d%n", mismatches);
+      }
+    }
+  }
+
+  // --- Partitioned ---
+
+  /**
+   * Runs the same clocked workload on 1..N partitions, where N is the
+   * number of available cores (at least 2, so the exchange path is always
+   * exercised), and checks every run against the single-threaded compiled
+   * engine.
+   */
+  static void runParallelSuite(int gates, int ticks) {
+    int cores = Runtime.getRuntime().availableProcessors();
+    System.out.printf("Parallel: %,d random gates, %,d ticks, %d cores%n", gates, ticks, cores);
+    List<Switch> switches = new ArrayList<>();
+    Circuit circuit = randomNetlist(gates, 64, 7, switches);
+    settle(circuit.getEngine());
+
+    CompiledCircuit reference = CircuitCompiler.compile(circuit, true, 1);
+    driveParallelWorkload(reference::setSwitch, reference::run, switches, ticks);
+
+    double base = 0;
+    for (int threads = 1; threads <= Math.max(2, cores); threads *= 2) {
+      try (PartitionedCircuit pc = new PartitionedCircuit(CircuitCompiler.compile(circuit, true, 1), threads)) {
+        long start = System.nanoTime();
+        driveParallelWorkload(pc::setSwitch, pc::run, switches, ticks);
+        double ms = (System.nanoTime() - start) / 1e6;
+        if (threads == 1)
+          base = ms;
+
+        int mismatches = 0;
+        for (Component c : circuit.getComponents()) {
+          if (pc.getOutput(c, 0) != reference.getOutput(c, 0))
+            mismatches++;
+        }
+        boolean identical = mismatches == 0 && pc.getEvaluationCount() == reference.getEvaluationCount();
+        System.out.printf("  %2d threads %,10.1f ms  %.2fx  cut nets %,d  %s%n", threads, ms, base / ms,
+            pc.getCutNetCount(), identical ? "identical" : mismatches + " mismatched nets");
+      }
+    }
+  }
+
+  // Toggles a pseudo-random switch every 8 ticks
+  private static void driveParallelWorkload(BiConsumer<Component, Boolean> setSwitch, IntConsumer run, List<Switch> switches, int ticks) {
+    SplittableRandom rng = new SplittableRandom(5);
+    boolean[] state = new boolean[switches.size()];
+    for (int i = 0; i < switches.size(); i++)
+      state[i] = switches.get(i).getState();
+    for (int t = 0; t < ticks; t += 8) {
+      int pick = rng.nextInt(switches.size());
+      state[pick] = !state[pick];
+      setSwitch.accept(switches.get(pick), state[pick]);
+      run.accept(8);
+    }
+  }
+
+  // --- Inertial Delay ---
+
+  /**
+   * Applies the same random operand changes to an array multiplier under
+   * each delay model. Gate inputs arrive at staggered times, so gates are
+   * re-evaluated several times per operand change; the inertial model
+   * cancels the updates that a later change supersedes and must still
+   * produce the same products.
+   */
+  static void runInertialSuite(int bits, int vectors) {
+    System.out.printf("Inertial: %d x %d array multiplier, %,d operand changes%n", bits, bits, vectors);
+    for (int round = 0; round < 3; round++) {
+      long transportEvents = 0;
+      long transportEvals = 0;
+      for (SimulationConfig.DelayModel model : SimulationConfig.DelayModel.values()) {
+        List<Switch> a = new ArrayList<>();
+        List<Switch> b = new ArrayList<>();
+        List<Wire> product = new ArrayList<>();
+        Circuit circuit = arrayMultiplier(bits, a, b, product);
+        SimulationEngine engine = circuit.getEngine();
+        engine.setConfig(SimulationConfig.DEFAULT.withDelayModel(model));
+        settle(engine);
+        long baseEvents = engine.getDispatchedEventCount();
+        long baseCancelled = engine.getCancelledEventCount();
+        long baseEvals = engine.getEvaluationCount();
+
+        SplittableRandom rng = new SplittableRandom(7);
+        long mask = (1L << bits) - 1;
+        int wrong = 0;
+        long start = System.nanoTime();
+        for (int v = 0; v < vectors; v++) {
+          long x = rng.nextLong() & mask;
+          long y = rng.nextLong() & mask;
+          for (int i = 0; i < bits; i++) {
+            a.get(i).toggle(((x >>> i) & 1) != 0);
+            b.get(i).toggle(((y >>> i) & 1) != 0);
+          }
+          settle(engine);
+          long got = 0;
+          for (int i = 0; i < product.size(); i++)
+            if (product.get(i).getSignal())
+              got |= 1L << i;
+          if (got != x * y)
+            wrong++;
+        }
+        long elapsed = System.nanoTime() - start;
+        long events = engine.getDispatchedEventCount() - baseEvents;
+        long cancelled = engine.getCancelledEventCount() - baseCancelled;
+        long evals = engine.getEvaluationCount() - baseEvals;
+
+        if (model == SimulationConfig.DelayModel.TRANSPORT) {
+          transportEvents = events;
+          transportEvals = evals;
+        }
+        if (round == 2) { // First rounds are JIT warm-up
+          System.out.printf("  %-13s %,12d events %,12d evals %,10d cancelled %,8.1f ms  wrong products: %d%n",
+              model, events, evals, cancelled, elapsed / 1e6, wrong);
+          if (model == SimulationConfig.DelayModel.INERTIAL)
+            System.out.printf("  vs TRANSPORT: evaluations %+.1f%%, events %+.1f%%%n",
+                100.0 * (evals - transportEvals) / transportEvals, 100.0 * (events - transportEvents) / transportEvents);
+        }
+      }
+    }
+  }
+
+  // --- Clocks ---
+
+  /**
+   * Compares finding the clocks by scanning every component (as Circuit.tick
+   * used to) with the circuit's clock list, then runs two self-timed clocks
+   * with periods 100 and 150 and checks their edge counts.
+   */
+  static void runClockSuite(int gates, int ticks) {
+    System.out.printf("Clocks: %,d random gates, %,d engine ticks%n", gates, ticks);
+    Circuit circuit = randomNetlist(gates, 64, 5, new ArrayList<>());
+    Clock fast = new Clock("CLK_A");
+    Clock slow = new Clock("CLK_B");
+    circuit.addComponent(fast);
+    circuit.addComponent(slow);
+
+    int rounds = 200;
+    for (int round = 0; round < 3; round++) {
+      long start = System.nanoTime();
+      int found = 0;
+      for (int r = 0; r < rounds; r++)
+        for (Component c : circuit.getComponents())
+          if (c instanceof Clock)
+            found++;
+      long scanNs = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (int r = 0; r < rounds; r++)
+        found -= circuit.getClocks().size();
+      long listNs = System.nanoTime() - start;
+      if (round == 2) // First rounds are JIT warm-up
+        System.out.printf("  scan %,10.1f us/tick  list %,8.3f us/tick  (%s)%n",
+            scanNs / 1e3 / rounds, listNs / 1e3 / rounds, (found == 0) ? "same clocks" : "MISMATCH");
+    }
+
+    SimulationEngine engine = circuit.getEngine();
+    engine.clear(); // Only the clocks run: skip the netlist's start-up events
+    int[] rising = new int[2];
+    boolean[] last = { fast.getState(), slow.getState() };
+    fast.setTiming(100, 0, 50);
+    slow.setTiming(150, 25, 20);
+    long start = System.nanoTime();
+    for (int t = 0; t < ticks; t++) {
+      engine.run(1);
+      Clock[] both = { fast, slow };
+      for (int i = 0; i < 2; i++) {
+        if (both[i].getState() && !last[i])
+          rising[i]++;
+        last[i] = both[i].getState();
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    System.out.printf("  self-timed: %d / %d rising edges (expected %d / %d), stable between edges: %b, %,.1f ms%n",
+        rising[0], rising[1], ticks / 100, ticks / 150, engine.isStable(), elapsed / 1e6);
+  }
+
+  // --- Connectivity ---
+
+  /**
+   * Loads saved random netlists of a quarter, half and all of the given
+   * size, then deletes 1,000 components from each. With indexed
+   * connectivity both should grow linearly with the circuit.
+   */
+  static void runConnectivitySuite(int gates) {
+    System.out.printf("Connectivity: load and edit saved netlists up to %,d gates%n", gates);
+    for (int round = 0; round < 2; round++) {
+      for (int n : new int[] { gates / 4, gates / 2, gates }) {
+        String saved = StorageManager.saveToString(randomNetlist(n, 64, 11, new ArrayList<>()), List.of());
+
+        long start = System.nanoTime();
+        Circuit circuit;
+        try {
+          circuit = StorageManager.loadFromString(saved).circuit();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        long loadNs = System.nanoTime() - start;
+
+        int connections = 0;
+        for (Wire w : circuit.getWires())
+          connections += w.getDestinations().size();
+
+        SplittableRandom rng = new SplittableRandom(n);
+        List<Component> victims = new ArrayList<>();
+        for (int i = 0; i < 1000; i++)
+          victims.add(circuit.getComponents().get(rng.nextInt(circuit.getComponents().size())));
+        start = System.nanoTime();
+        circuit.edit(() -> {
+          for (Component c : victims)
+            circuit.removeComponent(c);
+        });
+        long removeNs = System.nanoTime() - start;
+
+        if (round == 1) // First round is JIT warm-up
+          System.out.printf("  %,8d wires %,9d connections  load %,8.1f ms (%,5.0f ns/connection)  remove 1000 %,7.1f ms%n",
+              circuit.getWires().size(), connections, loadNs / 1e6, (double) loadNs / connections, removeNs / 1e6);
+      }
+    }
+  }
+
+  // --- Buses ---
+
+  /**
+   * Runs the same 32-bit XOR pipeline, depth stages deep, once as 32
+   * single-bit chains and once as a chain of 32-bit bus gates fed through
+   * two mergers, and compares events per operand change.
+   */
+  static void runBusSuite(int depth, int vectors) {
+    final int bits = 32;
+    System.out.printf("Buses: %d-bit XOR pipeline, %d stages, %,d operand changes%n", bits, depth, vectors);
+    for (int round = 0; round < 3; round++) {
+      for (boolean bus : new boolean[] { false, true }) {
+        List<Switch> a = new ArrayList<>();
+        List<Switch> b = new ArrayList<>();
+        Circuit circuit = new Circuit();
+        for (int i = 0; i < bits; i++) {
+          a.add(new Switch("A" + i));
+          b.add(new Switch("B" + i));
+          circuit.addComponent(a.get(i));
+          circuit.addComponent(b.get(i));
+        }
+
+        List<Wire> result = new ArrayList<>();
+        if (bus) {
+          Merger ma = new Merger("A");
+          Merger mb = new Merger("B");
+          ma.setBusWidth(bits);
+          mb.setBusWidth(bits);
+          circuit.addComponent(ma);
+          circuit.addComponent(mb);
+          for (int i = 0; i < bits; i++) {
+            circuit.addConnection(a.get(i), ma, i);
+            circuit.addConnection(b.get(i), mb, i);
+          }
+          Component prev = ma;
+          for (int d = 0; d < depth; d++) {
+            XorGate x = new XorGate("X");
+            x.setBusWidth(bits);
+            circuit.addComponent(x);
+            circuit.addConnection(prev, x, 0);
+            circuit.addConnection(mb, x, 1);
+            prev = x;
+          }
+          result.add(outputOf(prev));
+        } else {
+          for (int i = 0; i < bits; i++) {
+            Component prev = a.get(i);
+            for (int d = 0; d < depth; d++) {
+              XorGate x = new XorGate("X");
+              circuit.addComponent(x);
+              circuit.addConnection(prev, x, 0);
+              circuit.addConnection(b.get(i), x, 1);
+              prev = x;
+            }
+            result.add(outputOf(prev));
+          }
+        }
+
+        SimulationEngine engine = circuit.getEngine();
+        engine.setConfig(SimulationConfig.DEFAULT);
+        settle(engine);
+        long baseEvents = engine.getDispatchedEventCount();
+
+        SplittableRandom rng = new SplittableRandom(3);
+        long mask = (1L << bits) - 1;
+        int wrong = 0;
+        long start = System.nanoTime();
+        for (int v = 0; v < vectors; v++) {
+          long x = rng.nextLong() & mask;
+          long y = rng.nextLong() & mask;
+          for (int i = 0; i < bits; i++) {
+            a.get(i).toggle(((x >>> i) & 1) != 0);
+            b.get(i).toggle(((y >>> i) & 1) != 0);
+          }
+          settle(engine);
+          long got = 0;
+          if (bus) {
+            got = result.get(0).getValue();
+          } else {
+            for (int i = 0; i < bits; i++)
+              if (result.get(i).getSignal())
+                got |= 1L << i;
+          }
+          if (got != ((depth % 2 == 0) ? x : x ^ y))
+            wrong++;
+        }
+        long elapsed = System.nanoTime() - start;
+        long events = engine.getDispatchedEventCount() - baseEvents;
+        if (round == 2) // First rounds are JIT warm-up
+          System.out.printf("  %-10s %,12d events (%,8.0f per change) %,8.1f ms  wrong results: %d%n",
+              bus ? "bus" : "bit-level", events, (double) events / vectors, elapsed / 1e6, wrong);
+      }
+    }
+  }
+
+  /**
+   * Builds an unsigned array multiplier: partial products from AND gates,
+   * summed row by row with ripple-carry adders. XOR gates take 30-39 ticks
+   * and AND/OR gates 20-29, so paths of different depth race each other.
+   */
+  static Circuit arrayMultiplier(int bits, List<Switch> aOut, List<Switch> bOut, List<Wire> productOut) {
+    SplittableRandom rng = new SplittableRandom(3);
+    List<Component> nodes = new ArrayList<>();
+    for (int i = 0; i < bits; i++) {
+      Switch a = new Switch("A" + i);
+      Switch b = new Switch("B" + i);
+      aOut.add(a);
+      bOut.add(b);
+      nodes.add(a);
+      nodes.add(b);
+    }
+
+    Component[] acc = new Component[2 * bits]; // null = constant 0
+    for (int row = 0; row < bits; row++) {
+      Component carry = null;
+      for (int col = 0; col < bits; col++) {
+        Component pp = gate(new AndGate("PP"), 20 + rng.nextInt(10), nodes, aOut.get(col), bOut.get(row));
+        Component[] sum = fullAdd(acc[row + col], pp, carry, nodes, rng);
+        acc[row + col] = sum[0];
+        carry = sum[1];
+      }
+      acc[row + bits] = carry;
+    }
+
+    for (Component c : acc)
+      productOut.add((c != null) ? outputOf(c) : new Wire(null));
+
+    Circuit circuit = new Circuit();
+    for (Component c : nodes)
+      circuit.addComponent(c);
+    for (Component c : nodes)
+      c.update();
+    return circuit;
+  }
+
+  /** Sum and carry of up to three bits, skipping constant-zero operands. */
+  private static Component[] fullAdd(Component x, Component y, Component z, List<Component> nodes,
+      SplittableRandom rng) {
+    List<Component> in = new ArrayList<>(3);
+    for (Component c : new Component[] { x, y, z })
+      if (c != null)
+        in.add(c);
+    if (in.size() < 2)
+      return new Component[] { in.isEmpty() ? null : in.get(0), null };
+
+    Component half = gate(new XorGate("XOR"), 30 + rng.nextInt(10), nodes, in.get(0), in.get(1));
+    Component halfCarry = gate(new AndGate("AND"), 20 + rng.nextInt(10), nodes, in.get(0), in.get(1));
+    if (in.size() == 2)
+      return new Component[] { half, halfCarry };
+
+    Component sum = gate(new XorGate("XOR"), 30 + rng.nextInt(10), nodes, half, in.get(2));
+    Component carry = gate(new OrGate("OR"), 20 + rng.nextInt(10), nodes, halfCarry,
+        gate(new AndGate("AND"), 20 + rng.nextInt(10), nodes, half, in.get(2)));
+    return new Component[] { sum, carry };
+  }
+
+  private static Component gate(Component gate, int delay, List<Component> nodes, Component... inputs) {
+    gate.setCustomDelay(delay);
+    for (int pin = 0; pin < inputs.length; pin++)
+      outputOf(inputs[pin]).addDestination(gate, pin);
+    nodes.add(gate);
+    return gate;
+  }
+
+  private static Wire outputOf(Component c) {
+    Wire w = c.getOutputWire(0);
+    if (w == null) {
+      w = new Wire(c, c.getOutputWidth(0));
+      c.setOutputWire(0, w);
+    }
+    return w;
+  }
+
+  static void settle(SimulationEngine engine) {
+    while (!engine.isStable())
+      engine.run(64);
+  }
+
+  /**
+   * Builds a random layered netlist: inputs of each gate are drawn from the
+   * most recent 1000 nodes, giving deep cones with plenty of reconvergence.
+   */
+  static Circuit randomNetlist(int gates, int inputs, long seed, List<Switch> switchesOut) {
+    SplittableRandom rng = new SplittableRandom(seed);
+    List<Component> nodes = new ArrayList<>();
+    for (int i = 0; i < inputs; i++) {
+      Switch sw = new Switch("SW" + i);
+      switchesOut.add(sw);
+      nodes.add(sw);
+    }
+    Circuit circuit = new Circuit();
+    for (Component c : nodes)
+      circuit.addComponent(c);
+    for (int g = 0; g < gates; g++) {
+      Component gate = switch (rng.nextInt(6)) {
+        case 0 -> new AndGate("AND");
+        case 1 -> new OrGate("OR");
+        case 2 -> new XorGate("XOR");
+        case 3 -> new NandGate("NAND");
+        case 4 -> new NorGate("NOR");
+        default -> new NotGate("NOT");
+      };
+      circuit.addComponent(gate);
+      for (int pin = 0; pin < gate.getInputCount(); pin++) {
+        int lo = Math.max(0, nodes.size() - 1000);
+        Component src = nodes.get(lo + rng.nextInt(nodes.size() - lo));
+        circuit.addConnection(src, 0, gate, pin);
+      }
+      nodes.add(gate);
+    }
+
+    for (Component c : nodes)
+      c.update();
+    return circuit;
+  }
+}
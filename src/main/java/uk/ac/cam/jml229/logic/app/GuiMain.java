@@ -14,6 +14,7 @@ import java.awt.Taskbar;
 
 import uk.ac.cam.jml229.logic.components.Component;
 import uk.ac.cam.jml229.logic.components.CustomComponent;
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
 import uk.ac.cam.jml229.logic.core.Wire;
 import uk.ac.cam.jml229.logic.io.SettingsManager;
 import uk.ac.cam.jml229.logic.io.StorageManager;
@@ -49,6 +50,7 @@ public class GuiMain {
   private static SimulationController simController;
 
   public static void main(String[] args) {
+    SimulationConfig.setCurrent(SettingsManager.loadSimulationConfig());
     System.setProperty("sun.java2d.opengl", "true");
     System.setProperty("awt.useSystemAAFontSettings", "on");
     System.setProperty("swing.aatext", "true");
@@ -105,6 +107,9 @@ public class GuiMain {
         timingContainer.tick();
       });
       simController.start();
+      circuitPanel.setSnapshot(simController.getSnapshot());
+      timingContainer.setSnapshot(simController.getSnapshot());
+      interaction.setCommandSink(simController::post);
 
       circuitPanel.setOnCircuitChanged(newCircuit -> simController.setCircuit(newCircuit));
 
@@ -119,7 +124,7 @@ public class GuiMain {
           simController,
           timingContainer,
           GuiMain::loadAndApplyTheme,
-          () -> new SettingsDialog(frame).setVisible(true),
+          () -> new SettingsDialog(frame, simController::refreshSettings).setVisible(true),
           GuiMain::performSave,
           GuiMain::performLoad,
           GuiMain::toggleTimingPanel);
@@ -1,52 +1,385 @@
 package uk.ac.cam.jml229.logic.app;
 
-import uk.ac.cam.jml229.logic.components.*;
-import uk.ac.cam.jml229.logic.core.Wire;
-import uk.ac.cam.jml229.logic.components.gates.*;
-import uk.ac.cam.jml229.logic.components.io.*;
-import uk.ac.cam.jml229.logic.components.seq.*;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.components.CustomComponent;
+import uk.ac.cam.jml229.logic.components.io.OutputProbe;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
+import uk.ac.cam.jml229.logic.core.compiled.SimulationBackend;
+import uk.ac.cam.jml229.logic.core.compiled.TruthTable;
+import uk.ac.cam.jml229.logic.exceptions.UnsupportedComponentException;
+import uk.ac.cam.jml229.logic.io.StorageManager;
+
+/**
+ * Headless batch simulator. Never touches Swing, so it runs on servers and
+ * in CI (java.awt.headless is forced on).
+ *
+ * <pre>
+ * java -cp logik.jar uk.ac.cam.jml229.logic.app.Main run circuit.lgk [options]
+ *   --cycles N         clock cycles to run (default 1)
+ *   --ticks N          run N engine ticks instead of cycles
+ *   --set NAME=0|1     set a switch before running (repeatable)
+ *   --stimulus FILE    lines of "CYCLE NAME=0|1 ...", applied before that
+ *                      cycle (or tick); # starts a comment
+ *   --probe NAME       output probe to report (repeatable, default all)
+ *   --every N          also sample every N cycles (or ticks)
+ *   --out FILE         write the samples there instead of to stdout
+ *   --engine TYPE      auto (default), object, compiled, generated or
+ *                      partitioned
+ *   --zero-delay       settle with zero delay instead of the gate delay
+ *
+ * java -cp logik.jar uk.ac.cam.jml229.logic.app.Main truth-table circuit.lgk [options]
+ *   --chip NAME        tabulate a chip defined in the file instead
+ *   --set NAME=0|1     hold an input fixed rather than enumerating it
+ *   --out FILE         write the table there instead of to stdout
+ *   --threads N        worker threads (default: one per CPU)
+ * </pre>
+ *
+ * Samples are CSV: the cycle (or tick) followed by one 0/1 column per
+ * probe. A truth table is CSV too: every input, then every output, one row
+ * per combination of the free inputs (see TruthTable). The engine used and
+ * the throughput go to stderr so stdout can be piped. Exit status is 0 on
+ * success, 1 for bad arguments or files and 2 if the circuit oscillated.
+ */
 public class Main {
+
   public static void main(String[] args) {
-    // 1. Create Components
-    Switch swA = new Switch("Switch A");
-    Switch swB = new Switch("Switch B");
-
-    XorGate xor = new XorGate("XOR");
-    AndGate and = new AndGate("AND");
-
-    OutputProbe sumLight = new OutputProbe("Sum (Light)");
-    OutputProbe carryLight = new OutputProbe("Carry (Light)");
-
-    // 2. Wire them up (The "Netlist")
-    // Connect Switch A -> XOR(0) and AND(0)
-    Wire wireA = new Wire(swA);
-    wireA.addDestination(xor, 0);
-    wireA.addDestination(and, 0);
-
-    // Connect Switch B -> XOR(1) and AND(1)
-    Wire wireB = new Wire(swB);
-    wireB.addDestination(xor, 1);
-    wireB.addDestination(and, 1);
-
-    // Connect XOR -> Sum Light
-    Wire wireSum = new Wire(xor);
-    wireSum.addDestination(sumLight, 0);
-
-    // Connect AND -> Carry Light
-    Wire wireCarry = new Wire(and);
-    wireCarry.addDestination(carryLight, 0);
-
-    // 3. Run Simulation
-    System.out.println("--- Test 1: 0 + 0 ---");
-    swA.toggle(false);
-    swB.toggle(false);
-
-    System.out.println("\n--- Test 2: 1 + 0 ---");
-    swA.toggle(true);
-
-    System.out.println("\n--- Test 3: 1 + 1 ---");
-    swB.toggle(true);
-    // Expected: Sum OFF, Carry ON
+    System.setProperty("java.awt.headless", "true");
+    if (args.length == 0 || args[0].equals("--help") || args[0].equals("-h")) {
+      usage();
+      return;
+    }
+    try {
+      int status = switch (args[0]) {
+        case "run" -> run(args);
+        case "truth-table" -> truthTable(args);
+        default -> throw new IllegalArgumentException("Unknown command: " + args[0]);
+      };
+      System.exit(status);
+    } catch (IOException | IllegalArgumentException | UnsupportedComponentException
+        | UnsupportedOperationException e) {
+      System.err.println("logik: " + ((e.getMessage() != null) ? e.getMessage() : e));
+      System.exit(1);
+    }
+  }
+
+  private static void usage() {
+    System.err.println("""
+        Usage: logik run CIRCUIT [options]
+          --cycles N         clock cycles to run (default 1)
+          --ticks N          run N engine ticks instead of cycles
+          --set NAME=0|1     set a switch before running (repeatable)
+          --stimulus FILE    lines of "CYCLE NAME=0|1 ..." applied before that cycle
+          --probe NAME       output probe to report (repeatable, default all)
+          --every N          also sample every N cycles (or ticks)
+          --out FILE         write samples to FILE instead of stdout
+          --engine TYPE      auto, object, compiled, generated or partitioned
+          --zero-delay       settle with zero delay
+
+               logik truth-table CIRCUIT [options]
+          --chip NAME        tabulate a chip defined in the file instead
+          --set NAME=0|1     hold an input fixed (repeatable)
+          --out FILE         write the table to FILE instead of stdout
+          --threads N        worker threads (default: one per CPU)""");
+  }
+
+  // --- run ---
+
+  private static int run(String[] args) throws IOException {
+    if (args.length < 2)
+      throw new IllegalArgumentException("run needs a circuit file");
+    File circuitFile = new File(args[1]);
+    long count = 1;
+    boolean ticks = false;
+    long every = 0;
+    String engine = "auto";
+    boolean zeroDelay = false;
+    File out = null;
+    List<String> probeNames = new ArrayList<>();
+    List<String> sets = new ArrayList<>();
+    File stimulusFile = null;
+
+    for (int i = 2; i < args.length; i++) {
+      String a = args[i];
+      switch (a) {
+        case "--cycles" -> count = parseCount(a, value(args, ++i, a));
+        case "--ticks" -> {
+          count = parseCount(a, value(args, ++i, a));
+          ticks = true;
+        }
+        case "--set" -> sets.add(value(args, ++i, a));
+        case "--stimulus" -> stimulusFile = new File(value(args, ++i, a));
+        case "--probe" -> probeNames.add(value(args, ++i, a));
+        case "--every" -> every = parseCount(a, value(args, ++i, a));
+        case "--out" -> out = new File(value(args, ++i, a));
+        case "--engine" -> engine = value(args, ++i, a);
+        case "--zero-delay" -> zeroDelay = true;
+        default -> throw new IllegalArgumentException("Unknown option: " + a);
+      }
+    }
+
+    Circuit circuit = StorageManager.load(circuitFile).circuit();
+    circuit.getEngine().setConfig(SimulationConfig.DEFAULT.withPropagationDelay(!zeroDelay));
+
+    List<OutputProbe> probes = findProbes(circuit, probeNames);
+    TreeMap<Long, List<String>> stimulus = (stimulusFile != null) ? readStimulus(stimulusFile) : new TreeMap<>();
+
+    try (SimulationBackend backend = openBackend(circuit, engine, ticks);
+        PrintWriter samples = new PrintWriter((out != null) ? new FileWriter(out) : new OutputStreamWriter(System.out))) {
+      for (String s : sets)
+        apply(backend, circuit, s);
+
+      samples.print(ticks ? "tick" : "cycle");
+      for (OutputProbe p : probes)
+        samples.print("," + p.getName());
+      samples.println();
+
+      long start = System.nanoTime();
+      long done = 0;
+      boolean oscillated = false;
+      while (done < count) {
+        for (String s : stimulus.getOrDefault(done, List.of()))
+          apply(backend, circuit, s);
+        long next = count;
+        if (every > 0)
+          next = Math.min(next, (done / every + 1) * every);
+        Long nextStimulus = stimulus.higherKey(done);
+        if (nextStimulus != null)
+          next = Math.min(next, nextStimulus);
+
+        if (ticks) {
+          // Engines take an int, so long runs go in chunks
+          while (done < next && !oscillated) {
+            long before = backend.getTick();
+            oscillated = !backend.runTicks((int) Math.min(Integer.MAX_VALUE, next - done));
+            done += backend.getTick() - before;
+          }
+          if (oscillated)
+            break;
+        } else {
+          long ran = backend.runCycles(next - done);
+          done += ran;
+          if (done < next) {
+            oscillated = true;
+            break;
+          }
+        }
+        if (every > 0 && done % every == 0 && done < count)
+          sample(samples, backend, probes, done);
+      }
+      sample(samples, backend, probes, done);
+      long elapsed = System.nanoTime() - start;
+
+      samples.flush();
+      report(backend, ticks, done, elapsed);
+      if (oscillated) {
+        System.err.println("logik: circuit oscillated after " + done + (ticks ? " ticks" : " cycles"));
+        return 2;
+      }
+    }
+    return 0;
+  }
+
+  private static SimulationBackend openBackend(Circuit circuit, String engine, boolean ticks) {
+    if (engine.equals("auto"))
+      return SimulationBackend.open(circuit, ticks);
+    SimulationConfig.EngineType type;
+    try {
+      type = SimulationConfig.EngineType.valueOf(engine.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown engine: " + engine);
+    }
+    if (type != SimulationConfig.EngineType.OBJECT && SimulationBackend.hasCustomChips(circuit))
+      System.err.println("logik: custom chips are inlined by the " + engine.toLowerCase()
+          + " engine; use --engine object to simulate them as components");
+    return SimulationBackend.open(circuit, type);
+  }
+
+  private static void sample(PrintWriter samples, SimulationBackend backend, List<OutputProbe> probes, long at) {
+    samples.print(at);
+    for (OutputProbe p : probes)
+      samples.print(backend.getInput(p, 0) ? ",1" : ",0");
+    samples.println();
+  }
+
+  private static void report(SimulationBackend backend, boolean ticks, long done, long nanos) {
+    double seconds = nanos / 1e9;
+    System.err.printf("engine: %s%n", backend.getType());
+    System.err.printf("%s: %,d in %.3f s (%,.0f/s)%n", ticks ? "ticks" : "cycles", done, seconds,
+        (seconds > 0) ? done / seconds : 0);
+    System.err.printf("work: %,d %s (%,.0f/s)%n", backend.getWorkCount(),
+        (backend.getType() == SimulationConfig.EngineType.GENERATED) ? "kernel passes" : "evaluations",
+        (seconds > 0) ? backend.getWorkCount() / seconds : 0);
+  }
+
+  // --- truth-table ---
+
+  private static int truthTable(String[] args) throws IOException {
+    if (args.length < 2)
+      throw new IllegalArgumentException("truth-table needs a circuit file");
+    File circuitFile = new File(args[1]);
+    String chip = null;
+    File out = null;
+    int threads = Runtime.getRuntime().availableProcessors();
+    List<String> sets = new ArrayList<>();
+
+    for (int i = 2; i < args.length; i++) {
+      String a = args[i];
+      switch (a) {
+        case "--chip" -> chip = value(args, ++i, a);
+        case "--set" -> sets.add(value(args, ++i, a));
+        case "--out" -> out = new File(value(args, ++i, a));
+        case "--threads" -> threads = (int) Math.max(1, Math.min(Short.MAX_VALUE, parseCount(a, value(args, ++i, a))));
+        default -> throw new IllegalArgumentException("Unknown option: " + a);
+      }
+    }
+
+    StorageManager.LoadResult loaded = StorageManager.load(circuitFile);
+    TruthTable table;
+    if (chip == null) {
+      table = TruthTable.of(loaded.circuit());
+    } else {
+      CustomComponent def = null;
+      for (CustomComponent c : loaded.customTools())
+        if (c.getName().equals(chip))
+          def = c;
+      if (def == null)
+        throw new IllegalArgumentException("No custom chip named " + chip);
+      table = TruthTable.of(def.getDefinition());
+    }
+    for (String s : sets)
+      fix(table, s);
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try (OutputStream os = new BufferedOutputStream((out != null) ? new FileOutputStream(out) : System.out, 1 << 16)) {
+      long start = System.nanoTime();
+      long rows = table.write(os, pool);
+      double seconds = (System.nanoTime() - start) / 1e9;
+      System.err.printf("rows: %,d in %.3f s (%,.0f/s) on %d threads%n", rows, seconds,
+          (seconds > 0) ? rows / seconds : 0, threads);
+    } finally {
+      pool.shutdownNow();
+    }
+    return 0;
+  }
+
+  // --- Stimulus and Probes ---
+
+  // NAME=0|1 on the first input with that name
+  private static void fix(TruthTable table, String assignment) {
+    int eq = assignment.indexOf('=');
+    if (eq <= 0)
+      throw new IllegalArgumentException("Expected NAME=0|1, got: " + assignment);
+    String name = assignment.substring(0, eq);
+    String v = assignment.substring(eq + 1);
+    if (!v.equals("0") && !v.equals("1"))
+      throw new IllegalArgumentException("Input values are 0 or 1, got: " + assignment);
+    for (Switch sw : table.getInputs()) {
+      if (sw.getName().equals(name)) {
+        table.fix(sw, v.equals("1"));
+        return;
+      }
+    }
+    throw new IllegalArgumentException("No input named " + name);
+  }
+
+  // NAME=0|1 on the first switch with that name
+  private static void apply(SimulationBackend backend, Circuit circuit, String assignment) {
+    int eq = assignment.indexOf('=');
+    if (eq <= 0)
+      throw new IllegalArgumentException("Expected NAME=0|1, got: " + assignment);
+    String name = assignment.substring(0, eq);
+    String v = assignment.substring(eq + 1);
+    if (!v.equals("0") && !v.equals("1"))
+      throw new IllegalArgumentException("Switch values are 0 or 1, got: " + assignment);
+    for (Component c : circuit.getComponents()) {
+      if (c instanceof Switch sw && c.getName().equals(name)) {
+        backend.setSwitch(sw, v.equals("1"));
+        return;
+      }
+    }
+    throw new IllegalArgumentException("No switch named " + name);
+  }
+
+  private static List<OutputProbe> findProbes(Circuit circuit, List<String> names) {
+    Map<String, OutputProbe> byName = new LinkedHashMap<>();
+    for (Component c : circuit.getComponents())
+      if (c instanceof OutputProbe p)
+        byName.putIfAbsent(p.getName(), p);
+    if (names.isEmpty())
+      return new ArrayList<>(byName.values());
+    List<OutputProbe> probes = new ArrayList<>();
+    for (String n : names) {
+      OutputProbe p = byName.get(n);
+      if (p == null)
+        throw new IllegalArgumentException("No output probe named " + n);
+      probes.add(p);
+    }
+    return probes;
+  }
+
+  private static TreeMap<Long, List<String>> readStimulus(File file) throws IOException {
+    TreeMap<Long, List<String>> stimulus = new TreeMap<>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+      String line;
+      int lineNo = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNo++;
+        int hash = line.indexOf('#');
+        if (hash >= 0)
+          line = line.substring(0, hash);
+        line = line.trim();
+        if (line.isEmpty())
+          continue;
+        String[] parts = line.split("\\s+");
+        long at;
+        try {
+          at = Long.parseLong(parts[0]);
+        } catch (NumberFormatException e) {
+          throw new IllegalArgumentException(file + ":" + lineNo + ": expected a cycle number");
+        }
+        List<String> list = stimulus.computeIfAbsent(at, k -> new ArrayList<>());
+        for (int i = 1; i < parts.length; i++)
+          list.add(parts[i]);
+      }
+    }
+    return stimulus;
+  }
+
+  // --- Argument Helpers ---
+
+  private static String value(String[] args, int i, String option) {
+    if (i >= args.length)
+      throw new IllegalArgumentException(option + " needs a value");
+    return args[i];
+  }
+
+  private static long parseCount(String option, String value) {
+    try {
+      long n = Long.parseLong(value);
+      if (n < 0)
+        throw new NumberFormatException();
+      return n;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(option + " needs a non-negative number, got: " + value);
+    }
   }
 }
@@ -26,6 +26,8 @@ public class Theme {
   public static Color WIRE_OFF = new Color(100, 100, 100);
   public static Color WIRE_SELECTED = new Color(0, 120, 255);
   public static Color WIRE_HANDLE_FILL = Color.WHITE;
+  public static Color WIRE_UNKNOWN = new Color(220, 40, 40); // X
+  public static Color WIRE_FLOATING = new Color(40, 90, 220); // Z
 
   public static Color COMP_BORDER = Color.BLACK;
   public static Color COMP_FILL_GRADIENT_1 = new Color(240, 240, 255);
@@ -57,6 +59,7 @@ public class Theme {
   public static Color PIN_COLOR = new Color(0, 0, 150);
   public static Color STUB_COLOR = Color.GRAY;
   public static Color HOVER_COLOR = new Color(255, 100, 100);
+  public static Color OSCILLATION_COLOR = new Color(255, 60, 0, 150);
 
   public static Color PALETTE_BACKGROUND = new Color(245, 245, 245);
   public static Color PALETTE_HEADINGS = new Color(80, 80, 80);
@@ -107,6 +110,8 @@ public class Theme {
     WIRE_OFF = parseColor(p, "wireOff", WIRE_OFF);
     WIRE_SELECTED = parseColor(p, "wireSelected", WIRE_SELECTED);
     WIRE_HANDLE_FILL = parseColor(p, "wireHandleFill", WIRE_HANDLE_FILL);
+    WIRE_UNKNOWN = parseColor(p, "wireUnknown", WIRE_UNKNOWN);
+    WIRE_FLOATING = parseColor(p, "wireFloating", WIRE_FLOATING);
 
     COMP_BORDER = parseColor(p, "compBorder", COMP_BORDER);
     COMP_FILL_GRADIENT_1 = parseColor(p, "compFillGradient1", COMP_FILL_GRADIENT_1);
@@ -117,6 +122,7 @@ public class Theme {
     PIN_COLOR = parseColor(p, "pin", PIN_COLOR);
     STUB_COLOR = parseColor(p, "stub", STUB_COLOR);
     HOVER_COLOR = parseColor(p, "hover", HOVER_COLOR);
+    OSCILLATION_COLOR = parseColor(p, "oscillation", OSCILLATION_COLOR);
     CLOCK_BACKGROUND = parseColor(p, "clockBackground", new Color(40, 40, 40));
 
     PALETTE_BACKGROUND = parseColor(p, "paletteBackground", PALETTE_BACKGROUND);
@@ -185,6 +191,8 @@ public class Theme {
       WIRE_OFF = new Color(85, 90, 100);
       WIRE_SELECTED = new Color(52, 152, 219);
       WIRE_HANDLE_FILL = new Color(45, 45, 48);
+      WIRE_UNKNOWN = new Color(231, 76, 60);
+      WIRE_FLOATING = new Color(93, 140, 235);
 
       SWITCH_ON = new Color(46, 204, 113);
       SWITCH_OFF = new Color(80, 80, 80);
@@ -233,6 +241,8 @@ public class Theme {
       WIRE_OFF = new Color(160, 160, 170);
       WIRE_SELECTED = new Color(0, 120, 255);
       WIRE_HANDLE_FILL = Color.WHITE;
+      WIRE_UNKNOWN = new Color(220, 40, 40);
+      WIRE_FLOATING = new Color(40, 90, 220);
 
       SWITCH_ON = new Color(0, 150, 0);
       SWITCH_OFF = new Color(220, 220, 220);
@@ -0,0 +1,15 @@
+package uk.ac.cam.jml229.logic.components;
+
+/**
+ * A component whose data pins carry a configurable number of bits (1-64),
+ * such as a gate working bitwise on whole buses or a splitter.
+ *
+ * Wires take their width from the pin driving them when they are created,
+ * so the width should only be changed while the component is unconnected.
+ */
+public interface BusComponent {
+
+  int getBusWidth();
+
+  void setBusWidth(int width);
+}
@@ -0,0 +1,69 @@
+package uk.ac.cam.jml229.logic.components;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.compiled.ChipNetlist;
+import uk.ac.cam.jml229.logic.components.io.*;
+
+/**
+ * Shared, read-only definition of a custom chip.
+ *
+ * The template circuit (components, positions, names and wires) and its
+ * compiled netlist are stored once here; every CustomComponent built from
+ * the definition only keeps its own state vector.
+ */
+public final class ChipDefinition {
+
+  private final String name;
+  private final Circuit template;
+  private final List<Switch> inputPins = new ArrayList<>();
+  private final List<OutputProbe> outputPins = new ArrayList<>();
+  private final ChipNetlist netlist;
+
+  public ChipDefinition(String name, Circuit templateCircuit) {
+    this.name = name;
+
+    // Private copy, so later edits to the source circuit don't leak in
+    this.template = templateCircuit.cloneCircuit();
+
+    for (Component c : template.getComponents()) {
+      if (c instanceof Switch) {
+        inputPins.add((Switch) c);
+      } else if (c instanceof OutputProbe) {
+        outputPins.add((OutputProbe) c);
+      }
+    }
+
+    // Sort pins by Y position to match visual layout
+    inputPins.sort((a, b) -> Integer.compare(a.getY(), b.getY()));
+    outputPins.sort((a, b) -> Integer.compare(a.getY(), b.getY()));
+
+    this.netlist = ChipNetlist.compile(template, inputPins, outputPins);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * The circuit this chip was defined from. Shared by every instance, so
+   * it must not be modified.
+   */
+  public Circuit getTemplate() {
+    return template;
+  }
+
+  public List<Switch> getInputPins() {
+    return Collections.unmodifiableList(inputPins);
+  }
+
+  public List<OutputProbe> getOutputPins() {
+    return Collections.unmodifiableList(outputPins);
+  }
+
+  public ChipNetlist getNetlist() {
+    return netlist;
+  }
+}
@@ -1,12 +1,14 @@
 package uk.ac.cam.jml229.logic.components;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
 import uk.ac.cam.jml229.logic.core.Wire;
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
+import uk.ac.cam.jml229.logic.core.SimulationEngine;
 import uk.ac.cam.jml229.logic.core.Simulator;
-import uk.ac.cam.jml229.logic.io.SettingsManager;
 
 public abstract class Component {
   private String name;
@@ -18,13 +20,61 @@ public abstract class Component {
   private Integer customDelay = null;
 
   private final List<Wire> outputWires = new ArrayList<>();
-  private final List<Boolean> inputs = new ArrayList<>();
+
+  // Input pins as a bitmask: pins 0-63 here, wider components spill over
+  private long inputBits = 0;
+  private long[] wideInputBits = null; // pins 64 and up, allocated on demand
+  // Whole values of the low pins once any of them has carried more than one
+  // bit (a bus); their bits above stay in step as "value != 0"
+  private long[] inputWords = null;
+  // Unknown plane of pins 0-63 in four-state runs (see FourState), and of
+  // the word-backed pins alongside inputWords. Always zero in two-state runs.
+  private long inputUnknownBits = 0;
+  private long[] inputUnknownWords = null;
   private int inputCount = 0;
 
+  // Engine this component schedules on (replaced when added to a Circuit)
+  private SimulationEngine engine = Simulator.getDefault();
+  private int engineId = -1;
+
   public Component(String name) {
     this.name = name;
   }
 
+  // --- Engine Binding ---
+  public SimulationEngine getEngine() {
+    return engine;
+  }
+
+  /**
+   * Binds this component (and the wires it drives) to a simulation engine.
+   * Called by Circuit.addComponent so every part of a circuit shares one
+   * timeline.
+   */
+  public void setEngine(SimulationEngine engine) {
+    if (this.engine != engine) {
+      this.engine.unregister(this);
+      this.engine = engine;
+      engine.invalidateTopology();
+    }
+    for (Wire w : outputWires) {
+      if (w != null)
+        w.setEngine(engine);
+    }
+  }
+
+  /**
+   * Slot assigned by the engine so events can address this component by
+   * number. -1 when not yet registered.
+   */
+  public int getEngineId() {
+    return engineId;
+  }
+
+  public void setEngineId(int id) {
+    this.engineId = id;
+  }
+
   // --- Delay Accessors ---
   public void setCustomDelay(Integer delay) {
     this.customDelay = delay;
@@ -52,39 +102,213 @@ public abstract class Component {
 
   // --- Logic with Delay ---
   public void setInput(int index, boolean state) {
-    while (inputs.size() <= index) {
-      inputs.add(false);
+    boolean changed = (inputWords != null && index < inputWords.length)
+        ? writeWord(index, state ? 1L : 0L)
+        : writeInput(index, state);
+    if (inputUnknownBits != 0)
+      changed |= writeUnknown(index, 0);
+    if (changed)
+      inputChanged();
+  }
+
+  /**
+   * Sets a bus pin to a whole value (see getInputWidth). Values of 0 and 1
+   * on a component that has never seen a wider one go through the bitmask
+   * like setInput.
+   */
+  public void setInputValue(int index, long value) {
+    boolean changed = writeValue(index, value);
+    if (inputUnknownBits != 0)
+      changed |= writeUnknown(index, 0);
+    if (changed)
+      inputChanged();
+  }
+
+  /**
+   * Sets both planes of a pin in a four-state run (see FourState).
+   */
+  public void setInputState(int index, long value, long unknown) {
+    if (writeValue(index, value) | writeUnknown(index, unknown))
+      inputChanged();
+  }
+
+  private void inputChanged() {
+    SimulationConfig config = engine.getConfig();
+    if (config.propagationDelay()) {
+      engine.requestUpdate(this, inputDelay(config));
+    } else {
+      // Settled in level order by the engine, once per batch of changes
+      engine.markDirty(this);
+    }
+  }
+
+  /**
+   * Ticks between an input change and the update it triggers, when
+   * propagation delay is on.
+   */
+  protected int inputDelay(SimulationConfig config) {
+    // Priority: Custom Delay -> Global Delay
+    return config.delayFor(customDelay);
+  }
+
+  /**
+   * Overwrites an input without triggering an update. Used by engines that
+   * simulate on their own copy of the state and sync back for rendering.
+   */
+  public void restoreInput(int index, boolean state) {
+    restoreInputState(index, state ? 1L : 0L, 0);
+  }
+
+  public void restoreInputValue(int index, long value) {
+    restoreInputState(index, value, 0);
+  }
+
+  public void restoreInputState(int index, long value, long unknown) {
+    writeValue(index, value);
+    writeUnknown(index, unknown);
+  }
+
+  private void growInputWords(int index) {
+    int old = (inputWords != null) ? inputWords.length : 0;
+    int n = Math.max(index + 1, inputCount);
+    inputWords = Arrays.copyOf(inputWords != null ? inputWords : new long[0], n);
+    inputUnknownWords = Arrays.copyOf(inputUnknownWords != null ? inputUnknownWords : new long[0], n);
+    for (int i = old; i < n; i++) {
+      inputWords[i] = getInput(i) ? 1L : 0L;
+      inputUnknownWords[i] = (i < 64) ? (inputUnknownBits >>> i) & 1 : 0;
+    }
+  }
+
+  // Sets the value plane of one pin, returning whether it changed
+  private boolean writeValue(int index, long value) {
+    if (inputWords == null || index >= inputWords.length) {
+      if ((value & ~1L) == 0)
+        return writeInput(index, value != 0);
+      growInputWords(index);
     }
+    return writeWord(index, value);
+  }
+
+  // Sets one word-backed pin, returning whether it changed
+  private boolean writeWord(int index, long value) {
+    if (inputWords[index] == value)
+      return false;
+    inputWords[index] = value;
+    writeInput(index, value != 0);
+    return true;
+  }
 
-    if (inputs.get(index) != state) {
-      inputs.set(index, state);
+  // Sets the unknown plane of one pin, returning whether it changed.
+  // Pins 64 and up are two-state only.
+  private boolean writeUnknown(int index, long unknown) {
+    if (index >= 64)
+      return false;
+    boolean wordBacked = inputWords != null && index < inputWords.length;
+    if (!wordBacked && (unknown & ~1L) != 0) {
+      growInputWords(index);
+      wordBacked = true;
+    }
+    long bit = 1L << index;
+    if (wordBacked) {
+      if (inputUnknownWords[index] == unknown)
+        return false;
+      inputUnknownWords[index] = unknown;
+    } else if (((inputUnknownBits & bit) != 0) == (unknown != 0)) {
+      return false;
+    }
+    inputUnknownBits = (unknown != 0) ? inputUnknownBits | bit : inputUnknownBits & ~bit;
+    return true;
+  }
 
-      if (SettingsManager.isPropagationDelayEnabled()) {
-        // Priority: Custom Delay -> Global Delay
-        int d = (customDelay != null) ? customDelay : SettingsManager.getGateDelay();
-        Simulator.schedule(this::update, d);
-      } else {
-        update();
-      }
+  // Sets one pin, returning whether it changed
+  private boolean writeInput(int index, boolean state) {
+    if (index < 64) {
+      long bit = 1L << index;
+      if (((inputBits & bit) != 0) == state)
+        return false;
+      inputBits ^= bit;
+      return true;
+    }
+    int word = (index >>> 6) - 1;
+    if (wideInputBits == null || word >= wideInputBits.length) {
+      if (!state)
+        return false; // Unallocated pins already read as low
+      wideInputBits = Arrays.copyOf(wideInputBits != null ? wideInputBits : new long[0], word + 1);
     }
+    long bit = 1L << index;
+    if (((wideInputBits[word] & bit) != 0) == state)
+      return false;
+    wideInputBits[word] ^= bit;
+    return true;
   }
 
   public boolean getInput(int index) {
-    if (index >= 0 && index < inputs.size())
-      return inputs.get(index);
-    return false;
+    if (index < 0)
+      return false;
+    if (index < 64)
+      return (inputBits & (1L << index)) != 0;
+    int word = (index >>> 6) - 1;
+    return wideInputBits != null && word < wideInputBits.length && (wideInputBits[word] & (1L << index)) != 0;
+  }
+
+  /**
+   * Whole value on a pin: the bus value for bus pins, 0 or 1 otherwise.
+   */
+  public long getInputValue(int index) {
+    if (inputWords != null && index >= 0 && index < inputWords.length)
+      return inputWords[index];
+    return getInput(index) ? 1L : 0L;
+  }
+
+  /**
+   * Pins 0-63 as a bitmask (bit i = input i), for mask-based evaluation.
+   * A bus pin shows as set when any of its bits is.
+   */
+  public long getInputBits() {
+    return inputBits;
+  }
+
+  /**
+   * Unknown plane of a pin (see FourState), 0 in two-state runs.
+   */
+  public long getInputUnknown(int index) {
+    if (inputWords != null && index >= 0 && index < inputWords.length)
+      return inputUnknownWords[index];
+    return (index >= 0 && index < 64) ? (inputUnknownBits >>> index) & 1 : 0;
+  }
+
+  /**
+   * Pins 0-63 that are X or Z, as a bitmask alongside getInputBits. Zero
+   * whenever every input is a known 0 or 1, so gates only take the
+   * four-state path when it matters.
+   */
+  public long getInputUnknownBits() {
+    return inputUnknownBits;
   }
 
   protected void setInputCount(int count) {
     this.inputCount = count;
-    while (inputs.size() < count)
-      inputs.add(false);
   }
 
   public int getInputCount() {
     return inputCount;
   }
 
+  /**
+   * Bits carried by an input pin. Connections are only made between pins
+   * of the same width.
+   */
+  public int getInputWidth(int index) {
+    return 1;
+  }
+
+  /**
+   * Bits carried by an output pin, and so by the wire it drives.
+   */
+  public int getOutputWidth(int index) {
+    return 1;
+  }
+
   public Wire getOutputWire() {
     return getOutputWire(0);
   }
@@ -103,6 +327,33 @@ public abstract class Component {
     while (outputWires.size() <= index)
       outputWires.add(null);
     outputWires.set(index, w);
+    if (w != null)
+      w.setEngine(engine);
+    engine.invalidateTopology();
+  }
+
+  /**
+   * Adds every component this one drives to {@code out}. The engine uses
+   * it to order zero-delay evaluation, so components that pass signals on
+   * by means other than their output wires override it.
+   */
+  public void collectFanout(List<Component> out) {
+    for (Wire w : outputWires) {
+      if (w == null)
+        continue;
+      for (Wire.PortConnection pc : w.getDestinations())
+        out.add(pc.component);
+    }
+  }
+
+  /**
+   * Whether the outputs only change on a clock edge. Zero-delay settling
+   * evaluates such components ahead of the logic they are fed by (see
+   * SimulationEngine), so flip-flops sharing a clock all sample their
+   * inputs before any of them has changed.
+   */
+  public boolean isClocked() {
+    return false;
   }
 
   public List<Wire> getAllOutputs() {
@@ -134,6 +385,22 @@ public abstract class Component {
 
   public abstract void update();
 
+  /**
+   * Internal (sequential) state packed into a word, for engines and
+   * snapshots that keep their own copy of the simulation state.
+   * Stateless components return 0.
+   */
+  public long getStateBits() {
+    return 0;
+  }
+
+  /**
+   * Restores state produced by {@link #getStateBits()} without triggering
+   * an update.
+   */
+  public void restoreStateBits(long bits) {
+  }
+
   public Component makeCopy() {
     try {
       Component copy = this.getClass().getConstructor(String.class).newInstance(this.name);
@@ -4,8 +4,10 @@ import java.util.*;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import uk.ac.cam.jml229.logic.components.bus.*;
 import uk.ac.cam.jml229.logic.components.gates.*;
 import uk.ac.cam.jml229.logic.components.io.*;
+import uk.ac.cam.jml229.logic.components.mem.*;
 import uk.ac.cam.jml229.logic.components.seq.*;
 import uk.ac.cam.jml229.logic.components.misc.TextLabel; // Import the new component
 
@@ -38,6 +40,14 @@ public enum ComponentRegistry {
   JK_FF("JK_FF", "JK-FF", "Sequential", () -> new JKFlipFlop("JK-FF")),
   T_FF("T_FF", "T-FF", "Sequential", () -> new TFlipFlop("T-FF")),
 
+  // --- Memory ---
+  RAM("RAM", "RAM", "Memory", () -> new Ram("RAM")),
+  ROM("ROM", "ROM", "Memory", () -> new Rom("ROM")),
+
+  // --- Buses ---
+  SPLITTER("SPLITTER", "Split", "Buses", () -> new Splitter("SPLIT")),
+  MERGER("MERGER", "Merge", "Buses", () -> new Merger("MERGE")),
+
   // --- Misc ---
   LABEL("LABEL", "Label", "Misc", () -> new TextLabel());
 
@@ -86,12 +96,14 @@ public enum ComponentRegistry {
 
   // --- Category Helper ---
   public static Map<String, List<ComponentRegistry>> getByCategory() {
-    // Returns a map ensuring order: IO -> Basic -> Advanced -> Sequential -> Misc
+    // Returns a map ensuring order: IO -> Basic -> Advanced -> Sequential -> Memory -> Buses -> Misc
     Map<String, List<ComponentRegistry>> map = new LinkedHashMap<>();
     map.put("IO / Probes", new ArrayList<>());
     map.put("Basic Gates", new ArrayList<>());
     map.put("Advanced", new ArrayList<>());
     map.put("Sequential", new ArrayList<>());
+    map.put("Memory", new ArrayList<>());
+    map.put("Buses", new ArrayList<>());
     map.put("Misc", new ArrayList<>());
 
     for (ComponentRegistry type : values()) {
@@ -1,79 +1,102 @@
 package uk.ac.cam.jml229.logic.components;
 
-import java.util.ArrayList;
-import java.util.List;
 import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.FourState;
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
 import uk.ac.cam.jml229.logic.core.Wire;
-import uk.ac.cam.jml229.logic.components.io.*;
+import uk.ac.cam.jml229.logic.core.compiled.ChipNetlist;
 
+/**
+ * An instance of a custom chip. The definition (template and compiled
+ * netlist) is shared between copies; each instance only holds its state
+ * vector, so heap use grows with state bits rather than with the number
+ * of objects inside the chip.
+ */
 public class CustomComponent extends Component {
 
-  private final Circuit innerCircuit;
-  private final List<Switch> internalInputs = new ArrayList<>();
-  private final List<OutputProbe> internalOutputs = new ArrayList<>();
+  private final ChipDefinition definition;
+  private final long[] state; // Laid out by definition.getNetlist()
+  private final ChipNetlist.Pending pending = new ChipNetlist.Pending();
 
   public CustomComponent(String name, Circuit templateCircuit) {
-    super(name);
+    this(new ChipDefinition(name, templateCircuit));
+  }
 
-    // Deep Copy the template so this chip works independently
-    this.innerCircuit = templateCircuit.cloneCircuit();
+  public CustomComponent(ChipDefinition definition) {
+    super(definition.getName());
+    this.definition = definition;
+    this.state = definition.getNetlist().newState();
 
-    // Find the IO components inside the copy
-    for (Component c : innerCircuit.getComponents()) {
-      if (c instanceof Switch) {
-        internalInputs.add((Switch) c);
-      } else if (c instanceof OutputProbe) {
-        internalOutputs.add((OutputProbe) c);
-      }
-    }
+    // Configure External Pins
+    setInputCount(definition.getInputPins().size());
+  }
 
-    // Sort pins by Y position to match visual layout
-    internalInputs.sort((a, b) -> Integer.compare(a.getY(), b.getY()));
-    internalOutputs.sort((a, b) -> Integer.compare(a.getY(), b.getY()));
+  public ChipDefinition getDefinition() {
+    return definition;
+  }
 
-    // Configure External Pins
-    setInputCount(internalInputs.size());
+  /**
+   * The shared template circuit. Read-only: it is used for saving and
+   * inspection, not simulated.
+   */
+  public Circuit getInnerCircuit() {
+    return definition.getTemplate();
+  }
 
-    for (int i = 0; i < internalOutputs.size(); i++) {
-      final int index = i;
-      OutputProbe probe = internalOutputs.get(i);
+  /**
+   * This instance's state vector (see {@link ChipNetlist}). Exposed so
+   * compiled backends can inline the chip and sync it back.
+   */
+  public long[] getState() {
+    return state;
+  }
 
-      probe.setOnStateChanged(() -> {
-        boolean val = probe.getState();
-        Wire w = getOutputWire(index);
-        if (w != null) {
-          w.setSignal(val);
-        }
-      });
-    }
+  /**
+   * Evaluations inside the chip still waiting out their gate delays.
+   */
+  public ChipNetlist.Pending getPending() {
+    return pending;
   }
 
-  public Circuit getInnerCircuit() {
-    return innerCircuit;
+  /**
+   * The pins add no delay of their own: the gates inside carry the timing,
+   * as when a compiled engine inlines the chip.
+   */
+  @Override
+  protected int inputDelay(SimulationConfig config) {
+    return 0;
   }
 
   @Override
   public Component makeCopy() {
-    return new CustomComponent(getName(), this.innerCircuit);
+    CustomComponent copy = new CustomComponent(definition);
+    copy.setName(getName());
+    return copy;
   }
 
   @Override
   public int getOutputCount() {
-    return Math.max(1, internalOutputs.size());
+    return Math.max(1, definition.getOutputPins().size());
   }
 
   @Override
   public void update() {
-    // Bridge In: External Input -> Internal Switch
-    // When these switches toggle, they queue events in the Simulator.
-    // Eventually, those events ripple to the OutputProbes, triggering the listeners
-    // above.
-    for (int i = 0; i < internalInputs.size(); i++) {
-      if (i < getInputCount()) {
-        boolean val = getInput(i);
-        internalInputs.get(i).toggle(val);
-      }
+    // Run the chip up to the current tick, then drive the output wires
+    ChipNetlist netlist = definition.getNetlist();
+    boolean settled = netlist.update(state, pending, this);
+    if (!settled)
+      getEngine().reportOscillation(this);
+    // Outputs of a chip stopped mid-oscillation are meaningless: X when
+    // the run can show it
+    boolean unknown = !settled && getEngine().getConfig().fourState();
+    for (int i = 0; i < netlist.getOutputCount(); i++) {
+      Wire w = getOutputWire(i);
+      if (w == null)
+        continue;
+      if (unknown)
+        w.setLevel(FourState.X);
+      else
+        w.setSignal(netlist.getOutput(state, i));
     }
-
   }
 }
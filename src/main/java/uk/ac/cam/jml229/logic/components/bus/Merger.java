@@ -0,0 +1,55 @@
+package uk.ac.cam.jml229.logic.components.bus;
+
+import uk.ac.cam.jml229.logic.components.BusComponent;
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.core.Wire;
+
+/**
+ * Gathers single-bit wires into a bus: input i becomes bit i of the output,
+ * so a floating or X pin leaves that bit unknown in a four-state run.
+ */
+public class Merger extends Component implements BusComponent {
+
+  private int width = 8;
+
+  public Merger(String name) {
+    super(name);
+    setInputCount(width);
+  }
+
+  @Override
+  public int getBusWidth() {
+    return width;
+  }
+
+  @Override
+  public void setBusWidth(int width) {
+    this.width = Math.max(2, Math.min(64, width));
+    setInputCount(this.width);
+  }
+
+  @Override
+  public int getOutputWidth(int index) {
+    return width;
+  }
+
+  @Override
+  public void update() {
+    // Pins are single bits, so the input masks already are the bus planes
+    Wire out = getOutputWire();
+    if (out == null)
+      return;
+    long unknown = getInputUnknownBits();
+    if (unknown == 0)
+      out.setValue(getInputBits());
+    else
+      out.setState(getInputBits(), unknown); // Keeps X and Z pins unknown
+  }
+
+  @Override
+  public Component makeCopy() {
+    Merger copy = (Merger) super.makeCopy();
+    copy.setBusWidth(width);
+    return copy;
+  }
+}
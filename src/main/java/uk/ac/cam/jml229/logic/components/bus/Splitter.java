@@ -0,0 +1,61 @@
+package uk.ac.cam.jml229.logic.components.bus;
+
+import uk.ac.cam.jml229.logic.components.BusComponent;
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.core.Wire;
+
+/**
+ * Breaks a bus into single-bit wires: output i carries bit i of the input,
+ * including its unknown plane in a four-state run.
+ */
+public class Splitter extends Component implements BusComponent {
+
+  private int width = 8;
+
+  public Splitter(String name) {
+    super(name);
+    setInputCount(1);
+  }
+
+  @Override
+  public int getBusWidth() {
+    return width;
+  }
+
+  @Override
+  public void setBusWidth(int width) {
+    this.width = Math.max(2, Math.min(64, width));
+  }
+
+  @Override
+  public int getInputWidth(int index) {
+    return width;
+  }
+
+  @Override
+  public int getOutputCount() {
+    return width;
+  }
+
+  @Override
+  public void update() {
+    long value = getInputValue(0);
+    long unknown = getInputUnknown(0);
+    for (int i = 0; i < width; i++) {
+      Wire w = getOutputWire(i);
+      if (w == null)
+        continue;
+      if (unknown == 0)
+        w.setSignal(((value >>> i) & 1) != 0);
+      else
+        w.setState((value >>> i) & 1, (unknown >>> i) & 1); // X and Z bits pass through
+    }
+  }
+
+  @Override
+  public Component makeCopy() {
+    Splitter copy = (Splitter) super.makeCopy();
+    copy.setBusWidth(width);
+    return copy;
+  }
+}
@@ -9,6 +9,6 @@ public class AndGate extends LogicGate {
   @Override
   public void updateLogic() {
     // Start with TRUE. If any input is FALSE, the result becomes FALSE.
-    state = reduceInputs(true, (acc, val) -> acc && val);
+    state = evaluate(GateKind.AND);
   }
 }
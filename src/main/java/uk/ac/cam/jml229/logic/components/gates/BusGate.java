@@ -0,0 +1,113 @@
+package uk.ac.cam.jml229.logic.components.gates;
+
+import uk.ac.cam.jml229.logic.components.BusComponent;
+import uk.ac.cam.jml229.logic.components.Component;
+
+/**
+ * Base class for gates that drive one output from a GateKind.
+ *
+ * With a bus width above 1 every pin carries a word and the gate works
+ * bitwise across it, like a row of single-bit gates sharing one event.
+ */
+public abstract class BusGate extends Component implements BusComponent {
+
+  protected boolean state = false;
+
+  // Bits per pin, and the output word when wider than one
+  private int width = 1;
+  private long word = 0;
+
+  // Unknown plane of the output in a four-state run (see FourState)
+  private long unknown = 0;
+  private long[] values, unknowns;
+  private final long[] unknownOut = new long[1];
+
+  protected BusGate(String name) {
+    super(name);
+  }
+
+  /**
+   * Evaluates all inputs at once from the packed input mask.
+   *
+   * @param kind The gate semantics to apply (e.g. GateKind.AND)
+   */
+  protected boolean evaluate(GateKind kind) {
+    if (getInputUnknownBits() != 0)
+      return evaluateFourState(kind);
+    unknown = 0;
+    if (width == 1)
+      return kind.evaluate(getInputBits(), getInputCount());
+    long acc = kind.identity();
+    for (int i = 0; i < getInputCount(); i++)
+      acc = kind.combine(acc, getInputValue(i));
+    word = kind.finish(acc) & (-1L >>> (64 - width));
+    return word != 0;
+  }
+
+  /**
+   * Evaluates with some input X or Z; the output bits the known inputs
+   * cannot decide become X.
+   */
+  private boolean evaluateFourState(GateKind kind) {
+    int count = getInputCount();
+    if (width == 1) {
+      int level = kind.evaluate(getInputBits(), getInputUnknownBits(), count);
+      unknown = level >>> 1;
+      return (level & 1) != 0;
+    }
+    if (values == null || values.length < count) {
+      values = new long[count];
+      unknowns = new long[count];
+    }
+    for (int i = 0; i < count; i++) {
+      values[i] = getInputValue(i);
+      unknowns[i] = getInputUnknown(i);
+    }
+    long mask = -1L >>> (64 - width);
+    word = kind.evaluateWords(values, unknowns, count, unknownOut) & mask;
+    unknown = unknownOut[0] & mask;
+    return word != 0;
+  }
+
+  @Override
+  public int getBusWidth() {
+    return width;
+  }
+
+  @Override
+  public void setBusWidth(int width) {
+    this.width = Math.max(1, Math.min(64, width));
+  }
+
+  @Override
+  public int getInputWidth(int index) {
+    return width;
+  }
+
+  @Override
+  public int getOutputWidth(int index) {
+    return width;
+  }
+
+  @Override
+  public void update() {
+    updateLogic();
+    if (getOutputWire() != null) {
+      if (unknown != 0)
+        getOutputWire().setState(width == 1 ? (state ? 1L : 0L) : word, unknown);
+      else if (width == 1)
+        getOutputWire().setSignal(state);
+      else
+        getOutputWire().setValue(word);
+    }
+  }
+
+  @Override
+  public Component makeCopy() {
+    BusGate copy = (BusGate) super.makeCopy();
+    copy.setBusWidth(width);
+    return copy;
+  }
+
+  protected abstract void updateLogic();
+}
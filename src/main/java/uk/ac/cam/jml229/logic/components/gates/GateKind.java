@@ -0,0 +1,166 @@
+package uk.ac.cam.jml229.logic.components.gates;
+
+import uk.ac.cam.jml229.logic.core.FourState;
+
+/**
+ * Shared gate semantics, expressed on 64-bit words.
+ *
+ * Every gate is a fold of its inputs with one bitwise operator, started
+ * from an identity value and optionally inverted at the end. Treating a
+ * boolean as an all-zeros/all-ones word gives the ordinary gate; treating
+ * each bit as an independent test vector evaluates 64 patterns at once.
+ * The component classes and the bit-parallel evaluator both go through
+ * this table so their behaviour cannot drift apart.
+ *
+ * The four-state forms work on value and unknown bit-planes (see
+ * FourState): a result bit is known when the known inputs already decide
+ * it (a known 0 into an AND), and X otherwise.
+ */
+public enum GateKind {
+  AND(-1L, false),
+  OR(0L, false),
+  XOR(0L, false),
+  NAND(-1L, true),
+  NOR(0L, true),
+  NOT(0L, true),
+  BUFFER(0L, false);
+
+  private final long identity;
+  private final boolean inverted;
+
+  GateKind(long identity, boolean inverted) {
+    this.identity = identity;
+    this.inverted = inverted;
+  }
+
+  public long identity() {
+    return identity;
+  }
+
+  public boolean isInverted() {
+    return inverted;
+  }
+
+  /**
+   * Folds one more input word into the accumulator.
+   */
+  public long combine(long acc, long in) {
+    return switch (this) {
+      case AND, NAND -> acc & in;
+      case XOR -> acc ^ in;
+      default -> acc | in; // OR, NOR, and the single-input NOT/BUFFER
+    };
+  }
+
+  public long finish(long acc) {
+    return inverted ? ~acc : acc;
+  }
+
+  /**
+   * Evaluates the gate over words gathered by index, e.g. one word per
+   * net in a bit-parallel simulation.
+   *
+   * @param values word per signal
+   * @param index  signal index of each input
+   * @param from   first input position in {@code index}
+   * @param to     one past the last input position
+   */
+  public long evaluate(long[] values, int[] index, int from, int to) {
+    long acc = identity;
+    switch (this) {
+      case AND, NAND -> {
+        for (int i = from; i < to; i++)
+          acc &= values[index[i]];
+      }
+      case XOR -> {
+        for (int i = from; i < to; i++)
+          acc ^= values[index[i]];
+      }
+      default -> {
+        for (int i = from; i < to; i++)
+          acc |= values[index[i]];
+      }
+    }
+    return finish(acc);
+  }
+
+  /**
+   * Evaluates the gate on packed inputs (bit i = input i) with a mask
+   * compare or a parity count, so the cost does not depend on the number
+   * of inputs.
+   *
+   * @param count number of inputs in use, at most 64
+   */
+  public boolean evaluate(long inputs, int count) {
+    long mask = (count >= 64) ? -1L : (1L << count) - 1;
+    long in = inputs & mask;
+    boolean result = switch (this) {
+      case AND, NAND -> in == mask;
+      case XOR -> (Long.bitCount(in) & 1) != 0;
+      default -> in != 0;
+    };
+    return result != inverted;
+  }
+
+  /**
+   * Four-state form of {@link #evaluate(long, int)}.
+   *
+   * @return a FourState level: ZERO, ONE or X
+   */
+  public int evaluate(long values, long unknowns, int count) {
+    long mask = (count >= 64) ? -1L : (1L << count) - 1;
+    long unknown = unknowns & mask;
+    long ones = values & ~unknown & mask;
+    long zeros = ~values & ~unknown & mask;
+    int result = switch (this) {
+      case AND, NAND -> (zeros != 0) ? 0 : (ones == mask) ? 1 : -1;
+      case XOR -> (unknown != 0) ? -1 : Long.bitCount(ones) & 1;
+      default -> (ones != 0) ? 1 : (zeros == mask) ? 0 : -1;
+    };
+    if (result < 0)
+      return FourState.X;
+    return inverted ? result ^ 1 : result;
+  }
+
+  /**
+   * Four-state fold of whole words (bit i of every input forms one gate).
+   *
+   * @param unknownOut receives the unknown plane of the result in [0]
+   * @return the value plane of the result
+   */
+  public long evaluateWords(long[] values, long[] unknowns, int count, long[] unknownOut) {
+    long anyZero = 0, anyOne = 0, allZero = -1L, allOne = -1L, anyUnknown = 0, parity = 0;
+    for (int i = 0; i < count; i++) {
+      long ones = values[i] & ~unknowns[i];
+      long zeros = ~values[i] & ~unknowns[i];
+      anyZero |= zeros;
+      anyOne |= ones;
+      allZero &= zeros;
+      allOne &= ones;
+      anyUnknown |= unknowns[i];
+      parity ^= values[i];
+    }
+    long knownOne, knownZero;
+    switch (this) {
+      case AND, NAND -> {
+        knownOne = allOne;
+        knownZero = anyZero;
+      }
+      case XOR -> {
+        knownOne = ~anyUnknown & parity;
+        knownZero = ~anyUnknown & ~parity;
+      }
+      default -> {
+        knownOne = anyOne;
+        knownZero = allZero;
+      }
+    }
+    if (inverted) {
+      long t = knownOne;
+      knownOne = knownZero;
+      knownZero = t;
+    }
+    unknownOut[0] = ~(knownOne | knownZero);
+    return ~knownZero; // X reads 1 on the value plane
+  }
+}
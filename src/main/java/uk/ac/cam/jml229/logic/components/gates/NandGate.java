@@ -8,6 +8,6 @@ public class NandGate extends LogicGate {
   @Override
   public void updateLogic() {
     // NAND is just NOT (AND)
-    state = !reduceInputs(true, (acc, val) -> acc && val);
+    state = evaluate(GateKind.NAND);
   }
 }
@@ -8,6 +8,6 @@ public class NorGate extends LogicGate {
   @Override
   public void updateLogic() {
     // NOR is just NOT (OR)
-    state = !reduceInputs(false, (acc, val) -> acc || val);
+    state = evaluate(GateKind.NOR);
   }
 }
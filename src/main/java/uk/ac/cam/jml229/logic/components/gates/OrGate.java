@@ -8,6 +8,6 @@ public class OrGate extends LogicGate {
   @Override
   public void updateLogic() {
     // Start with FALSE. If any input is TRUE, the result becomes TRUE.
-    state = reduceInputs(false, (acc, val) -> acc || val);
+    state = evaluate(GateKind.OR);
   }
 }
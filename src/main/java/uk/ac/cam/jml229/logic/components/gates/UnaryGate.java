@@ -1,10 +1,6 @@
 package uk.ac.cam.jml229.logic.components.gates;
 
-import uk.ac.cam.jml229.logic.components.Component;
-
-public abstract class UnaryGate extends Component {
-
-  protected boolean state = false;
+public abstract class UnaryGate extends BusGate {
 
   public UnaryGate(String name) {
     super(name);
@@ -14,14 +10,4 @@ public abstract class UnaryGate extends Component {
   protected boolean getInputA() {
     return getInput(0);
   }
-
-  @Override
-  public void update() {
-    updateLogic();
-    if (getOutputWire() != null) {
-      getOutputWire().setSignal(state);
-    }
-  }
-
-  protected abstract void updateLogic();
 }
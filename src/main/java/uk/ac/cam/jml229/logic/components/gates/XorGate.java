@@ -8,6 +8,6 @@ public class XorGate extends LogicGate {
   @Override
   public void updateLogic() {
     // XOR is effectively a partity check, so start with FALSE
-    state = reduceInputs(false, (acc, val) -> acc ^ val);
+    state = evaluate(GateKind.XOR);
   }
 }
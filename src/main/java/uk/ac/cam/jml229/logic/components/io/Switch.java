@@ -35,4 +35,14 @@ public class Switch extends Component {
   public boolean getState() {
     return state;
   }
+
+  @Override
+  public long getStateBits() {
+    return state ? 1L : 0L;
+  }
+
+  @Override
+  public void restoreStateBits(long bits) {
+    state = (bits & 1) != 0;
+  }
 }
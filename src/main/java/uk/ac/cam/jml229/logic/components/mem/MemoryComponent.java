@@ -0,0 +1,154 @@
+package uk.ac.cam.jml229.logic.components.mem;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import uk.ac.cam.jml229.logic.components.BusComponent;
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.core.Wire;
+
+/**
+ * Base class for RAM and ROM: an address bus in, a data bus out, and the
+ * words themselves in one flat little-endian buffer.
+ *
+ * Each word takes the smallest power-of-two number of bytes that holds the
+ * data width (1, 2, 4 or 8), so a 64K x 8 memory is 64 KB of buffer rather
+ * than 64K objects. The buffer lives outside the Java heap: a direct
+ * buffer for RAM, or the memory-mapped image file for a ROM. The bus
+ * width (see BusComponent) is the data width.
+ */
+public abstract class MemoryComponent extends Component implements BusComponent {
+
+  public static final int MAX_ADDRESS_WIDTH = 24; // 16M words
+
+  private int addressWidth = 8;
+  private int dataWidth = 8;
+  protected ByteBuffer contents = allocate(0);
+
+  protected MemoryComponent(String name) {
+    super(name);
+  }
+
+  // --- Geometry ---
+
+  public int getAddressWidth() {
+    return addressWidth;
+  }
+
+  /**
+   * Changes the number of address bits (1-24). Like the bus width, only
+   * change it while the component is unconnected.
+   */
+  public void setAddressWidth(int width) {
+    this.addressWidth = Math.max(1, Math.min(MAX_ADDRESS_WIDTH, width));
+    resized();
+  }
+
+  @Override
+  public int getBusWidth() {
+    return dataWidth;
+  }
+
+  @Override
+  public void setBusWidth(int width) {
+    this.dataWidth = Math.max(1, Math.min(64, width));
+    resized();
+  }
+
+  public long getWordCount() {
+    return 1L << addressWidth;
+  }
+
+  /** Bytes each word takes in the buffer: 1, 2, 4 or 8. */
+  public int getBytesPerWord() {
+    return bytesPerWord(dataWidth);
+  }
+
+  static int bytesPerWord(int dataWidth) {
+    return (dataWidth <= 8) ? 1 : (dataWidth <= 16) ? 2 : (dataWidth <= 32) ? 4 : 8;
+  }
+
+  /** Called after either width changes. */
+  protected abstract void resized();
+
+  // --- Word Access ---
+
+  /**
+   * Reads one word. Addresses past the end of the buffer (e.g. beyond a
+   * short ROM image) read 0.
+   */
+  public long read(long address) {
+    ByteBuffer buf = contents;
+    int bytes = getBytesPerWord();
+    long offset = address * bytes;
+    if (address < 0 || offset + bytes > buf.capacity())
+      return 0;
+    int i = (int) offset;
+    long word = switch (bytes) {
+      case 1 -> buf.get(i) & 0xFFL;
+      case 2 -> buf.getShort(i) & 0xFFFFL;
+      case 4 -> buf.getInt(i) & 0xFFFFFFFFL;
+      default -> buf.getLong(i);
+    };
+    return word & mask();
+  }
+
+  protected void write(long address, long value) {
+    ByteBuffer buf = contents;
+    int bytes = getBytesPerWord();
+    long offset = address * bytes;
+    if (address < 0 || offset + bytes > buf.capacity())
+      return;
+    int i = (int) offset;
+    value &= mask();
+    switch (bytes) {
+      case 1 -> buf.put(i, (byte) value);
+      case 2 -> buf.putShort(i, (short) value);
+      case 4 -> buf.putInt(i, (int) value);
+      default -> buf.putLong(i, value);
+    }
+  }
+
+  protected long mask() {
+    return -1L >>> (64 - dataWidth);
+  }
+
+  /** Zeroed off-heap buffer in the byte order every memory uses. */
+  protected static ByteBuffer allocate(long bytes) {
+    return ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+  }
+
+  // --- Pins ---
+
+  @Override
+  public int getInputWidth(int index) {
+    return (index == 0) ? addressWidth : 1;
+  }
+
+  @Override
+  public int getOutputWidth(int index) {
+    return dataWidth;
+  }
+
+  /**
+   * Drives the word at the current address, or X in a four-state run when
+   * the address is not fully known.
+   */
+  protected void driveOutput() {
+    Wire out = getOutputWire();
+    if (out == null)
+      return;
+    if (getInputUnknown(0) != 0)
+      out.setState(mask(), mask());
+    else
+      out.setValue(read(getInputValue(0)));
+  }
+
+  @Override
+  public Component makeCopy() {
+    MemoryComponent copy = (MemoryComponent) super.makeCopy();
+    copy.setAddressWidth(addressWidth);
+    copy.setBusWidth(dataWidth);
+    return copy;
+  }
+}
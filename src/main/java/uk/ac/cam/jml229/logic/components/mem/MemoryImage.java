@@ -0,0 +1,152 @@
+package uk.ac.cam.jml229.logic.components.mem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Loads ROM images through a memory-mapped FileChannel.
+ *
+ * A binary image is used in place: its pages are mapped read-only, so even
+ * a multi-megabyte image is ready at once, is paged in only where it is
+ * read, and never gets copied onto the heap. Words are little-endian, each
+ * taking {@link MemoryComponent#getBytesPerWord()} bytes.
+ *
+ * A hex image ({@code .hex} or {@code .txt}) is a list of hexadecimal
+ * words separated by whitespace or commas, with {@code #} comments and an
+ * optional Logisim {@code v2.0 raw} header line. As in Logisim,
+ * {@code N*value} stands for {@code value} repeated N times, with N in
+ * decimal. It is parsed straight out
+ * of the mapped file into an off-heap buffer.
+ */
+public final class MemoryImage {
+
+  private MemoryImage() {
+  }
+
+  public static boolean isHex(Path file) {
+    String name = file.getFileName().toString().toLowerCase();
+    return name.endsWith(".hex") || name.endsWith(".txt");
+  }
+
+  /**
+   * Maps an image for a memory of the given data width.
+   */
+  public static ByteBuffer load(Path file, int dataWidth) throws IOException {
+    MappedByteBuffer mapped = map(file);
+    if (!isHex(file))
+      return mapped.order(ByteOrder.LITTLE_ENDIAN);
+    return parseHex(mapped, dataWidth);
+  }
+
+  private static MappedByteBuffer map(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE)
+        throw new IOException("Image is too large to map: " + file);
+      // The mapping stays valid after the channel closes
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  // Two passes over the mapped text: count the words, then store them
+  private static ByteBuffer parseHex(ByteBuffer text, int dataWidth) throws IOException {
+    int bytes = MemoryComponent.bytesPerWord(dataWidth);
+    long words = scanHex(text, null, bytes);
+    if (words * bytes > Integer.MAX_VALUE)
+      throw new IOException("Hex image is too large");
+    ByteBuffer out = MemoryComponent.allocate(words * bytes);
+    scanHex(text, out, bytes);
+    return out;
+  }
+
+  /**
+   * Walks the hex words in {@code text}, storing them in {@code out} when it
+   * is not null, and returns how many there are.
+   */
+  private static long scanHex(ByteBuffer text, ByteBuffer out, int bytes) throws IOException {
+    int limit = text.limit();
+    int i = skipHeader(text);
+    long count = 0;
+    while (i < limit) {
+      int ch = text.get(i);
+      if (ch == '#') {
+        while (i < limit && text.get(i) != '\n')
+          i++;
+        continue;
+      }
+      if (Character.digit(ch, 16) < 0) {
+        if (!Character.isWhitespace(ch) && ch != ',')
+          throw new IOException("Invalid character in hex image at byte " + i);
+        i++;
+        continue;
+      }
+      int start = i;
+      long word = readHex(text, i);
+      i = skipDigits(text, i);
+      long repeat = 1;
+      if (i < limit && text.get(i) == '*') {
+        // Run length: the number before the star is a decimal count
+        repeat = 0;
+        for (int j = start; j < i; j++) {
+          int d = Character.digit(text.get(j), 10);
+          if (d < 0 || repeat > (Integer.MAX_VALUE - d) / 10)
+            throw new IOException("Invalid repeat count in hex image at byte " + start);
+          repeat = repeat * 10 + d;
+        }
+        i++;
+        if (i >= limit || Character.digit(text.get(i), 16) < 0)
+          throw new IOException("Missing value after '*' in hex image at byte " + i);
+        word = readHex(text, i);
+        i = skipDigits(text, i);
+      }
+      if (out != null) {
+        for (long r = 0; r < repeat; r++) {
+          int at = (int) ((count + r) * bytes);
+          switch (bytes) {
+            case 1 -> out.put(at, (byte) word);
+            case 2 -> out.putShort(at, (short) word);
+            case 4 -> out.putInt(at, (int) word);
+            default -> out.putLong(at, word);
+          }
+        }
+      }
+      count += repeat;
+    }
+    return count;
+  }
+
+  // The hex word starting at byte i
+  private static long readHex(ByteBuffer text, int i) throws IOException {
+    long word = 0;
+    int digits = 0;
+    for (; i < text.limit() && Character.digit(text.get(i), 16) >= 0; i++, digits++)
+      word = (word << 4) | Character.digit(text.get(i), 16);
+    if (digits > 16)
+      throw new IOException("Hex word longer than 64 bits at byte " + i);
+    return word;
+  }
+
+  private static int skipDigits(ByteBuffer text, int i) {
+    while (i < text.limit() && Character.digit(text.get(i), 16) >= 0)
+      i++;
+    return i;
+  }
+
+  // Start of the data, past a "v2.0 raw" header if there is one
+  private static int skipHeader(ByteBuffer text) {
+    String header = "v2.0 raw";
+    if (text.limit() < header.length())
+      return 0;
+    for (int i = 0; i < header.length(); i++)
+      if (text.get(i) != header.charAt(i))
+        return 0;
+    int i = header.length();
+    while (i < text.limit() && text.get(i) != '\n')
+      i++;
+    return i;
+  }
+}
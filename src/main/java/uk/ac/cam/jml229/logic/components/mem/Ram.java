@@ -0,0 +1,105 @@
+package uk.ac.cam.jml229.logic.components.mem;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Random access memory with an asynchronous read port and a clocked write
+ * port.
+ *
+ * Inputs: 0 address (bus), 1 data in (bus), 2 write enable, 3 clock. The
+ * output always shows the word at the current address; on a rising clock
+ * edge with write enable high the data input is stored there first.
+ * Contents start zeroed and are not saved with the circuit.
+ */
+public class Ram extends MemoryComponent {
+
+  private boolean lastClock = false;
+
+  // Largest buffer allocated so far; contents is a view of it
+  private ByteBuffer storage = null;
+
+  public Ram(String name) {
+    super(name);
+    setInputCount(4);
+    resized();
+  }
+
+  /**
+   * Direct buffers are only freed when the GC gets round to them, so a
+   * resize keeps the current buffer (and its words) when the size is
+   * unchanged, and clears a view of a large enough earlier one rather than
+   * allocating again.
+   */
+  @Override
+  protected void resized() {
+    long bytes = getWordCount() * getBytesPerWord();
+    if (storage != null && contents.capacity() == bytes)
+      return;
+    if (storage == null || storage.capacity() < bytes) {
+      storage = allocate(bytes);
+      contents = storage;
+      return;
+    }
+    contents = storage.slice(0, (int) bytes).order(ByteOrder.LITTLE_ENDIAN);
+    byte[] zeros = new byte[(int) Math.min(bytes, 8192)];
+    for (int i = 0; i < bytes; i += zeros.length)
+      contents.put(i, zeros, 0, (int) Math.min(zeros.length, bytes - i));
+  }
+
+  @Override
+  public int getInputWidth(int index) {
+    return (index == 1) ? getBusWidth() : super.getInputWidth(index);
+  }
+
+  @Override
+  public void update() {
+    boolean clk = getInput(3);
+    // Nothing is stored when the address or write enable is X or Z
+    if (clk && !lastClock && getInput(2) && getInputUnknown(2) == 0 && getInputUnknown(0) == 0)
+      write(getInputValue(0), getInputValue(1));
+    lastClock = clk;
+    driveOutput();
+  }
+
+  @Override
+  public long getStateBits() {
+    return lastClock ? 2L : 0L;
+  }
+
+  @Override
+  public void restoreStateBits(long bits) {
+    lastClock = (bits & 2) != 0;
+  }
+
+  // --- Checkpoints ---
+
+  /**
+   * Writes the buffer's bytes, for SimulationCheckpoint.
+   */
+  public void writeContents(DataOutput out) throws IOException {
+    byte[] chunk = new byte[8192];
+    ByteBuffer buf = contents;
+    for (int i = 0; i < buf.capacity(); i += chunk.length) {
+      int n = Math.min(chunk.length, buf.capacity() - i);
+      buf.get(i, chunk, 0, n);
+      out.write(chunk, 0, n);
+    }
+  }
+
+  /**
+   * Reads bytes written by {@link #writeContents} back into the buffer.
+   */
+  public void readContents(DataInput in) throws IOException {
+    byte[] chunk = new byte[8192];
+    ByteBuffer buf = contents;
+    for (int i = 0; i < buf.capacity(); i += chunk.length) {
+      int n = Math.min(chunk.length, buf.capacity() - i);
+      in.readFully(chunk, 0, n);
+      buf.put(i, chunk, 0, n);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package uk.ac.cam.jml229.logic.components.mem;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import uk.ac.cam.jml229.logic.components.Component;
+
+/**
+ * Read-only memory: input 0 is the address bus, the output the word stored
+ * there.
+ *
+ * Contents come from an image file (see MemoryImage), which the circuit
+ * file refers to by path. Without an image every word reads 0. Copies
+ * share the mapped image.
+ */
+public class Rom extends MemoryComponent {
+
+  private Path image = null;
+
+  public Rom(String name) {
+    super(name);
+    setInputCount(1);
+  }
+
+  public Path getImage() {
+    return image;
+  }
+
+  /**
+   * Maps an image file as the ROM's contents.
+   *
+   * @throws IOException if the file cannot be read or is not a valid image
+   */
+  public void loadImage(Path file) throws IOException {
+    contents = MemoryImage.load(file, getBusWidth());
+    image = file;
+  }
+
+  @Override
+  protected void resized() {
+    // Word size follows the data width, so a hex image is parsed again
+    if (image != null && MemoryImage.isHex(image)) {
+      try {
+        loadImage(image);
+      } catch (IOException e) {
+        System.err.println("Failed to reload ROM image: " + e.getMessage());
+      }
+    }
+  }
+
+  @Override
+  public void update() {
+    driveOutput();
+  }
+
+  @Override
+  public Component makeCopy() {
+    Rom copy = (Rom) super.makeCopy();
+    copy.image = image;
+    copy.contents = contents;
+    return copy;
+  }
+}
@@ -1,11 +1,28 @@
 package uk.ac.cam.jml229.logic.components.seq;
 
 import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.core.SimulationEngine;
+import uk.ac.cam.jml229.logic.core.Simulator;
 
+/**
+ * Square wave source.
+ *
+ * With no period set the clock follows the global clock speed and toggles
+ * on every Circuit.tick(). With a period (in engine ticks) it runs on its
+ * own: it is high for the first {@code dutyCycle} percent of each period,
+ * shifted by {@code phase} ticks, and schedules each edge on the engine's
+ * event queue, so clocks with different periods keep their relative
+ * timing and idle clocks cost nothing between edges.
+ */
 public class Clock extends Component {
 
   private boolean state = false;
 
+  // Self-timed mode, period 0 = follow the global clock
+  private int period = 0;
+  private int phase = 0;
+  private int dutyCycle = 50;
+
   public Clock(String name) {
     super(name);
     setInputCount(0); // Clocks generate signals, they don't take inputs
@@ -13,21 +30,112 @@ public class Clock extends Component {
 
   /**
    * Called by the Simulation Timer (in Circuit.tick).
-   * Toggles state and pushes to output.
+   * Toggles state and pushes to output. Self-timed clocks ignore it.
    */
   public void tick() {
+    if (period > 0)
+      return;
     state = !state;
     update();
   }
 
   @Override
   public void update() {
+    if (period > 0) {
+      // Level follows the engine tick; also books the next edge
+      SimulationEngine engine = getEngine();
+      long now = engine.getTick();
+      long t = Math.floorMod(now - phase, (long) period);
+      int high = highTicks();
+      state = t < high;
+      // Not yet in a circuit (e.g. timing set while loading): the shared
+      // default engine never runs, so the first edge is booked by setEngine
+      if (engine != Simulator.getDefault())
+        engine.scheduleClock(this, now + (state ? high - t : period - t));
+    }
     if (getOutputWire() != null) {
       getOutputWire().setSignal(state);
     }
   }
 
+  // --- Timing ---
+
+  /**
+   * Sets the clock's own timing.
+   *
+   * @param period    ticks per cycle (at least 2), or 0 to follow the global
+   *                  clock speed
+   * @param phase     ticks from tick 0 to the first rising edge
+   * @param dutyCycle percentage of each period spent high
+   */
+  public void setTiming(int period, int phase, int dutyCycle) {
+    checkTiming(period, dutyCycle);
+    this.period = period;
+    this.phase = phase;
+    this.dutyCycle = dutyCycle;
+    if (period > 0)
+      update();
+  }
+
+  /**
+   * Throws IllegalArgumentException unless setTiming would accept these.
+   */
+  public static void checkTiming(int period, int dutyCycle) {
+    if (period != 0 && period < 2)
+      throw new IllegalArgumentException("Clock period must be 0 or at least 2 ticks: " + period);
+    if (dutyCycle < 1 || dutyCycle > 99)
+      throw new IllegalArgumentException("Duty cycle must be 1-99%: " + dutyCycle);
+  }
+
+  public int getPeriod() {
+    return period;
+  }
+
+  public int getPhase() {
+    return phase;
+  }
+
+  public int getDutyCycle() {
+    return dutyCycle;
+  }
+
+  public boolean isSelfTimed() {
+    return period > 0;
+  }
+
+  // High time in ticks, keeping both halves at least one tick long
+  private int highTicks() {
+    int high = (int) Math.round(period * dutyCycle / 100.0);
+    return Math.max(1, Math.min(period - 1, high));
+  }
+
+  @Override
+  public void setEngine(SimulationEngine engine) {
+    super.setEngine(engine);
+    if (period > 0)
+      update(); // Book the first edge on the new timeline
+  }
+
   public boolean getState() {
     return state;
   }
+
+  @Override
+  public long getStateBits() {
+    return state ? 1L : 0L;
+  }
+
+  @Override
+  public void restoreStateBits(long bits) {
+    state = (bits & 1) != 0;
+  }
+
+  @Override
+  public Component makeCopy() {
+    Clock copy = (Clock) super.makeCopy();
+    copy.period = period;
+    copy.phase = phase;
+    copy.dutyCycle = dutyCycle;
+    return copy;
+  }
 }
@@ -1,11 +1,13 @@
 package uk.ac.cam.jml229.logic.components.seq;
 
 import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.core.FourState;
 
 public class DFlipFlop extends Component {
 
   private boolean state = false; // The stored bit (Q)
   private boolean lastClock = false; // To detect rising edge
+  private boolean unknown = true; // Never latched a known value (X in four-state runs)
 
   public DFlipFlop(String name) {
     super(name);
@@ -19,6 +21,11 @@ public class DFlipFlop extends Component {
     setOutputWire(1, null);
   }
 
+  @Override
+  public boolean isClocked() {
+    return true;
+  }
+
   @Override
   public void update() {
     boolean d = getInput(0);
@@ -27,13 +34,33 @@ public class DFlipFlop extends Component {
     // RISING EDGE DETECTOR (Low -> High)
     if (clk && !lastClock) {
       state = d; // Latch the data
+      unknown = getInputUnknown(0) != 0;
     }
     lastClock = clk;
 
     // Update outputs
+    if (unknown && getEngine().getConfig().fourState()) {
+      if (getOutputWire(0) != null)
+        getOutputWire(0).setLevel(FourState.X);
+      if (getOutputWire(1) != null)
+        getOutputWire(1).setLevel(FourState.X);
+      return;
+    }
     if (getOutputWire(0) != null)
       getOutputWire(0).setSignal(state);
     if (getOutputWire(1) != null)
       getOutputWire(1).setSignal(!state);
   }
+
+  @Override
+  public long getStateBits() {
+    return (state ? 1L : 0L) | (lastClock ? 2L : 0L) | (unknown ? 4L : 0L);
+  }
+
+  @Override
+  public void restoreStateBits(long bits) {
+    state = (bits & 1) != 0;
+    lastClock = (bits & 2) != 0;
+    unknown = (bits & 4) != 0;
+  }
 }
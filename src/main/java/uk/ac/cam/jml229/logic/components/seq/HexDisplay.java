@@ -42,18 +42,26 @@ public class HexDisplay extends Component {
   }
 
   public boolean isSegmentOn(int segmentIndex) {
+    return isSegmentOn(getInputBits(), segmentIndex);
+  }
+
+  /**
+   * Segment state for a given set of input pins (see getInputBits), so the
+   * renderer can draw from a snapshot.
+   */
+  public static boolean isSegmentOn(long inputBits, int segmentIndex) {
     if (segmentIndex < 0 || segmentIndex > 6)
       return false;
 
     // Calculate 4-bit value
     int val = 0;
-    if (getInput(0))
+    if ((inputBits & 1) != 0)
       val += 8; // MSB
-    if (getInput(1))
+    if ((inputBits & 2) != 0)
       val += 4;
-    if (getInput(2))
+    if ((inputBits & 4) != 0)
       val += 2;
-    if (getInput(3))
+    if ((inputBits & 8) != 0)
       val += 1; // LSB
 
     return PATTERNS[val][segmentIndex] == 1;
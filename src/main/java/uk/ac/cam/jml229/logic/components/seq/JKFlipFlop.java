@@ -1,10 +1,12 @@
 package uk.ac.cam.jml229.logic.components.seq;
 
 import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.core.FourState;
 
 public class JKFlipFlop extends Component {
   private boolean state = false;
   private boolean lastClock = false;
+  private boolean unknown = true; // Never latched a known value (X in four-state runs)
 
   public JKFlipFlop(String name) {
     super(name);
@@ -14,6 +16,11 @@ public class JKFlipFlop extends Component {
     setOutputWire(1, null); // !Q
   }
 
+  @Override
+  public boolean isClocked() {
+    return true;
+  }
+
   @Override
   public void update() {
     boolean j = getInput(0);
@@ -22,19 +29,43 @@ public class JKFlipFlop extends Component {
 
     // Rising Edge
     if (clk && !lastClock) {
-      if (j && k)
+      if (getInputUnknown(0) != 0 || getInputUnknown(2) != 0)
+        unknown = true;
+      else if (j && k)
         state = !state; // Toggle
-      else if (j)
+      else if (j) {
         state = true; // Set
-      else if (k)
+        unknown = false;
+      } else if (k) {
         state = false; // Reset
+        unknown = false;
+      }
       // else hold
     }
     lastClock = clk;
 
+    if (unknown && getEngine().getConfig().fourState()) {
+      if (getOutputWire(0) != null)
+        getOutputWire(0).setLevel(FourState.X);
+      if (getOutputWire(1) != null)
+        getOutputWire(1).setLevel(FourState.X);
+      return;
+    }
     if (getOutputWire(0) != null)
       getOutputWire(0).setSignal(state);
     if (getOutputWire(1) != null)
       getOutputWire(1).setSignal(!state);
   }
+
+  @Override
+  public long getStateBits() {
+    return (state ? 1L : 0L) | (lastClock ? 2L : 0L) | (unknown ? 4L : 0L);
+  }
+
+  @Override
+  public void restoreStateBits(long bits) {
+    state = (bits & 1) != 0;
+    lastClock = (bits & 2) != 0;
+    unknown = (bits & 4) != 0;
+  }
 }
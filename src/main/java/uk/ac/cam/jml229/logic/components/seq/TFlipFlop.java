@@ -1,10 +1,12 @@
 package uk.ac.cam.jml229.logic.components.seq;
 
 import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.core.FourState;
 
 public class TFlipFlop extends Component {
   private boolean state = false;
   private boolean lastClock = false;
+  private boolean unknown = true; // Never latched a known value (X in four-state runs)
 
   public TFlipFlop(String name) {
     super(name);
@@ -14,20 +16,46 @@ public class TFlipFlop extends Component {
     setOutputWire(1, null);
   }
 
+  @Override
+  public boolean isClocked() {
+    return true;
+  }
+
   @Override
   public void update() {
     boolean t = getInput(0);
     boolean clk = getInput(1);
 
     if (clk && !lastClock) {
-      if (t)
-        state = !state; // Toggle
+      if (getInputUnknown(0) != 0)
+        unknown = true;
+      else if (t)
+        state = !state; // Toggle (an X stays X)
     }
     lastClock = clk;
 
+    if (unknown && getEngine().getConfig().fourState()) {
+      if (getOutputWire(0) != null)
+        getOutputWire(0).setLevel(FourState.X);
+      if (getOutputWire(1) != null)
+        getOutputWire(1).setLevel(FourState.X);
+      return;
+    }
     if (getOutputWire(0) != null)
       getOutputWire(0).setSignal(state);
     if (getOutputWire(1) != null)
       getOutputWire(1).setSignal(!state);
   }
+
+  @Override
+  public long getStateBits() {
+    return (state ? 1L : 0L) | (lastClock ? 2L : 0L) | (unknown ? 4L : 0L);
+  }
+
+  @Override
+  public void restoreStateBits(long bits) {
+    state = (bits & 1) != 0;
+    lastClock = (bits & 2) != 0;
+    unknown = (bits & 4) != 0;
+  }
 }
@@ -2,24 +2,131 @@ package uk.ac.cam.jml229.logic.core;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 import uk.ac.cam.jml229.logic.components.Component;
 import uk.ac.cam.jml229.logic.components.seq.Clock;
 
+/**
+ * Components and the wires between them.
+ *
+ * Besides its lists the circuit keeps indexes up to date: the wire driving
+ * each input pin, and the position of each component, clock and wire in
+ * its list. Checking whether a pin is free, connecting and disconnecting
+ * therefore cost time in the number of connections involved rather than in
+ * the size of the circuit. Removal leaves a hole in the lists that is
+ * closed, keeping everything in insertion order (and with it drawing, hit
+ * and save order), when the outermost edit finishes; removing many
+ * components inside one {@link #edit} costs a single pass over the lists.
+ * Connections must be made through this class (or exist before their
+ * components are added) to be indexed.
+ *
+ * An unconnected input reads 0, or Z in a four-state run (see FourState).
+ */
 public class Circuit {
   // The core data
   private final List<Component> components = new ArrayList<>();
   private final List<Wire> wires = new ArrayList<>();
+  // Clocks among the components, so tick() need not scan everything
+  private final List<Clock> clocks = new ArrayList<>();
+
+  // --- Connectivity Indexes ---
+  // Wire feeding each input pin, by component (null = unconnected)
+  private final Map<Component, Wire[]> drivers = new IdentityHashMap<>();
+  // Position of each component, clock and wire in its list
+  private final Map<Component, Integer> componentIndex = new IdentityHashMap<>();
+  private final Map<Clock, Integer> clockIndex = new IdentityHashMap<>();
+  private final Map<Wire, Integer> wireIndex = new IdentityHashMap<>();
+
+  // Each circuit simulates on its own timeline
+  private SimulationEngine engine;
+
+  // Bumped on every structural edit so compiled forms know to rebuild
+  private int structureVersion = 0;
+
+  // Runs structural edits (see setEditGuard)
+  private Consumer<Runnable> editGuard = Runnable::run;
+  // Nesting depth of guarded edits, and whether removals left holes
+  private int editDepth = 0;
+  private boolean gaps = false;
+
+  public Circuit() {
+    this(new SimulationEngine());
+  }
+
+  public Circuit(SimulationEngine engine) {
+    this.engine = engine;
+  }
+
+  public SimulationEngine getEngine() {
+    return engine;
+  }
+
+  /**
+   * Routes every structural edit through {@code guard}, which must run it
+   * before returning. A SimulationThread installs one that parks the
+   * simulation while the edit runs, so edits made from the UI thread never
+   * overlap a simulation step.
+   */
+  public void setEditGuard(Consumer<Runnable> guard) {
+    this.editGuard = (guard != null) ? guard : Runnable::run;
+  }
+
+  /**
+   * Runs an edit that reshapes components already in the circuit (input
+   * count, bus width, memory contents) under the edit guard, and counts it
+   * as a structural edit.
+   */
+  public void edit(Runnable edit) {
+    guarded(() -> {
+      edit.run();
+      structureVersion++;
+    });
+  }
+
+  // Runs an edit under the guard, closing the holes once the outermost one ends
+  private void guarded(Runnable edit) {
+    editGuard.accept(() -> {
+      editDepth++;
+      try {
+        edit.run();
+      } finally {
+        if (--editDepth == 0)
+          closeGaps();
+      }
+    });
+  }
+
+  /**
+   * Moves every component and wire onto another engine.
+   * Pending events already queued on the old engine are not migrated.
+   */
+  public void setEngine(SimulationEngine engine) {
+    guarded(() -> moveToEngine(engine));
+  }
+
+  private void moveToEngine(SimulationEngine engine) {
+    closeGaps();
+    this.engine = engine;
+    for (Component c : components) {
+      c.setEngine(engine);
+    }
+    for (Wire w : wires) {
+      w.setEngine(engine);
+    }
+  }
 
   /**
    * Advances the simulation by one step.
-   * Called by the global Timer.
+   * Called by the global Timer. Self-timed clocks run off the engine's
+   * event queue instead and ignore this.
    */
   public void tick() {
-    for (Component c : components) {
-      if (c instanceof Clock) {
-        ((Clock) c).tick();
-      }
+    for (Clock c : clocks) {
+      c.tick();
     }
   }
 
@@ -29,10 +136,29 @@ public class Circuit {
    * it ensures those wires are tracked too.
    */
   public void addComponent(Component c) {
-    components.add(c);
+    guarded(() -> doAddComponent(c));
+  }
+
+  private void doAddComponent(Component c) {
+    if (!track(components, componentIndex, c))
+      return; // Already in the circuit
+    structureVersion++;
+    if (c instanceof Clock clock)
+      track(clocks, clockIndex, clock);
+    c.setEngine(engine);
     for (Wire w : c.getAllOutputs()) {
-      if (!wires.contains(w)) {
-        wires.add(w);
+      trackWire(w);
+    }
+    if (engine.getConfig().fourState()) {
+      // Float the free pins, and sync pins this component already drives
+      // (their owners may have floated them when pasted first)
+      for (int i = 0; i < c.getInputCount(); i++) {
+        if (getDriver(c, i) == null)
+          release(c, i);
+      }
+      for (Wire w : c.getAllOutputs()) {
+        for (Wire.PortConnection pc : w.getDestinations())
+          pc.component.setInputState(pc.inputIndex, w.getValue(), w.getUnknown());
       }
     }
   }
@@ -41,33 +167,69 @@ public class Circuit {
    * Removes a component and safely cleans up all connected wires.
    */
   public void removeComponent(Component c) {
+    guarded(() -> doRemoveComponent(c));
+  }
+
+  private void doRemoveComponent(Component c) {
     // 1. Remove wires driven BY this component (All Outputs)
-    List<Wire> outputWires = new ArrayList<>();
-    for (Wire w : wires) {
-      if (w.getSource() == c) {
-        outputWires.add(w);
-      }
-    }
+    for (Wire w : c.getAllOutputs()) {
+      if (!wireIndex.containsKey(w))
+        continue;
 
-    // --- Turn off the destinations before deleting the wire ---
-    for (Wire w : outputWires) {
+      // --- Turn off the destinations before deleting the wire ---
       for (Wire.PortConnection pc : w.getDestinations()) {
-        // Reset the destination input to FALSE so it doesn't stay "Green"
-        pc.component.setInput(pc.inputIndex, false);
+        // Reset the destination input so it doesn't stay "Green"
+        release(pc.component, pc.inputIndex);
         // Force the destination to recalculate (e.g. LED turns dark)
         pc.component.update();
+        if (getDriver(pc.component, pc.inputIndex) == w)
+          drivers.get(pc.component)[pc.inputIndex] = null;
       }
+      untrackWire(w);
     }
 
-    wires.removeAll(outputWires);
-
     // Remove wires driving INTO this component (Inputs)
-    for (Wire w : wires) {
-      w.getDestinations().removeIf(pc -> pc.component == c);
+    Wire[] in = drivers.remove(c);
+    if (in != null) {
+      for (Wire w : in) {
+        if (w != null)
+          w.getDestinations().removeIf(pc -> pc.component == c);
+      }
     }
 
-    // Remove component
-    components.remove(c);
+    // Remove component (and drop any events still addressed to it)
+    structureVersion++;
+    untrack(components, componentIndex, c);
+    if (c instanceof Clock clock)
+      untrack(clocks, clockIndex, clock);
+    engine.unregister(c);
+  }
+
+  /**
+   * Re-reads the simulation settings and sets every unconnected input to
+   * match them (Z in a four-state run, 0 otherwise), then re-evaluates each
+   * component so outputs such as uninitialised flip-flops follow the mode.
+   */
+  public void refreshUndrivenInputs() {
+    guarded(() -> {
+      closeGaps();
+      engine.refreshConfig();
+      for (Component c : components) {
+        for (int i = 0; i < c.getInputCount(); i++) {
+          if (getDriver(c, i) == null)
+            release(c, i);
+        }
+        c.update();
+      }
+    });
+  }
+
+  // What an input reads once nothing drives it
+  private void release(Component c, int inputIndex) {
+    if (engine.getConfig().fourState())
+      c.setInputState(inputIndex, 0, -1L >>> (64 - c.getInputWidth(inputIndex)));
+    else
+      c.setInputValue(inputIndex, 0);
   }
 
   /**
@@ -81,26 +243,31 @@ public class Circuit {
    * Advanced Connection (Source Output Index -> Dest Input Index)
    */
   public boolean addConnection(Component source, int sourceOutputIndex, Component dest, int inputIndex) {
+    boolean[] added = { false };
+    guarded(() -> added[0] = doAddConnection(source, sourceOutputIndex, dest, inputIndex));
+    return added[0];
+  }
+
+  private boolean doAddConnection(Component source, int sourceOutputIndex, Component dest, int inputIndex) {
     if (source == dest)
       return false;
 
     // Check availability
-    for (Wire w : wires) {
-      for (Wire.PortConnection pc : w.getDestinations()) {
-        if (pc.component == dest && pc.inputIndex == inputIndex) {
-          return false; // Input occupied
-        }
-      }
-    }
+    if (getDriver(dest, inputIndex) != null)
+      return false; // Input occupied
+
+    // Buses only connect to pins of the same width
+    if (source.getOutputWidth(sourceOutputIndex) != dest.getInputWidth(inputIndex))
+      return false;
 
     // Get or Create Wire at specific index
     Wire w = source.getOutputWire(sourceOutputIndex);
     boolean isNewWire = false;
 
     if (w == null) {
-      w = new Wire(source);
+      w = new Wire(source, source.getOutputWidth(sourceOutputIndex));
       source.setOutputWire(sourceOutputIndex, w);
-      wires.add(w);
+      trackWire(w);
       isNewWire = true;
     }
 
@@ -110,7 +277,9 @@ public class Circuit {
     }
 
     w.addDestination(dest, inputIndex);
-    dest.setInput(inputIndex, w.getSignal());
+    setDriver(dest, inputIndex, w);
+    structureVersion++;
+    dest.setInputState(inputIndex, w.getValue(), w.getUnknown());
 
     dest.update();
 
@@ -121,30 +290,101 @@ public class Circuit {
    * Removes a specific connection (Wire segment).
    */
   public void removeConnection(Component dest, int inputIndex) {
+    guarded(() -> doRemoveConnection(dest, inputIndex));
+  }
+
+  private void doRemoveConnection(Component dest, int inputIndex) {
     // Find the wire connected to this specific input
-    for (Wire w : wires) {
-      boolean wasConnected = false;
+    Wire w = getDriver(dest, inputIndex);
+    if (w == null)
+      return;
 
-      // Check if this wire hits the target
-      for (Wire.PortConnection pc : w.getDestinations()) {
-        if (pc.component == dest && pc.inputIndex == inputIndex) {
-          wasConnected = true;
-          break;
-        }
-      }
+    // Reset signal to FALSE (The Bug Fix you already had!)
+    release(dest, inputIndex);
+
+    // RECOMMENDATION: Update component so it visually changes color immediately
+    dest.update();
 
-      if (wasConnected) {
-        // Reset signal to FALSE (The Bug Fix you already had!)
-        dest.setInput(inputIndex, false);
+    // Remove the physical connection
+    w.removeDestination(dest, inputIndex);
+    drivers.get(dest)[inputIndex] = null;
+    structureVersion++;
+  }
+
+  // --- Index Maintenance ---
 
-        // RECOMMENDATION: Update component so it visually changes color immediately
-        dest.update();
+  /**
+   * The wire feeding an input pin, or null if it is unconnected.
+   */
+  public Wire getDriver(Component c, int inputIndex) {
+    Wire[] d = drivers.get(c);
+    return (d != null && inputIndex >= 0 && inputIndex < d.length) ? d[inputIndex] : null;
+  }
 
-        // Remove the physical connection
-        w.removeDestination(dest, inputIndex);
-        return;
+  private void setDriver(Component c, int inputIndex, Wire w) {
+    Wire[] d = drivers.get(c);
+    if (d == null || inputIndex >= d.length) {
+      Wire[] grown = new Wire[Math.max(inputIndex + 1, c.getInputCount())];
+      if (d != null)
+        System.arraycopy(d, 0, grown, 0, d.length);
+      drivers.put(c, d = grown);
+    }
+    d[inputIndex] = w;
+  }
+
+  // Adds a wire (and the pins it already feeds) unless it is tracked
+  private void trackWire(Wire w) {
+    if (!track(wires, wireIndex, w))
+      return;
+    for (Wire.PortConnection pc : w.getDestinations()) {
+      setDriver(pc.component, pc.inputIndex, w);
+    }
+  }
+
+  private void untrackWire(Wire w) {
+    untrack(wires, wireIndex, w);
+  }
+
+  // Appends an item and records its position; false if already present
+  private static <T> boolean track(List<T> list, Map<T, Integer> index, T item) {
+    if (index.putIfAbsent(item, list.size()) != null)
+      return false;
+    list.add(item);
+    return true;
+  }
+
+  // Leaves a hole where the item was (see closeGaps)
+  private <T> void untrack(List<T> list, Map<T, Integer> index, T item) {
+    Integer i = index.remove(item);
+    if (i == null)
+      return;
+    list.set(i, null);
+    gaps = true;
+  }
+
+  // Slides the remaining items down over the holes, keeping their order
+  private void closeGaps() {
+    if (!gaps)
+      return;
+    gaps = false;
+    compact(components, componentIndex);
+    compact(clocks, clockIndex);
+    compact(wires, wireIndex);
+  }
+
+  private static <T> void compact(List<T> list, Map<T, Integer> index) {
+    int kept = 0;
+    for (int i = 0; i < list.size(); i++) {
+      T item = list.get(i);
+      if (item == null)
+        continue;
+      if (kept != i) {
+        list.set(kept, item);
+        index.put(item, kept);
       }
+      kept++;
     }
+    list.subList(kept, list.size()).clear();
   }
 
   /**
@@ -154,14 +394,14 @@ public class Circuit {
     Circuit copy = new Circuit();
     java.util.Map<Component, Component> oldToNew = new java.util.HashMap<>();
 
-    for (Component original : this.components) {
+    for (Component original : getComponents()) {
       Component clone = original.makeCopy();
       clone.setPosition(original.getX(), original.getY());
       copy.addComponent(clone);
       oldToNew.put(original, clone);
     }
 
-    for (Wire originalWire : this.wires) {
+    for (Wire originalWire : getWires()) {
       Component oldSource = originalWire.getSource();
       if (oldSource == null)
         continue;
@@ -191,15 +431,44 @@ public class Circuit {
   // --- Accessors ---
 
   public List<Component> getComponents() {
+    if (editDepth > 0)
+      closeGaps(); // Read from inside an edit
     return Collections.unmodifiableList(components);
   }
 
   public List<Wire> getWires() {
+    if (editDepth > 0)
+      closeGaps();
     return Collections.unmodifiableList(wires);
   }
 
+  public List<Clock> getClocks() {
+    if (editDepth > 0)
+      closeGaps();
+    return Collections.unmodifiableList(clocks);
+  }
+
+  /**
+   * Counter that changes whenever components or connections are added or
+   * removed. Compiled representations compare it to detect stale copies.
+   */
+  public int getStructureVersion() {
+    return structureVersion;
+  }
+
   public void clear() {
+    guarded(this::doClear);
+  }
+
+  private void doClear() {
+    structureVersion++;
     components.clear();
     wires.clear();
+    clocks.clear();
+    drivers.clear();
+    componentIndex.clear();
+    clockIndex.clear();
+    wireIndex.clear();
+    gaps = false;
   }
 }
@@ -0,0 +1,71 @@
+package uk.ac.cam.jml229.logic.core;
+
+/**
+ * Pending-event store used by {@link SimulationEngine}.
+ *
+ * Events are plain primitives: an absolute tick, an opaque key (the engine
+ * packs event kind, component id and pin into it) and a 64-bit value fixed
+ * at the time the event was scheduled. Implementations keep their storage
+ * in pooled arrays so that a warmed-up simulation allocates nothing.
+ * Events due on the same tick must come back in the order they were added,
+ * so results never depend on queue internals.
+ */
+public interface EventScheduler {
+
+  /** Returned by {@link #pollDue} when no event is due. Never a valid key. */
+  long NONE = -1L;
+
+  /**
+   * Available scheduler implementations.
+   */
+  enum Type {
+    HEAP,
+    TIMING_WHEEL;
+
+    public EventScheduler create() {
+      return switch (this) {
+        case HEAP -> new HeapScheduler();
+        case TIMING_WHEEL -> new TimingWheelScheduler();
+      };
+    }
+  }
+
+  /**
+   * Adds an event due at an absolute tick (never earlier than the last
+   * tick passed to {@link #pollDue}). Keys must be non-negative.
+   */
+  void add(long tick, long key, long value);
+
+  /**
+   * Removes the oldest event due at or before the given tick and returns
+   * its key, or {@link #NONE} if nothing is due. The event's value is then
+   * available from {@link #polledValue()}.
+   */
+  long pollDue(long now);
+
+  /**
+   * Value of the event most recently returned by {@link #pollDue}.
+   */
+  long polledValue();
+
+  /**
+   * Visits every pending event in due order (by tick, then insertion
+   * order) without removing any, so a snapshot can be replayed into an
+   * empty scheduler with {@link #add}.
+   */
+  void forEach(EventVisitor visitor);
+
+  /**
+   * Receives events from {@link #forEach}.
+   */
+  @FunctionalInterface
+  interface EventVisitor {
+    void accept(long tick, long key, long value);
+  }
+
+  int size();
+
+  boolean isEmpty();
+
+  void clear();
+}
@@ -0,0 +1,45 @@
+package uk.ac.cam.jml229.logic.core;
+
+/**
+ * Four-state signal levels, stored as two bit-planes.
+ *
+ * Every signal keeps a value plane (the ordinary two-state bits) and an
+ * unknown plane. A set unknown bit marks the bit as X or Z, and its value
+ * bit tells the two apart:
+ *
+ * <pre>
+ *   unknown value  level
+ *      0      0     0
+ *      0      1     1
+ *      1      0     Z  (floating)
+ *      1      1     X  (unknown, e.g. an uninitialised flip-flop)
+ * </pre>
+ *
+ * A two-state run never sets an unknown bit, so its planes stay zero and
+ * the value plane alone is exactly the two-state signal. Gates read Z as X
+ * and only produce 0, 1 or X. A single bit travels as a level
+ * ({@code unknown << 1 | value}), which fits where a boolean used to go.
+ */
+public final class FourState {
+
+  public static final int ZERO = 0;
+  public static final int ONE = 1;
+  public static final int Z = 2;
+  public static final int X = 3;
+
+  private FourState() {
+  }
+
+  public static int level(long value, long unknown, int bit) {
+    return (int) ((value >>> bit) & 1) | (int) (((unknown >>> bit) & 1) << 1);
+  }
+
+  public static String name(int level) {
+    return switch (level) {
+      case ZERO -> "0";
+      case ONE -> "1";
+      case Z -> "Z";
+      default -> "X";
+    };
+  }
+}
@@ -0,0 +1,147 @@
+package uk.ac.cam.jml229.logic.core;
+
+import java.util.Arrays;
+
+/**
+ * Binary-heap scheduler over parallel primitive arrays. O(log n) per
+ * operation; kept as the reference implementation and for workloads with
+ * very long, sparse delays.
+ */
+public class HeapScheduler implements EventScheduler {
+
+  private long[] ticks = new long[16];
+  private long[] seqs = new long[16];
+  private long[] keys = new long[16];
+  private long[] values = new long[16];
+  private int size = 0;
+  private long nextSeq = 0;
+  private long lastValue = 0;
+
+  @Override
+  public void add(long tick, long key, long value) {
+    if (size == ticks.length)
+      grow();
+    int i = size++;
+    ticks[i] = tick;
+    seqs[i] = nextSeq++;
+    keys[i] = key;
+    values[i] = value;
+    siftUp(i);
+  }
+
+  @Override
+  public long pollDue(long now) {
+    if (size == 0 || ticks[0] > now)
+      return NONE;
+    long key = keys[0];
+    lastValue = values[0];
+    size--;
+    if (size > 0) {
+      move(size, 0);
+      siftDown(0);
+    }
+    return key;
+  }
+
+  @Override
+  public long polledValue() {
+    return lastValue;
+  }
+
+  /**
+   * Tick of the earliest pending event, or Long.MAX_VALUE when empty.
+   */
+  public long peekTick() {
+    return (size == 0) ? Long.MAX_VALUE : ticks[0];
+  }
+
+  @Override
+  public void forEach(EventVisitor visitor) {
+    // The heap array is only partially ordered, so sort a copy of the slots
+    Integer[] order = new Integer[size];
+    for (int i = 0; i < size; i++)
+      order[i] = i;
+    Arrays.sort(order, (a, b) -> before(a, b) ? -1 : (before(b, a) ? 1 : 0));
+    for (int i : order)
+      visitor.accept(ticks[i], keys[i], values[i]);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public void clear() {
+    size = 0;
+    nextSeq = 0;
+  }
+
+  // --- Heap Maintenance ---
+
+  // Orders by tick, then by insertion order so same-tick events stay FIFO
+  private boolean before(int a, int b) {
+    if (ticks[a] != ticks[b])
+      return ticks[a] < ticks[b];
+    return seqs[a] < seqs[b];
+  }
+
+  private void siftUp(int i) {
+    while (i > 0) {
+      int parent = (i - 1) >>> 1;
+      if (!before(i, parent))
+        break;
+      swap(i, parent);
+      i = parent;
+    }
+  }
+
+  private void siftDown(int i) {
+    while (true) {
+      int left = 2 * i + 1;
+      if (left >= size)
+        break;
+      int right = left + 1;
+      int child = (right < size && before(right, left)) ? right : left;
+      if (!before(child, i))
+        break;
+      swap(i, child);
+      i = child;
+    }
+  }
+
+  private void swap(int a, int b) {
+    long t = ticks[a];
+    ticks[a] = ticks[b];
+    ticks[b] = t;
+    t = seqs[a];
+    seqs[a] = seqs[b];
+    seqs[b] = t;
+    t = keys[a];
+    keys[a] = keys[b];
+    keys[b] = t;
+    t = values[a];
+    values[a] = values[b];
+    values[b] = t;
+  }
+
+  private void move(int from, int to) {
+    ticks[to] = ticks[from];
+    seqs[to] = seqs[from];
+    keys[to] = keys[from];
+    values[to] = values[from];
+  }
+
+  private void grow() {
+    int n = ticks.length * 2;
+    ticks = Arrays.copyOf(ticks, n);
+    seqs = Arrays.copyOf(seqs, n);
+    keys = Arrays.copyOf(keys, n);
+    values = Arrays.copyOf(values, n);
+  }
+}
@@ -0,0 +1,116 @@
+package uk.ac.cam.jml229.logic.core;
+
+import java.util.Arrays;
+
+/**
+ * Topological levels for a component graph.
+ *
+ * Strongly connected components (latches, ring oscillators) are found with
+ * Tarjan's algorithm and collapsed; every node then gets the length of the
+ * longest path reaching its SCC, so each edge leaving an SCC goes to a
+ * strictly higher level. Nodes inside a cycle get {@link #CYCLIC} and are
+ * left to ordinary event-driven evaluation.
+ */
+final class Levelizer {
+
+  static final int CYCLIC = -1;
+
+  private Levelizer() {
+  }
+
+  /**
+   * @param n     node count
+   * @param start CSR offsets, successors of node i are succ[start[i]..start[i+1])
+   * @param succ  successor node ids
+   * @return level per node, or CYCLIC
+   */
+  static int[] levelize(int n, int[] start, int[] succ) {
+    // --- Tarjan, iterative so deep netlists cannot overflow the stack ---
+    int[] index = new int[n];
+    int[] low = new int[n];
+    int[] comp = new int[n];
+    boolean[] onStack = new boolean[n];
+    int[] stack = new int[n];
+    int[] callStack = new int[n];
+    int[] edgePos = new int[n];
+    Arrays.fill(index, -1);
+    int sp = 0, nextIndex = 0, compCount = 0;
+
+    for (int root = 0; root < n; root++) {
+      if (index[root] != -1)
+        continue;
+      int depth = 0;
+      callStack[depth++] = root;
+      index[root] = low[root] = nextIndex++;
+      edgePos[root] = start[root];
+      stack[sp++] = root;
+      onStack[root] = true;
+
+      while (depth > 0) {
+        int v = callStack[depth - 1];
+        if (edgePos[v] < start[v + 1]) {
+          int w = succ[edgePos[v]++];
+          if (index[w] == -1) {
+            index[w] = low[w] = nextIndex++;
+            edgePos[w] = start[w];
+            stack[sp++] = w;
+            onStack[w] = true;
+            callStack[depth++] = w;
+          } else if (onStack[w]) {
+            low[v] = Math.min(low[v], index[w]);
+          }
+          continue;
+        }
+        depth--;
+        if (depth > 0) {
+          int parent = callStack[depth - 1];
+          low[parent] = Math.min(low[parent], low[v]);
+        }
+        if (low[v] == index[v]) {
+          int w;
+          do {
+            w = stack[--sp];
+            onStack[w] = false;
+            comp[w] = compCount;
+          } while (w != v);
+          compCount++;
+        }
+      }
+    }
+
+    // --- Group nodes by SCC ---
+    int[] compStart = new int[compCount + 1];
+    for (int v = 0; v < n; v++)
+      compStart[comp[v] + 1]++;
+    for (int c = 0; c < compCount; c++)
+      compStart[c + 1] += compStart[c];
+    int[] members = new int[n];
+    int[] fill = Arrays.copyOf(compStart, compCount);
+    for (int v = 0; v < n; v++)
+      members[fill[comp[v]]++] = v;
+
+    // --- Longest-path levels over the condensation ---
+    // Tarjan emits an SCC only after everything it reaches, so walking the
+    // SCC numbers downwards is a topological order.
+    int[] compLevel = new int[compCount];
+    boolean[] cyclic = new boolean[compCount];
+    for (int c = compCount - 1; c >= 0; c--) {
+      cyclic[c] = compStart[c + 1] - compStart[c] > 1;
+      for (int m = compStart[c]; m < compStart[c + 1]; m++) {
+        int v = members[m];
+        for (int e = start[v]; e < start[v + 1]; e++) {
+          int d = comp[succ[e]];
+          if (d == c)
+            cyclic[c] = true; // Self-loop
+          else if (compLevel[d] <= compLevel[c])
+            compLevel[d] = compLevel[c] + 1;
+        }
+      }
+    }
+
+    int[] level = new int[n];
+    for (int v = 0; v < n; v++)
+      level[v] = cyclic[comp[v]] ? CYCLIC : compLevel[comp[v]];
+    return level;
+  }
+}
@@ -0,0 +1,30 @@
+package uk.ac.cam.jml229.logic.core;
+
+import java.util.List;
+
+import uk.ac.cam.jml229.logic.components.Component;
+
+/**
+ * A feedback loop that failed to settle within one tick: the components of
+ * the oscillating strongly connected component and the wires joining them.
+ *
+ * @param tick       the tick that ran out of event budget
+ * @param components the loop's components
+ * @param wires      output wires of those components that feed back into
+ *                   the loop
+ */
+public record OscillationReport(long tick, List<Component> components, List<Wire> wires) {
+
+  public OscillationReport {
+    components = List.copyOf(components);
+    wires = List.copyOf(wires);
+  }
+
+  public boolean contains(Component c) {
+    return components.contains(c);
+  }
+
+  public boolean contains(Wire w) {
+    return wires.contains(w);
+  }
+}
@@ -0,0 +1,168 @@
+package uk.ac.cam.jml229.logic.core;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import uk.ac.cam.jml229.logic.components.Component;
+
+/**
+ * Lock-free hand-off of signal values from the simulation thread to the
+ * renderer.
+ *
+ * The simulation thread copies wire values, input pins and state bits into
+ * primitive arrays and publishes them as a {@link Frame}; the renderer
+ * picks up the newest frame and reads it while the simulation carries on.
+ * Besides the published frame each side owns one more (the writer's back
+ * buffer and the reader's front buffer), and ownership moves by atomic
+ * swaps, so neither side ever waits or sees a frame being written.
+ *
+ * Frames index components and wires by a layout that is rebuilt whenever
+ * the circuit's structure changes. Anything the layout does not know yet
+ * (a component placed since the last frame) reads its live value.
+ */
+public final class SignalSnapshot {
+
+  private final AtomicReference<Frame> shared = new AtomicReference<>(new Frame());
+  private Frame back = new Frame(); // Writer-owned
+  private Frame front = new Frame(); // Reader-owned
+
+  private long nextSequence = 1;
+  private Layout layout = null;
+
+  // --- Writer Side ---
+
+  /**
+   * Copies the circuit's current values into a new frame and publishes it.
+   * Must be called from the thread that runs the circuit.
+   */
+  public void publish(Circuit circuit) {
+    if (layout == null || layout.circuit != circuit || layout.structureVersion != circuit.getStructureVersion())
+      layout = new Layout(circuit);
+
+    Frame f = back;
+    f.fill(layout, circuit.getEngine().getTick(), nextSequence++);
+    back = shared.getAndSet(f);
+  }
+
+  // --- Reader Side ---
+
+  /**
+   * The newest published frame. It stays valid (and unchanged) until the
+   * next call, so a whole repaint reads one consistent frame. Callers must
+   * share one thread (the EDT) and not keep a frame past their own event.
+   */
+  public Frame acquire() {
+    if (shared.get().sequence > front.sequence)
+      front = shared.getAndSet(front);
+    return front;
+  }
+
+  /**
+   * Values of a circuit at one instant.
+   */
+  public static final class Frame {
+    private Layout layout = null;
+    private long sequence = 0;
+    private long tick = 0;
+    private long[] wireBits = new long[0];
+    private long[] wireUnknownBits = new long[0]; // Wires with any X or Z bit
+    private long[] inputBits = new long[0];
+    private long[] stateBits = new long[0];
+
+    public boolean getSignal(Wire w) {
+      Integer i = (layout != null) ? layout.wireIndex.get(w) : null;
+      if (i == null)
+        return w.getSignal();
+      return (wireBits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * A wire's FourState level for display: like getSignal, but X or Z
+     * when any bit of it is unknown.
+     */
+    public int getLevel(Wire w) {
+      Integer i = (layout != null) ? layout.wireIndex.get(w) : null;
+      int level = getSignal(w) ? 1 : 0;
+      if (i == null)
+        return (w.getUnknown() != 0) ? level | 2 : level;
+      return ((wireUnknownBits[i >>> 6] & (1L << i)) != 0) ? level | 2 : level;
+    }
+
+    /** Input pins 0-63 as a bitmask (see Component.getInputBits). */
+    public long getInputBits(Component c) {
+      Integer i = (layout != null) ? layout.componentIndex.get(c) : null;
+      return (i == null) ? c.getInputBits() : inputBits[i];
+    }
+
+    /** Sequential state (see Component.getStateBits). */
+    public long getStateBits(Component c) {
+      Integer i = (layout != null) ? layout.componentIndex.get(c) : null;
+      return (i == null) ? c.getStateBits() : stateBits[i];
+    }
+
+    public long getTick() {
+      return tick;
+    }
+
+    private void fill(Layout l, long tick, long sequence) {
+      int n = l.components.length;
+      int words = (l.wires.length + 63) >>> 6;
+      if (inputBits.length < n) {
+        inputBits = new long[n];
+        stateBits = new long[n];
+      }
+      if (wireBits.length < words) {
+        wireBits = new long[words];
+        wireUnknownBits = new long[words];
+      }
+
+      for (int i = 0; i < n; i++) {
+        inputBits[i] = l.components[i].getInputBits();
+        stateBits[i] = l.components[i].getStateBits();
+      }
+      for (int w = 0; w < words; w++) {
+        wireBits[w] = 0;
+        wireUnknownBits[w] = 0;
+      }
+      for (int i = 0; i < l.wires.length; i++) {
+        if (l.wires[i].getSignal())
+          wireBits[i >>> 6] |= 1L << i;
+        if (l.wires[i].getUnknown() != 0)
+          wireUnknownBits[i >>> 6] |= 1L << i;
+      }
+
+      this.layout = l;
+      this.tick = tick;
+      this.sequence = sequence;
+    }
+  }
+
+  // Immutable numbering of one circuit structure, shared by its frames
+  private static final class Layout {
+    final Circuit circuit;
+    final int structureVersion;
+    final Component[] components;
+    final Wire[] wires;
+    final Map<Component, Integer> componentIndex = new IdentityHashMap<>();
+    final Map<Wire, Integer> wireIndex = new IdentityHashMap<>();
+
+    Layout(Circuit circuit) {
+      this.circuit = circuit;
+      this.structureVersion = circuit.getStructureVersion();
+      this.components = circuit.getComponents().toArray(new Component[0]);
+      List<Wire> ws = new ArrayList<>();
+      for (int i = 0; i < components.length; i++) {
+        componentIndex.put(components[i], i);
+        for (int o = 0; o < components[i].getOutputCount(); o++) {
+          Wire w = components[i].getOutputWire(o);
+          if (w != null && wireIndex.putIfAbsent(w, ws.size()) == null)
+            ws.add(w);
+        }
+      }
+      this.wires = ws.toArray(new Wire[0]);
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package uk.ac.cam.jml229.logic.core;
+
+/**
+ * Immutable snapshot of the simulation settings.
+ *
+ * Engines capture one at the start of every run, so the hot path reads
+ * plain final fields instead of going to Preferences. The GUI loads the
+ * user's settings into {@link #current()} at startup and swaps in a new
+ * snapshot when they change; headless runs either use the defaults or
+ * pin their own config on an engine with
+ * {@link SimulationEngine#setConfig(SimulationConfig)}.
+ *
+ * @param propagationDelay when false, changes settle with zero delay
+ * @param gateDelay        ticks per component without a custom delay
+ * @param delayModel       how a delayed output treats pulses shorter than
+ *                         the delay
+ * @param eventBudget      events allowed per tick before the engine
+ *                         checks for oscillation, 0 = scaled to the
+ *                         circuit size
+ * @param engine           backend for headless runs
+ * @param fourState        when true, uninitialised state reads as X and
+ *                         undriven inputs as Z (see FourState); the
+ *                         compiled backends stay two-state
+ */
+public record SimulationConfig(
+    boolean propagationDelay,
+    int gateDelay,
+    DelayModel delayModel,
+    int eventBudget,
+    EngineType engine,
+    boolean fourState) {
+
+  public enum DelayModel {
+    /** Every input change reaches the output after the delay. */
+    TRANSPORT,
+    /** Pulses shorter than the delay are swallowed. */
+    INERTIAL
+  }
+
+  public enum EngineType {
+    /** Event-driven simulation on the Component objects. */
+    OBJECT,
+    /** Event-driven simulation on flat arrays (CompiledCircuit). */
+    COMPILED,
+    /** Generated straight-line kernel, zero delay (GeneratedCircuit). */
+    GENERATED,
+    /** Compiled netlist split across threads (PartitionedCircuit). */
+    PARTITIONED
+  }
+
+  /** The settings a fresh installation starts with. */
+  public static final SimulationConfig DEFAULT = new SimulationConfig(true, 1, DelayModel.TRANSPORT, 0,
+      EngineType.OBJECT, false);
+
+  private static volatile SimulationConfig current = DEFAULT;
+
+  public SimulationConfig {
+    if (gateDelay < 0)
+      throw new IllegalArgumentException("Gate delay must not be negative");
+    if (eventBudget < 0)
+      throw new IllegalArgumentException("Event budget must not be negative");
+    if (delayModel == null || engine == null)
+      throw new IllegalArgumentException("Delay model and engine must be set");
+  }
+
+  /**
+   * The application-wide settings, picked up by engines at their next run.
+   */
+  public static SimulationConfig current() {
+    return current;
+  }
+
+  public static void setCurrent(SimulationConfig config) {
+    if (config == null)
+      throw new IllegalArgumentException("Config must not be null");
+    current = config;
+  }
+
+  /**
+   * Delay applied to a component, honouring its custom override.
+   */
+  public int delayFor(Integer customDelay) {
+    if (!propagationDelay)
+      return 0;
+    return (customDelay != null) ? customDelay : gateDelay;
+  }
+
+  // --- Withers ---
+
+  public SimulationConfig withPropagationDelay(boolean enabled) {
+    return new SimulationConfig(enabled, gateDelay, delayModel, eventBudget, engine, fourState);
+  }
+
+  public SimulationConfig withGateDelay(int delay) {
+    return new SimulationConfig(propagationDelay, delay, delayModel, eventBudget, engine, fourState);
+  }
+
+  public SimulationConfig withDelayModel(DelayModel model) {
+    return new SimulationConfig(propagationDelay, gateDelay, model, eventBudget, engine, fourState);
+  }
+
+  public SimulationConfig withEventBudget(int budget) {
+    return new SimulationConfig(propagationDelay, gateDelay, delayModel, budget, engine, fourState);
+  }
+
+  public SimulationConfig withEngine(EngineType type) {
+    return new SimulationConfig(propagationDelay, gateDelay, delayModel, eventBudget, type, fourState);
+  }
+
+  public SimulationConfig withFourState(boolean enabled) {
+    return new SimulationConfig(propagationDelay, gateDelay, delayModel, eventBudget, engine, enabled);
+  }
+}
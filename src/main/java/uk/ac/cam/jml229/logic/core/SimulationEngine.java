@@ -0,0 +1,969 @@
+package uk.ac.cam.jml229.logic.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.cam.jml229.logic.components.Component;
+
+/**
+ * A self-contained event-driven simulation timeline.
+ * Every Circuit owns one, so independent circuits (or headless batch jobs)
+ * keep their own event queue and tick counter and can run side by side on
+ * separate threads. A single engine is not thread-safe.
+ *
+ * Signal propagation is encoded as primitive events (tick, component id,
+ * pin, value) rather than closures, so the steady-state path
+ * Wire.setSignal -> Component.setInput -> update allocates nothing and the
+ * delivered value is the one captured when the event was scheduled.
+ *
+ * With propagation delay disabled, components whose inputs change are
+ * marked dirty instead and settled in topological level order, so a gate
+ * is evaluated once per input change however many reconvergent paths lead
+ * to it. The levels are recomputed lazily whenever wiring changes; gates
+ * inside feedback loops (latches, oscillators) keep using events. Wires
+ * into clocked components (flip-flops) are left out of the order, which
+ * puts every flip-flop on level 0, and values reaching a flip-flop while a
+ * level is being evaluated are held back until that level is done: on a
+ * clock edge every flip-flop samples its inputs before any of their
+ * outputs has moved, as they do with delay.
+ *
+ * Each tick gets an event budget (see SimulationConfig.eventBudget). A tick
+ * that exceeds it is sampled for a while longer, counting how often each
+ * wire toggles; if the wires that keep toggling form a loop, the run stops
+ * and the loop is reported through {@link #getOscillation()} instead of
+ * spinning forever.
+ *
+ * Updates requested by input changes are coalesced: each component has at
+ * most one such update pending per target tick, so a gate whose inputs
+ * change together is evaluated once rather than once per input.
+ *
+ * Under the inertial delay model an input change supersedes any update
+ * still pending for the same component: each update event carries the
+ * component's version at scheduling time and is dropped on dispatch if a
+ * newer one has been scheduled since, so an output only follows inputs
+ * that stay put for the full delay.
+ *
+ * A bus wire delivers its whole value (up to 64 bits) as one event, so a
+ * word-wide change costs the same as a single-bit one.
+ *
+ * Four-state values (see FourState) ride in the same events: a single bit
+ * sends its level (0-3) where a boolean would go, and a bus with unknown
+ * bits follows its value event with one carrying the unknown plane. A
+ * known value clears the plane on arrival, so two-state runs never send
+ * the second event.
+ *
+ * Free-running clocks schedule their own edges ({@link #scheduleClock}).
+ * Their events keep the queue from ever draining, so {@link #isStable()}
+ * ignores them.
+ */
+public class SimulationEngine {
+
+  // --- Event Encoding ---
+  // key = kind << 48 | pin << 32 | component id
+  private static final int KIND_INPUT = 0;
+  private static final int KIND_UPDATE = 1;
+  private static final int KIND_TASK = 2;
+  private static final int KIND_CLOCK = 3;
+  private static final int KIND_BUS_INPUT = 4; // value = the whole bus word
+  private static final int KIND_BUS_UNKNOWN = 5; // value = a bus's unknown plane
+
+  private final EventScheduler scheduler;
+  private long currentTick = 0;
+
+  // Settings for the current run (see SimulationConfig)
+  private SimulationConfig pinnedConfig = null; // null = follow SimulationConfig.current()
+  private SimulationConfig config = SimulationConfig.current();
+
+  // Components addressed by events, indexed by engine id. A removed
+  // component's id is retired until none of its events or dirty marks are
+  // left, so those are dropped rather than delivered to a newcomer, then
+  // recycled through freeIds like task slots.
+  private Component[] components = new Component[64];
+  private int nextComponentId = 0; // Ids ever handed out
+  private int componentCount = 0; // Registered now
+  private int[] freeIds = new int[64];
+  private int freeIdCount = 0;
+  private int[] pendingEvents = new int[64]; // Queued events per id, tasks aside
+  private boolean[] retired = new boolean[64]; // Removed, events still draining
+
+  // Pooled slots for Runnable events scheduled through the legacy API
+  private Runnable[] tasks = new Runnable[16];
+  private int[] freeTasks = new int[16];
+  private int freeTaskCount = 0;
+  private int taskSlotsUsed = 0;
+
+  // Latest inertial update per component id; 0 marks unversioned events
+  private int[] updateVersions = new int[64];
+  // Target tick of the requested update (or clock edge) still pending per
+  // component id, -1 = none
+  private long[] requestedTicks = newRequestedTicks(64);
+  private int pendingClockEvents = 0;
+
+  private long dispatchedEvents = 0;
+  private long cancelledEvents = 0;
+  private long evaluations = 0;
+
+  // --- Oscillation Detection ---
+  private static final int AUTO_BUDGET_PER_COMPONENT = 64;
+  private static final int MIN_AUTO_BUDGET = 10_000;
+  private static final int DIAGNOSIS_EVENTS = 16_384;
+  private Map<Wire, Integer> toggleCounts = null; // non-null while sampling a runaway tick
+  private volatile OscillationReport oscillation = null; // Read by the UI thread
+  private Component innerOscillation = null; // Chip that oscillated internally, not yet reported
+
+  // --- Zero-Delay Levelized Evaluation ---
+  private int[] levels = new int[0]; // by component id, Levelizer.CYCLIC for loops
+  private int topologyVersion = 0;
+  private int levelsVersion = -1;
+  private boolean[] dirty = new boolean[64];
+  private int[][] buckets = new int[0][];
+  private int[] bucketSizes = new int[0];
+  private int dirtyCount = 0;
+  private int minDirtyLevel = Integer.MAX_VALUE;
+  // Inputs to clocked components held back while a level is evaluated
+  private boolean holding = false;
+  private Component[] heldTargets = new Component[16];
+  private int[] heldPins = new int[16];
+  private long[] heldValues = new long[16];
+  private long[] heldUnknowns = new long[16];
+  private int heldCount = 0;
+
+  public SimulationEngine() {
+    this(EventScheduler.Type.TIMING_WHEEL);
+  }
+
+  public SimulationEngine(EventScheduler.Type schedulerType) {
+    this.scheduler = schedulerType.create();
+  }
+
+  // --- Scheduling ---
+
+  /**
+   * Delivers a value to a component input after the given delay.
+   */
+  public void scheduleInput(Component c, int pin, boolean value, int delayTicks) {
+    if (c.getEngine() != this) {
+      c.getEngine().scheduleInput(c, pin, value, delayTicks);
+      return;
+    }
+    enqueue(currentTick + delayTicks, pack(KIND_INPUT, pin, idOf(c)), value ? 1L : 0L);
+  }
+
+  /**
+   * Delivers a bus value to a component input after the given delay.
+   */
+  public void scheduleInputValue(Component c, int pin, long value, int delayTicks) {
+    if (c.getEngine() != this) {
+      c.getEngine().scheduleInputValue(c, pin, value, delayTicks);
+      return;
+    }
+    enqueue(currentTick + delayTicks, pack(KIND_BUS_INPUT, pin, idOf(c)), value);
+  }
+
+  /**
+   * Delivers a four-state bus value after the given delay: the value event
+   * (which clears the pin's unknown plane) then, if needed, the plane.
+   */
+  public void scheduleInputState(Component c, int pin, long value, long unknown, int delayTicks) {
+    if (c.getEngine() != this) {
+      c.getEngine().scheduleInputState(c, pin, value, unknown, delayTicks);
+      return;
+    }
+    int id = idOf(c);
+    enqueue(currentTick + delayTicks, pack(KIND_BUS_INPUT, pin, id), value);
+    if (unknown != 0)
+      enqueue(currentTick + delayTicks, pack(KIND_BUS_UNKNOWN, pin, id), unknown);
+  }
+
+  /**
+   * Re-evaluates a component after the given delay.
+   */
+  public void scheduleUpdate(Component c, int delayTicks) {
+    if (c.getEngine() != this) {
+      c.getEngine().scheduleUpdate(c, delayTicks);
+      return;
+    }
+    enqueue(currentTick + delayTicks, pack(KIND_UPDATE, 0, idOf(c)), 0L);
+  }
+
+  /**
+   * Re-evaluates a component whose input changed, following the delay
+   * model. Requests landing on a tick that already has an update pending
+   * for the component are merged into it.
+   */
+  public void requestUpdate(Component c, int delayTicks) {
+    if (c.getEngine() != this) {
+      c.getEngine().requestUpdate(c, delayTicks);
+      return;
+    }
+    int id = idOf(c);
+    long target = currentTick + delayTicks;
+    if (requestedTicks[id] == target)
+      return;
+    requestedTicks[id] = target;
+    if (config.delayModel() == SimulationConfig.DelayModel.INERTIAL)
+      scheduleInertialUpdate(id, target);
+    else
+      enqueue(target, pack(KIND_UPDATE, 0, id), 0L);
+  }
+
+  /**
+   * Schedules a versioned update, cancelling any inertial update already
+   * pending for the component.
+   */
+  private void scheduleInertialUpdate(int id, long target) {
+    int version = updateVersions[id] + 1;
+    if (version == 0)
+      version = 1;
+    updateVersions[id] = version;
+    enqueue(target, pack(KIND_UPDATE, 0, id), version);
+  }
+
+  /**
+   * Re-evaluates a self-timed component (a clock) at an absolute tick,
+   * replacing any edge it already has pending. Several requests for the
+   * same tick share one event.
+   */
+  public void scheduleClock(Component c, long tick) {
+    if (c.getEngine() != this) {
+      c.getEngine().scheduleClock(c, tick);
+      return;
+    }
+    int id = idOf(c);
+    tick = Math.max(tick, currentTick);
+    if (requestedTicks[id] == tick)
+      return;
+    requestedTicks[id] = tick;
+    enqueue(tick, pack(KIND_CLOCK, 0, id), 0L);
+    pendingClockEvents++;
+  }
+
+  /**
+   * Delivers a value travelling along a wire. With delay enabled this is
+   * a zero-delay input event; without it the input is set directly and the
+   * component is queued for levelized settling.
+   */
+  public void propagate(Component c, int pin, boolean value) {
+    if (config.propagationDelay())
+      scheduleInput(c, pin, value, 0);
+    else if (!hold(c, pin, value ? 1L : 0L, 0L))
+      c.setInput(pin, value);
+  }
+
+  /**
+   * Four-state counterpart of {@link #propagate}, for a FourState level.
+   */
+  public void propagateLevel(Component c, int pin, int level) {
+    if (config.propagationDelay()) {
+      if (c.getEngine() != this) {
+        c.getEngine().propagateLevel(c, pin, level);
+        return;
+      }
+      enqueue(currentTick, pack(KIND_INPUT, pin, idOf(c)), level);
+    } else if (!hold(c, pin, level & 1, level >>> 1)) {
+      c.setInputState(pin, level & 1, level >>> 1);
+    }
+  }
+
+  /**
+   * Four-state counterpart of {@link #propagateValue}.
+   */
+  public void propagateState(Component c, int pin, long value, long unknown) {
+    if (config.propagationDelay())
+      scheduleInputState(c, pin, value, unknown, 0);
+    else if (!hold(c, pin, value, unknown))
+      c.setInputState(pin, value, unknown);
+  }
+
+  /**
+   * Bus counterpart of {@link #propagate}.
+   */
+  public void propagateValue(Component c, int pin, long value) {
+    if (config.propagationDelay())
+      scheduleInputValue(c, pin, value, 0);
+    else if (!hold(c, pin, value, 0L))
+      c.setInputValue(pin, value);
+  }
+
+  /**
+   * Queues a component for evaluation in the current zero-delay settle.
+   * Components on a feedback loop fall back to a zero-delay update event.
+   */
+  public void markDirty(Component c) {
+    if (c.getEngine() != this) {
+      c.getEngine().markDirty(c);
+      return;
+    }
+    int id = idOf(c);
+    if (dirty[id])
+      return;
+    int level;
+    if (id < levels.length) {
+      level = levels[id];
+    } else {
+      topologyVersion++; // Newly seen component: order is stale
+      level = 0;
+    }
+    if (level == Levelizer.CYCLIC) {
+      scheduleUpdate(c, 0);
+      return;
+    }
+    addDirty(id, level);
+  }
+
+  // --- Configuration ---
+
+  /**
+   * Settings in effect, captured at the start of the last run.
+   */
+  public SimulationConfig getConfig() {
+    return config;
+  }
+
+  /**
+   * Fixes this engine's settings, ignoring later changes to
+   * SimulationConfig.current(). Pass null to follow the global settings
+   * again.
+   */
+  public void setConfig(SimulationConfig config) {
+    this.pinnedConfig = config;
+    this.config = (config != null) ? config : SimulationConfig.current();
+  }
+
+  /**
+   * Picks up changed global settings now rather than at the next run.
+   */
+  public void refreshConfig() {
+    config = (pinnedConfig != null) ? pinnedConfig : SimulationConfig.current();
+  }
+
+  /**
+   * Signals that wiring changed, so the evaluation order must be rebuilt.
+   */
+  public void invalidateTopology() {
+    topologyVersion++;
+  }
+
+  public void enqueue(Runnable event) {
+    schedule(event, 0);
+  }
+
+  public void schedule(Runnable event, int delayTicks) {
+    scheduler.add(currentTick + delayTicks, pack(KIND_TASK, 0, allocTask(event)), 0L);
+  }
+
+  public void run(int maxTicks) {
+    refreshConfig();
+    oscillation = null;
+    for (int i = 0; i < maxTicks; i++) {
+      long budget = tickBudget();
+      long work = 0;
+      long sampleEnd = -1;
+      while (true) {
+        if (innerOscillation != null) {
+          // A chip cut its own settle short; it is the whole loop
+          oscillation = new OscillationReport(currentTick, List.of(innerOscillation), List.of());
+          innerOscillation = null;
+          toggleCounts = null;
+          currentTick++;
+          return;
+        }
+        long key = scheduler.pollDue(currentTick);
+        if (key != EventScheduler.NONE) {
+          dispatch(key, scheduler.polledValue());
+          work++;
+        } else if (dirtyCount > 0) {
+          work += settleDirty();
+        } else {
+          break;
+        }
+
+        if (work > budget) {
+          if (sampleEnd < 0) {
+            // Over budget: watch which wires keep toggling
+            toggleCounts = new IdentityHashMap<>();
+            sampleEnd = work + Math.min(budget, DIAGNOSIS_EVENTS);
+          } else if (work >= sampleEnd) {
+            oscillation = findOscillation();
+            toggleCounts = null;
+            if (oscillation != null) {
+              // Leave the rest of this tick's events for later runs
+              currentTick++;
+              return;
+            }
+            budget = work * 2; // Just a busy tick
+            sampleEnd = -1;
+          }
+        }
+      }
+      toggleCounts = null;
+      currentTick++;
+    }
+  }
+
+  private long tickBudget() {
+    if (config.eventBudget() > 0)
+      return config.eventBudget();
+    return Math.max(MIN_AUTO_BUDGET, (long) AUTO_BUDGET_PER_COMPONENT * componentCount);
+  }
+
+  // Called by Wire.setSignal on every change
+  void noteToggle(Wire w) {
+    if (toggleCounts != null)
+      toggleCounts.merge(w, 1, Integer::sum);
+  }
+
+  /**
+   * Finds the strongly connected components among the sources of wires
+   * that toggled more than once during sampling.
+   */
+  private OscillationReport findOscillation() {
+    List<Component> candidates = new ArrayList<>();
+    Map<Component, Integer> index = new IdentityHashMap<>();
+    for (Map.Entry<Wire, Integer> e : toggleCounts.entrySet()) {
+      Component src = e.getKey().getSource();
+      if (e.getValue() > 1 && src != null && !index.containsKey(src)) {
+        index.put(src, candidates.size());
+        candidates.add(src);
+      }
+    }
+
+    int n = candidates.size();
+    int[] start = new int[n + 1];
+    List<Integer> succ = new ArrayList<>();
+    List<Component> fanout = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      start[i] = succ.size();
+      fanout.clear();
+      candidates.get(i).collectFanout(fanout);
+      for (Component d : fanout) {
+        Integer j = index.get(d);
+        if (j != null)
+          succ.add(j);
+      }
+    }
+    start[n] = succ.size();
+    int[] levels = Levelizer.levelize(n, start, succ.stream().mapToInt(Integer::intValue).toArray());
+
+    List<Component> loop = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      if (levels[i] == Levelizer.CYCLIC)
+        loop.add(candidates.get(i));
+    }
+    if (loop.isEmpty())
+      return null;
+
+    List<Wire> wires = new ArrayList<>();
+    for (Component c : loop) {
+      for (Wire w : c.getAllOutputs()) {
+        for (Wire.PortConnection pc : w.getDestinations()) {
+          Integer j = index.get(pc.component);
+          if (j != null && levels[j] == Levelizer.CYCLIC) {
+            wires.add(w);
+            break;
+          }
+        }
+      }
+    }
+    return new OscillationReport(currentTick, loop, wires);
+  }
+
+  /**
+   * Reports a component whose internal settle never finished (a custom
+   * chip with an oscillating loop inside), so the run stops with it as the
+   * oscillation. Reported outside a run, it stops the next one.
+   */
+  public void reportOscillation(Component c) {
+    if (c.getEngine() != this) {
+      c.getEngine().reportOscillation(c);
+      return;
+    }
+    innerOscillation = c;
+  }
+
+  /**
+   * The loop that stopped the last run, or null if it completed normally.
+   */
+  public OscillationReport getOscillation() {
+    return oscillation;
+  }
+
+  private void dispatch(long key, long value) {
+    int id = (int) key;
+    int kind = (int) (key >>> 48);
+    dispatchedEvents++;
+    if (kind != KIND_TASK && --pendingEvents[id] == 0 && retired[id] && !dirty[id])
+      release(id); // Its component is gone, so the cases below drop the event
+    switch (kind) {
+      case KIND_INPUT -> {
+        Component c = components[id];
+        if (c == null)
+          return;
+        if (value > 1) // X or Z
+          c.setInputState((int) (key >>> 32) & 0xFFFF, value & 1, value >>> 1);
+        else
+          c.setInput((int) (key >>> 32) & 0xFFFF, value != 0);
+      }
+      case KIND_BUS_INPUT -> {
+        Component c = components[id];
+        if (c != null)
+          c.setInputValue((int) (key >>> 32) & 0xFFFF, value);
+      }
+      case KIND_BUS_UNKNOWN -> {
+        Component c = components[id];
+        if (c != null) {
+          int pin = (int) (key >>> 32) & 0xFFFF;
+          c.setInputState(pin, c.getInputValue(pin), value);
+        }
+      }
+      case KIND_UPDATE -> {
+        Component c = components[id];
+        if (value != 0 && value != updateVersions[id]) {
+          cancelledEvents++; // Superseded by a later input change
+          return;
+        }
+        if (requestedTicks[id] == currentTick)
+          requestedTicks[id] = -1; // Later requests need a fresh event
+        if (c != null) {
+          evaluations++;
+          c.update();
+        }
+      }
+      case KIND_CLOCK -> {
+        pendingClockEvents--;
+        // Edges left over from an oscillation report arrive a tick late;
+        // only drop one whose edge has already fired or moved to later
+        long requested = requestedTicks[id];
+        if (requested < 0 || requested > currentTick) {
+          cancelledEvents++; // Rescheduled since
+          return;
+        }
+        requestedTicks[id] = -1;
+        Component c = components[id];
+        if (c != null)
+          c.update(); // Schedules the next edge
+      }
+      case KIND_TASK -> {
+        Runnable task = tasks[id];
+        tasks[id] = null;
+        freeTasks[freeTaskCount++] = id;
+        task.run();
+      }
+      default -> throw new IllegalStateException("Corrupt event key: " + key);
+    }
+  }
+
+  // --- Levelized Settling ---
+
+  // Holds a zero-delay input for a clocked component until the level being
+  // evaluated is done; false if it should be delivered now
+  private boolean hold(Component c, int pin, long value, long unknown) {
+    if (!holding || !c.isClocked())
+      return false;
+    if (heldCount == heldTargets.length) {
+      int n = heldCount * 2;
+      heldTargets = Arrays.copyOf(heldTargets, n);
+      heldPins = Arrays.copyOf(heldPins, n);
+      heldValues = Arrays.copyOf(heldValues, n);
+      heldUnknowns = Arrays.copyOf(heldUnknowns, n);
+    }
+    heldTargets[heldCount] = c;
+    heldPins[heldCount] = pin;
+    heldValues[heldCount] = value;
+    heldUnknowns[heldCount] = unknown;
+    heldCount++;
+    return true;
+  }
+
+  // Delivers held inputs, marking their components dirty again
+  private void releaseHeld() {
+    for (int i = 0; i < heldCount; i++) {
+      Component c = heldTargets[i];
+      heldTargets[i] = null;
+      c.setInputState(heldPins[i], heldValues[i], heldUnknowns[i]);
+    }
+    heldCount = 0;
+  }
+
+  private void addDirty(int id, int level) {
+    if (level >= buckets.length) {
+      int n = Math.max(level + 1, buckets.length * 2);
+      buckets = Arrays.copyOf(buckets, n);
+      bucketSizes = Arrays.copyOf(bucketSizes, n);
+    }
+    int[] bucket = buckets[level];
+    if (bucket == null)
+      bucket = buckets[level] = new int[8];
+    else if (bucketSizes[level] == bucket.length)
+      bucket = buckets[level] = Arrays.copyOf(bucket, bucket.length * 2);
+    bucket[bucketSizes[level]++] = id;
+    dirty[id] = true;
+    dirtyCount++;
+    minDirtyLevel = Math.min(minDirtyLevel, level);
+  }
+
+  /**
+   * Evaluates dirty components lowest level first. Everything a component
+   * drives sits on a higher level, so in an acyclic region each one runs
+   * after all of its inputs have settled. A signal arriving at a lower
+   * level (from a loop, or before the order was rebuilt) just restarts the
+   * scan there.
+   *
+   * @return number of components evaluated
+   */
+  private int settleDirty() {
+    if (levelsVersion != topologyVersion)
+      relevelize();
+
+    int evaluated = 0;
+    while (dirtyCount > 0) {
+      int level = minDirtyLevel;
+      while (bucketSizes[level] == 0)
+        level++;
+      minDirtyLevel = level;
+
+      // Detach the bucket: evaluations may refill this level
+      int[] bucket = buckets[level];
+      int size = bucketSizes[level];
+      buckets[level] = null;
+      bucketSizes[level] = 0;
+      holding = true;
+      try {
+        for (int i = 0; i < size; i++) {
+          int id = bucket[i];
+          dirty[id] = false;
+          dirtyCount--;
+          Component c = components[id];
+          if (c != null) {
+            evaluations++;
+            c.update();
+          } else if (retired[id] && pendingEvents[id] == 0) {
+            release(id);
+          }
+        }
+      } finally {
+        holding = false;
+      }
+      releaseHeld();
+      evaluated += size;
+      if (buckets[level] == null)
+        buckets[level] = bucket;
+      if (bucketSizes[level] == 0 && minDirtyLevel == level)
+        minDirtyLevel = (dirtyCount == 0) ? Integer.MAX_VALUE : level + 1;
+    }
+    return evaluated;
+  }
+
+  private void relevelize() {
+    // Register everything reachable so the order covers whole fan-out cones
+    List<Component> fanout = new ArrayList<>();
+    for (int id = 0; id < nextComponentId; id++) {
+      Component c = components[id];
+      if (c == null)
+        continue;
+      fanout.clear();
+      c.collectFanout(fanout);
+      for (Component d : fanout) {
+        if (d.getEngine() == this)
+          idOf(d);
+      }
+    }
+
+    // Successor graph by id (CSR)
+    int n = nextComponentId;
+    int[] start = new int[n + 1];
+    int[] succ = new int[16];
+    int edges = 0;
+    for (int id = 0; id < n; id++) {
+      start[id] = edges;
+      Component c = components[id];
+      if (c == null)
+        continue;
+      fanout.clear();
+      c.collectFanout(fanout);
+      for (Component d : fanout) {
+        if (d.getEngine() != this || d.isClocked())
+          continue; // Flip-flops stay on level 0 (see class doc)
+        if (edges == succ.length)
+          succ = Arrays.copyOf(succ, edges * 2);
+        succ[edges++] = idOf(d);
+      }
+    }
+    start[n] = edges;
+    levels = Levelizer.levelize(n, start, succ);
+    levelsVersion = topologyVersion;
+
+    // Re-file whatever is already pending under the new levels
+    int[] pending = new int[dirtyCount];
+    int p = 0;
+    for (int level = 0; level < buckets.length; level++) {
+      for (int i = 0; i < bucketSizes[level]; i++)
+        pending[p++] = buckets[level][i];
+      bucketSizes[level] = 0;
+    }
+    dirtyCount = 0;
+    minDirtyLevel = Integer.MAX_VALUE;
+    for (int id : pending) {
+      dirty[id] = false;
+      if (components[id] == null) {
+        if (retired[id] && pendingEvents[id] == 0)
+          release(id);
+      } else if (levels[id] == Levelizer.CYCLIC)
+        scheduleUpdate(components[id], 0);
+      else
+        addDirty(id, levels[id]);
+    }
+  }
+
+  private static long pack(int kind, int pin, int id) {
+    return ((long) kind << 48) | ((long) (pin & 0xFFFF) << 32) | (id & 0xFFFFFFFFL);
+  }
+
+  // --- Component Registry ---
+
+  private int idOf(Component c) {
+    int id = c.getEngineId();
+    if (id >= 0 && id < nextComponentId && components[id] == c)
+      return id;
+    return register(c);
+  }
+
+  private int register(Component c) {
+    int id;
+    if (freeIdCount > 0) {
+      id = freeIds[--freeIdCount];
+      topologyVersion++; // Its level still belongs to the previous owner
+    } else {
+      if (nextComponentId == components.length) {
+        components = Arrays.copyOf(components, components.length * 2);
+        dirty = Arrays.copyOf(dirty, components.length);
+        updateVersions = Arrays.copyOf(updateVersions, components.length);
+        long[] ticks = newRequestedTicks(components.length);
+        System.arraycopy(requestedTicks, 0, ticks, 0, requestedTicks.length);
+        requestedTicks = ticks;
+        freeIds = Arrays.copyOf(freeIds, components.length);
+        pendingEvents = Arrays.copyOf(pendingEvents, components.length);
+        retired = Arrays.copyOf(retired, components.length);
+      }
+      id = nextComponentId++;
+    }
+    components[id] = c;
+    componentCount++;
+    c.setEngineId(id);
+    return id;
+  }
+
+  private static long[] newRequestedTicks(int n) {
+    long[] ticks = new long[n];
+    Arrays.fill(ticks, -1);
+    return ticks;
+  }
+
+  /**
+   * Forgets a component; any of its events still pending are discarded.
+   */
+  public void unregister(Component c) {
+    int id = c.getEngineId();
+    if (id >= 0 && id < nextComponentId && components[id] == c) {
+      components[id] = null;
+      componentCount--;
+      c.setEngineId(-1);
+      topologyVersion++;
+      retired[id] = true;
+      if (pendingEvents[id] == 0 && !dirty[id])
+        release(id);
+    }
+  }
+
+  // Recycles a retired id once no event or dirty mark can reach it
+  private void release(int id) {
+    retired[id] = false;
+    updateVersions[id] = 0;
+    requestedTicks[id] = -1;
+    freeIds[freeIdCount++] = id;
+  }
+
+  private void enqueue(long tick, long key, long value) {
+    pendingEvents[(int) key]++;
+    scheduler.add(tick, key, value);
+  }
+
+  private int allocTask(Runnable r) {
+    int slot;
+    if (freeTaskCount > 0) {
+      slot = freeTasks[--freeTaskCount];
+    } else {
+      if (taskSlotsUsed == tasks.length) {
+        tasks = Arrays.copyOf(tasks, tasks.length * 2);
+        freeTasks = Arrays.copyOf(freeTasks, freeTasks.length * 2);
+      }
+      slot = taskSlotsUsed++;
+    }
+    tasks[slot] = r;
+    return slot;
+  }
+
+  // --- Checkpoints ---
+
+  /**
+   * Writes the tick and all pending work: events, zero-delay dirty marks and
+   * the update bookkeeping behind coalescing and inertial cancellation.
+   * Components are named by their position in {@code order}; events for
+   * components outside it are dropped. Used by {@link SimulationCheckpoint}.
+   */
+  void writeCheckpoint(DataOutput out, List<Component> order) throws IOException {
+    int[] indexById = new int[nextComponentId];
+    Arrays.fill(indexById, -1);
+    for (int i = 0; i < order.size(); i++) {
+      int id = order.get(i).getEngineId();
+      if (id >= 0 && id < nextComponentId && components[id] == order.get(i))
+        indexById[id] = i;
+    }
+
+    // Collected first: the count leads, and visitors cannot throw IOException
+    long[][] events = new long[3][scheduler.size()];
+    int[] eventCount = { 0 };
+    scheduler.forEach((tick, key, value) -> {
+      if ((int) (key >>> 48) == KIND_TASK)
+        throw new IllegalStateException("Pending Runnable events cannot be checkpointed");
+      int index = indexById[(int) key];
+      if (index < 0)
+        return;
+      int n = eventCount[0]++;
+      events[0][n] = tick;
+      events[1][n] = (key & ~0xFFFFFFFFL) | index;
+      events[2][n] = value;
+    });
+
+    out.writeLong(currentTick);
+    out.writeInt(eventCount[0]);
+    for (int i = 0; i < eventCount[0]; i++) {
+      out.writeLong(Math.max(0, events[0][i] - currentTick));
+      out.writeLong(events[1][i]);
+      out.writeLong(events[2][i]);
+    }
+
+    int marked = 0;
+    for (int id = 0; id < nextComponentId; id++)
+      if (indexById[id] >= 0 && (dirty[id] || updateVersions[id] != 0 || requestedTicks[id] >= 0))
+        marked++;
+    out.writeInt(marked);
+    for (int id = 0; id < nextComponentId; id++) {
+      if (indexById[id] < 0 || !(dirty[id] || updateVersions[id] != 0 || requestedTicks[id] >= 0))
+        continue;
+      out.writeInt(indexById[id]);
+      out.writeBoolean(dirty[id]);
+      out.writeInt(updateVersions[id]);
+      out.writeLong(requestedTicks[id] - currentTick); // Negative = none
+    }
+  }
+
+  /**
+   * Replaces the tick and pending work with a checkpoint written against
+   * the same component order.
+   */
+  void readCheckpoint(DataInput in, List<Component> order) throws IOException {
+    clear();
+    currentTick = in.readLong();
+    scheduler.pollDue(currentTick); // Empty: just moves the scheduler up to the tick
+
+    int eventCount = in.readInt();
+    for (int i = 0; i < eventCount; i++) {
+      long tick = currentTick + in.readLong();
+      long key = in.readLong();
+      long value = in.readLong();
+      int kind = (int) (key >>> 48);
+      int index = (int) key;
+      if ((kind != KIND_INPUT && kind != KIND_BUS_INPUT && kind != KIND_BUS_UNKNOWN && kind != KIND_UPDATE
+          && kind != KIND_CLOCK) || index < 0 || index >= order.size())
+        throw new IOException("Corrupt checkpoint event: " + key);
+      enqueue(tick, (key & ~0xFFFFFFFFL) | idOf(order.get(index)), value);
+      if (kind == KIND_CLOCK)
+        pendingClockEvents++;
+    }
+
+    int marked = in.readInt();
+    for (int i = 0; i < marked; i++) {
+      int index = in.readInt();
+      if (index < 0 || index >= order.size())
+        throw new IOException("Corrupt checkpoint component index: " + index);
+      Component c = order.get(index);
+      boolean isDirty = in.readBoolean();
+      int version = in.readInt();
+      long requested = in.readLong();
+      int id = idOf(c);
+      updateVersions[id] = version;
+      requestedTicks[id] = (requested < 0) ? -1 : currentTick + requested;
+      if (isDirty)
+        markDirty(c);
+    }
+  }
+
+  // --- State ---
+
+  public void clear() {
+    scheduler.clear();
+    Arrays.fill(dirty, false);
+    Arrays.fill(pendingEvents, 0);
+    for (int id = 0; id < nextComponentId; id++) {
+      if (retired[id])
+        release(id);
+    }
+    Arrays.fill(requestedTicks, -1);
+    Arrays.fill(bucketSizes, 0);
+    dirtyCount = 0;
+    minDirtyLevel = Integer.MAX_VALUE;
+    pendingClockEvents = 0;
+    Arrays.fill(tasks, null);
+    freeTaskCount = 0;
+    taskSlotsUsed = 0;
+    currentTick = 0;
+    oscillation = null;
+    innerOscillation = null;
+    dispatchedEvents = 0;
+    cancelledEvents = 0;
+    evaluations = 0;
+  }
+
+  /**
+   * Whether nothing is left to evaluate besides future clock edges.
+   */
+  public boolean isStable() {
+    return scheduler.size() == pendingClockEvents && dirtyCount == 0;
+  }
+
+  public int getPendingEventCount() {
+    return scheduler.size();
+  }
+
+  /**
+   * Events dispatched since the last clear, including cancelled ones.
+   */
+  public long getDispatchedEventCount() {
+    return dispatchedEvents;
+  }
+
+  /**
+   * Inertial updates dropped because a newer one superseded them.
+   */
+  public long getCancelledEventCount() {
+    return cancelledEvents;
+  }
+
+  /**
+   * Component updates run since the last clear, by events or settling.
+   */
+  public long getEvaluationCount() {
+    return evaluations;
+  }
+
+  public long getTick() {
+    return currentTick;
+  }
+}
@@ -0,0 +1,195 @@
+package uk.ac.cam.jml229.logic.core;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Owns a circuit and runs its engine on a dedicated thread.
+ *
+ * Every frame the thread runs any posted commands, advances the engine and
+ * the clocks (or a turbo run), and publishes the result to a
+ * {@link SignalSnapshot} that the renderer reads without locks. Other
+ * threads never touch the circuit directly:
+ * <ul>
+ * <li>signal-level changes such as switch toggles are posted with
+ * {@link #post} to a lock-free queue and applied before the next step;</li>
+ * <li>structural edits run inside {@link #runExclusive}, which parks the
+ * simulation thread on a posted command until the edit is done.</li>
+ * </ul>
+ */
+public class SimulationThread {
+
+  private static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+
+  private final ConcurrentLinkedQueue<Runnable> commands = new ConcurrentLinkedQueue<>();
+  private final SignalSnapshot snapshot = new SignalSnapshot();
+  private final Thread thread;
+
+  private volatile Thread exclusiveOwner = null; // Thread inside runExclusive
+  private volatile Circuit circuit;
+  private volatile boolean running = false;
+  private volatile int logicStepsPerFrame = 1000;
+  private volatile int clockDelayMs = 500;
+
+  // Simulation thread only
+  private TurboRunner turbo = null;
+  private long lastClockTick = 0;
+
+  public SimulationThread(Circuit circuit) {
+    this.circuit = circuit;
+    if (circuit != null)
+      circuit.setEditGuard(this::runExclusive);
+    this.thread = new Thread(this::loop, "logik-simulation");
+    this.thread.setDaemon(true);
+  }
+
+  public void start() {
+    thread.start();
+  }
+
+  // --- Commands ---
+
+  /**
+   * Queues a command to run on the simulation thread before its next step.
+   */
+  public void post(Runnable command) {
+    commands.add(command);
+    LockSupport.unpark(thread);
+  }
+
+  /**
+   * Runs an action on the calling thread while the simulation thread waits,
+   * for edits that change the circuit's structure. Reentrant.
+   */
+  public void runExclusive(Runnable action) {
+    Thread self = Thread.currentThread();
+    if (self == thread || self == exclusiveOwner || !thread.isAlive()) {
+      action.run();
+      return;
+    }
+    CountDownLatch parked = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+    post(() -> {
+      parked.countDown();
+      awaitUninterruptibly(done);
+    });
+    awaitUninterruptibly(parked);
+    exclusiveOwner = self;
+    try {
+      action.run();
+    } finally {
+      exclusiveOwner = null;
+      done.countDown();
+    }
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    boolean interrupted = false;
+    while (true) {
+      try {
+        latch.await();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted)
+      Thread.currentThread().interrupt();
+  }
+
+  // --- Settings ---
+
+  /**
+   * Switches to another circuit, installing this thread's edit guard on it
+   * (see Circuit.setEditGuard).
+   */
+  public void setCircuit(Circuit circuit) {
+    if (circuit != null)
+      circuit.setEditGuard(this::runExclusive);
+    post(() -> {
+      if (turbo != null)
+        turbo.stop();
+      turbo = null;
+      this.circuit = circuit;
+    });
+  }
+
+  public void setRunning(boolean running) {
+    this.running = running;
+    LockSupport.unpark(thread);
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  public void setLogicStepsPerFrame(int steps) {
+    this.logicStepsPerFrame = steps;
+  }
+
+  public void setClockDelayMs(int ms) {
+    this.clockDelayMs = Math.max(1, ms);
+  }
+
+  /**
+   * Hands the circuit to a turbo run, which replaces the paced steps until
+   * it ends. The run must have been prepared with {@link TurboRunner#begin}.
+   */
+  public void runTurbo(TurboRunner runner) {
+    post(() -> turbo = runner);
+  }
+
+  public SignalSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  // --- Loop ---
+
+  private void loop() {
+    long nextFrame = System.nanoTime();
+    while (true) {
+      Runnable command;
+      while ((command = commands.poll()) != null) {
+        try {
+          command.run();
+        } catch (RuntimeException e) {
+          e.printStackTrace(); // A bad command must not kill the simulation
+        }
+      }
+
+      Circuit c = circuit;
+      if (c == null) {
+        LockSupport.park(this);
+        continue;
+      }
+
+      long now = System.nanoTime();
+      if (turbo != null) {
+        if (!turbo.runFor(FRAME_NANOS))
+          turbo = null;
+      } else if (running && now - nextFrame >= 0) {
+        c.getEngine().run(logicStepsPerFrame);
+        long ms = System.currentTimeMillis();
+        if (ms - lastClockTick >= clockDelayMs) {
+          c.tick();
+          lastClockTick = ms;
+        }
+        nextFrame = now + FRAME_NANOS;
+      }
+      snapshot.publish(c);
+
+      // Posted commands and setRunning wake the thread early
+      if (turbo != null)
+        continue;
+      if (!running) {
+        LockSupport.park(this);
+      } else {
+        long wait = nextFrame - System.nanoTime();
+        if (wait > 0)
+          LockSupport.parkNanos(this, wait);
+      }
+    }
+  }
+}
@@ -1,55 +1,40 @@
 package uk.ac.cam.jml229.logic.core;
 
-import java.util.PriorityQueue;
-import java.util.Queue;
-
+/**
+ * Static facade over a shared default {@link SimulationEngine}.
+ * Components that have not been added to a Circuit (palette prototypes,
+ * hand-wired demos) schedule on this instance. Anything living inside a
+ * Circuit uses that circuit's own engine instead.
+ */
 public class Simulator {
 
-  private static class SimEvent implements Comparable<SimEvent> {
-    long tickTime;
-    Runnable action;
-
-    SimEvent(long tickTime, Runnable action) {
-      this.tickTime = tickTime;
-      this.action = action;
-    }
+  private static final SimulationEngine DEFAULT_ENGINE = new SimulationEngine();
 
-    @Override
-    public int compareTo(SimEvent other) {
-      return Long.compare(this.tickTime, other.tickTime);
-    }
+  public static SimulationEngine getDefault() {
+    return DEFAULT_ENGINE;
   }
 
-  private static final Queue<SimEvent> eventQueue = new PriorityQueue<>();
-  private static long currentTick = 0;
-
   public static void enqueue(Runnable event) {
-    schedule(event, 0);
+    DEFAULT_ENGINE.enqueue(event);
   }
 
   public static void schedule(Runnable event, int delayTicks) {
-    eventQueue.add(new SimEvent(currentTick + delayTicks, event));
+    DEFAULT_ENGINE.schedule(event, delayTicks);
   }
 
   public static void run(int maxTicks) {
-    for (int i = 0; i < maxTicks; i++) {
-      while (!eventQueue.isEmpty() && eventQueue.peek().tickTime <= currentTick) {
-        eventQueue.poll().action.run();
-      }
-      currentTick++;
-    }
+    DEFAULT_ENGINE.run(maxTicks);
   }
 
   public static void clear() {
-    eventQueue.clear();
-    currentTick = 0;
+    DEFAULT_ENGINE.clear();
   }
 
   public static boolean isStable() {
-    return eventQueue.isEmpty();
+    return DEFAULT_ENGINE.isStable();
   }
 
   public static long getTick() {
-    return currentTick;
+    return DEFAULT_ENGINE.getTick();
   }
 }
@@ -0,0 +1,181 @@
+package uk.ac.cam.jml229.logic.core;
+
+import java.util.Arrays;
+
+/**
+ * Single-level timing wheel with a heap for far-future events.
+ *
+ * Gate delays are small integers, so nearly every event lands within the
+ * wheel window and costs O(1) to add and remove. Events live in one pooled
+ * set of primitive arrays and each slot is a FIFO linked list through that
+ * pool, which keeps same-tick events in insertion order while memory stays
+ * proportional to the number of pending events; the pool only ever grows,
+ * so a warmed-up wheel allocates nothing. Events further ahead than the
+ * window wait in an overflow heap and are migrated into their slot as the
+ * window slides forward, before any newer event for that tick can arrive.
+ */
+public class TimingWheelScheduler implements EventScheduler {
+
+  private static final int DEFAULT_SLOTS = 1024;
+  private static final int NIL = -1;
+
+  // Per slot: head and tail of a FIFO list through the event pool
+  private final int[] heads;
+  private final int[] tails;
+  private final int mask;
+  private final HeapScheduler overflow = new HeapScheduler();
+
+  // Event pool
+  private long[] keys = new long[256];
+  private long[] values = new long[256];
+  private int[] next = new int[256];
+  private int freeList = NIL;
+  private int poolUsed = 0;
+
+  // First tick covered by the window: [wheelNow, wheelNow + slots)
+  private long wheelNow = 0;
+  private int size = 0;
+  private long lastValue = 0;
+
+  public TimingWheelScheduler() {
+    this(DEFAULT_SLOTS);
+  }
+
+  /**
+   * @param slotCount window length in ticks, rounded up to a power of two
+   */
+  public TimingWheelScheduler(int slotCount) {
+    int n = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 1;
+    this.heads = new int[n];
+    this.tails = new int[n];
+    Arrays.fill(heads, NIL);
+    Arrays.fill(tails, NIL);
+    this.mask = n - 1;
+  }
+
+  @Override
+  public void add(long tick, long key, long value) {
+    if (tick < wheelNow)
+      tick = wheelNow; // Already overdue, run as soon as possible
+    if (tick - wheelNow < heads.length) {
+      push((int) (tick & mask), key, value);
+    } else {
+      overflow.add(tick, key, value);
+    }
+    size++;
+  }
+
+  @Override
+  public long pollDue(long now) {
+    while (true) {
+      if (size == 0) {
+        wheelNow = Math.max(wheelNow, now);
+        return NONE;
+      }
+      int slot = (int) (wheelNow & mask);
+      if (heads[slot] != NIL) {
+        size--;
+        return pop(slot);
+      }
+      if (wheelNow >= now)
+        return NONE;
+
+      if (size == overflow.size()) {
+        // Wheel is empty: skip straight to the next overflow event
+        long target = overflow.peekTick() - heads.length + 1;
+        wheelNow = Math.min(now, Math.max(wheelNow + 1, target));
+      } else {
+        wheelNow++;
+      }
+      migrate();
+    }
+  }
+
+  @Override
+  public long polledValue() {
+    return lastValue;
+  }
+
+  // Pull overflow events that now fall inside the window into their slots
+  private void migrate() {
+    long horizon = wheelNow + heads.length;
+    while (overflow.peekTick() < horizon) {
+      long tick = overflow.peekTick();
+      long key = overflow.pollDue(tick);
+      push((int) (tick & mask), key, overflow.polledValue());
+    }
+  }
+
+  // --- Slot Lists ---
+
+  private void push(int slot, long key, long value) {
+    int e = allocEvent();
+    keys[e] = key;
+    values[e] = value;
+    next[e] = NIL;
+    if (tails[slot] == NIL)
+      heads[slot] = e;
+    else
+      next[tails[slot]] = e;
+    tails[slot] = e;
+  }
+
+  private long pop(int slot) {
+    int e = heads[slot];
+    heads[slot] = next[e];
+    if (heads[slot] == NIL)
+      tails[slot] = NIL;
+    lastValue = values[e];
+    long key = keys[e];
+    next[e] = freeList;
+    freeList = e;
+    return key;
+  }
+
+  private int allocEvent() {
+    if (freeList != NIL) {
+      int e = freeList;
+      freeList = next[e];
+      return e;
+    }
+    if (poolUsed == keys.length) {
+      int n = keys.length * 2;
+      keys = Arrays.copyOf(keys, n);
+      values = Arrays.copyOf(values, n);
+      next = Arrays.copyOf(next, n);
+    }
+    return poolUsed++;
+  }
+
+  @Override
+  public void forEach(EventVisitor visitor) {
+    // Slots in window order, then the overflow heap beyond the window
+    for (int i = 0; i < heads.length; i++) {
+      long tick = wheelNow + i;
+      for (int e = heads[(int) (tick & mask)]; e != NIL; e = next[e])
+        visitor.accept(tick, keys[e], values[e]);
+    }
+    overflow.forEach(visitor);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(heads, NIL);
+    Arrays.fill(tails, NIL);
+    overflow.clear();
+    freeList = NIL;
+    poolUsed = 0;
+    wheelNow = 0;
+    size = 0;
+  }
+}
@@ -0,0 +1,197 @@
+package uk.ac.cam.jml229.logic.core;
+
+import java.util.function.BooleanSupplier;
+
+import uk.ac.cam.jml229.logic.components.seq.Clock;
+
+/**
+ * Runs a circuit's clocks flat out, outside any display timer.
+ *
+ * One cycle is two clock toggles, each followed by a full settle of the
+ * engine. If every clock is self-timed there is nothing to toggle, and a
+ * cycle is instead one period of the fastest clock. A run ends after the
+ * requested number of cycles, when the stop condition holds after a
+ * cycle, when {@link #stop()} is called, or when the engine reports an
+ * oscillation. A run either gets a thread of its own ({@link #start}) or
+ * is driven in slices by the thread that owns the circuit ({@link #begin}
+ * then {@link #runFor}). Progress is published through volatile fields so
+ * a UI can sample it at display rate.
+ */
+public class TurboRunner {
+
+  // Cycles between clock reads when running for a time slice
+  private static final int CYCLES_PER_CHECK = 64;
+
+  private final Circuit circuit;
+  private Thread thread;
+
+  private long maxCycles;
+  private BooleanSupplier stopWhen;
+  private int cycleTicks; // Engine ticks per cycle, 0 = toggle the clocks
+  private long settleLimit = 0; // Ticks a settle may take, 0 = no limit
+
+  private volatile boolean active = false;
+  private volatile boolean stopRequested = false;
+  private volatile long cycles = 0;
+  private volatile long startNanos = 0;
+  private volatile long endNanos = 0;
+  private volatile boolean conditionMet = false;
+
+  public TurboRunner(Circuit circuit) {
+    this.circuit = circuit;
+  }
+
+  /**
+   * Caps each settle at a number of ticks, after which the run ends as if
+   * the circuit oscillated. The default, 0, settles for as long as it
+   * takes (a delayed ring oscillator then runs until stopped).
+   */
+  public void setSettleLimit(long ticks) {
+    this.settleLimit = ticks;
+  }
+
+  /**
+   * Starts a run on a background thread of its own.
+   *
+   * @param maxCycles cycles to run, or Long.MAX_VALUE for no limit
+   * @param stopWhen  checked after every cycle, or null to run to the limit
+   */
+  public synchronized void start(long maxCycles, BooleanSupplier stopWhen) {
+    begin(maxCycles, stopWhen);
+    thread = new Thread(() -> runFor(Long.MAX_VALUE), "logik-turbo");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Prepares a run for the caller to drive with {@link #runFor}.
+   */
+  public synchronized void begin(long maxCycles, BooleanSupplier stopWhen) {
+    if (active)
+      throw new IllegalStateException("Turbo run already active");
+    this.maxCycles = maxCycles;
+    this.stopWhen = stopWhen;
+    this.cycleTicks = selfTimedCycle();
+    stopRequested = false;
+    conditionMet = false;
+    cycles = 0;
+    startNanos = System.nanoTime();
+    endNanos = 0;
+    active = true;
+  }
+
+  /**
+   * Runs cycles for roughly the given time on the calling thread.
+   *
+   * @return whether the run continues
+   */
+  public boolean runFor(long nanos) {
+    if (!active)
+      return false;
+    SimulationEngine engine = circuit.getEngine();
+    long deadline = System.nanoTime() + nanos;
+    long n = cycles;
+    boolean more = false;
+    try {
+      while (n < maxCycles && !stopRequested) {
+        boolean ok = (cycleTicks > 0)
+            ? timedCycle(engine)
+            : halfCycle(engine) && halfCycle(engine);
+        if (!ok)
+          break;
+        cycles = ++n;
+        if (stopWhen != null && stopWhen.getAsBoolean()) {
+          conditionMet = true;
+          break;
+        }
+        if (n % CYCLES_PER_CHECK == 0 && System.nanoTime() - deadline >= 0) {
+          more = true; // Slice used up
+          break;
+        }
+      }
+    } finally {
+      if (!more) {
+        endNanos = System.nanoTime();
+        active = false;
+      }
+    }
+    return more;
+  }
+
+  /**
+   * Asks the run to end after the current half cycle. A run on its own
+   * thread is waited for.
+   */
+  public void stop() {
+    Thread t;
+    synchronized (this) {
+      t = thread;
+    }
+    stopRequested = true;
+    if (t != null && t != Thread.currentThread()) {
+      try {
+        t.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  public boolean isRunning() {
+    return active;
+  }
+
+  // --- Progress ---
+
+  public long getCycles() {
+    return cycles;
+  }
+
+  /**
+   * Average rate of the current (or last) run.
+   */
+  public double getCyclesPerSecond() {
+    long end = (endNanos != 0) ? endNanos : System.nanoTime();
+    long elapsed = end - startNanos;
+    return (elapsed > 0) ? cycles * 1e9 / elapsed : 0;
+  }
+
+  /**
+   * Whether the last run ended because its stop condition held.
+   */
+  public boolean isConditionMet() {
+    return conditionMet;
+  }
+
+  // Shortest period if every clock is self-timed, else 0
+  private int selfTimedCycle() {
+    int shortest = 0;
+    for (Clock c : circuit.getClocks()) {
+      if (!c.isSelfTimed())
+        return 0;
+      if (shortest == 0 || c.getPeriod() < shortest)
+        shortest = c.getPeriod();
+    }
+    return shortest;
+  }
+
+  // Runs one period of the fastest self-timed clock
+  private boolean timedCycle(SimulationEngine engine) {
+    engine.run(cycleTicks);
+    return engine.getOscillation() == null;
+  }
+
+  // Toggles the clocks and settles; false if the circuit oscillates
+  private boolean halfCycle(SimulationEngine engine) {
+    circuit.tick();
+    long limit = engine.getTick() + settleLimit;
+    while (!engine.isStable() && !stopRequested) {
+      if (settleLimit > 0 && engine.getTick() >= limit)
+        return false;
+      engine.run(64);
+      if (engine.getOscillation() != null)
+        return false;
+    }
+    return true;
+  }
+}
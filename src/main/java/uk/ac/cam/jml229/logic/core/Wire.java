@@ -5,13 +5,35 @@ import java.util.List;
 import java.awt.Point;
 import uk.ac.cam.jml229.logic.components.Component;
 
+/**
+ * Connects one output pin to any number of inputs.
+ *
+ * A wire is as wide as the pin driving it: one bit for ordinary signals,
+ * up to 64 for a bus, whose whole value travels as a single event.
+ *
+ * In four-state runs a second plane marks bits that are X or Z (see
+ * FourState). Two-state drivers never set it, so it stays zero.
+ */
 public class Wire {
-  private boolean signal;
+  private final int width;
+  private final long mask;
+  private long value;
+  private long unknown;
   private Component source;
   private List<PortConnection> destinations = new ArrayList<>();
+  private SimulationEngine engine;
 
   public Wire(Component source) {
+    this(source, 1);
+  }
+
+  public Wire(Component source, int width) {
+    if (width < 1 || width > 64)
+      throw new IllegalArgumentException("Wire width must be 1-64, got " + width);
+    this.width = width;
+    this.mask = (width == 64) ? -1L : (1L << width) - 1;
     this.source = source;
+    this.engine = (source != null) ? source.getEngine() : Simulator.getDefault();
   }
 
   public static class PortConnection {
@@ -25,25 +47,129 @@ public class Wire {
     }
   }
 
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Whether any bit is set (for a plain wire, its signal).
+   */
   public boolean getSignal() {
-    return signal;
+    return value != 0;
+  }
+
+  public long getValue() {
+    return value;
+  }
+
+  /**
+   * Unknown plane: bits that are X or Z (see FourState).
+   */
+  public long getUnknown() {
+    return unknown;
+  }
+
+  /**
+   * Level of one bit as a FourState constant.
+   */
+  public int getLevel(int bit) {
+    return FourState.level(value, unknown, bit);
   }
 
   public void setSignal(boolean newSignal) {
+    setValue(newSignal ? 1L : 0L);
+  }
+
+  /**
+   * Drives a new value, truncated to the wire's width.
+   */
+  public void setValue(long newValue) {
+    if (unknown != 0) {
+      setState(newValue, 0);
+      return;
+    }
+    newValue &= mask;
     // Ensures it only updates if a change has occurred
-    if (signal == newSignal) {
+    if (value == newValue) {
+      return;
+    }
+    value = newValue;
+    engine.noteToggle(this);
+
+    // Indexed loop + primitive events: no per-destination allocation
+    if (width == 1) {
+      boolean signal = newValue != 0;
+      for (int i = 0, n = destinations.size(); i < n; i++) {
+        PortConnection pc = destinations.get(i);
+        engine.propagate(pc.component, pc.inputIndex, signal);
+      }
+    } else {
+      for (int i = 0, n = destinations.size(); i < n; i++) {
+        PortConnection pc = destinations.get(i);
+        engine.propagateValue(pc.component, pc.inputIndex, newValue);
+      }
+    }
+  }
+
+  /**
+   * Drives a single-bit FourState level.
+   */
+  public void setLevel(int level) {
+    setState(level & 1, level >>> 1);
+  }
+
+  /**
+   * Drives both planes of a four-state value.
+   */
+  public void setState(long newValue, long newUnknown) {
+    newValue &= mask;
+    newUnknown &= mask;
+    if (value == newValue && unknown == newUnknown) {
       return;
     }
-    signal = newSignal;
+    value = newValue;
+    unknown = newUnknown;
+    engine.noteToggle(this);
 
-    for (PortConnection pc : destinations) {
-      // Capture the state and the target in a lambda
-      Simulator.enqueue(() -> {
-        pc.component.setInput(pc.inputIndex, signal);
-      });
+    if (width == 1) {
+      int level = (int) (newValue | newUnknown << 1);
+      for (int i = 0, n = destinations.size(); i < n; i++) {
+        PortConnection pc = destinations.get(i);
+        engine.propagateLevel(pc.component, pc.inputIndex, level);
+      }
+    } else {
+      for (int i = 0, n = destinations.size(); i < n; i++) {
+        PortConnection pc = destinations.get(i);
+        engine.propagateState(pc.component, pc.inputIndex, newValue, newUnknown);
+      }
     }
   }
 
+  public SimulationEngine getEngine() {
+    return engine;
+  }
+
+  public void setEngine(SimulationEngine engine) {
+    this.engine = engine;
+  }
+
+  /**
+   * Overwrites the signal without notifying destinations. Used to sync
+   * values computed by another engine back for rendering.
+   */
+  public void restoreSignal(boolean signal) {
+    restoreState(signal ? 1L : 0L, 0);
+  }
+
+  public void restoreValue(long value) {
+    restoreState(value, 0);
+  }
+
+  public void restoreState(long value, long unknown) {
+    this.value = value & mask;
+    this.unknown = unknown & mask;
+  }
+
   public void setSource(Component c) {
     source = c;
   }
@@ -54,10 +180,12 @@ public class Wire {
 
   public void addDestination(Component c, int inputIndex) {
     destinations.add(new PortConnection(c, inputIndex));
+    engine.invalidateTopology();
   }
 
   public void removeDestination(Component c, int inputIndex) {
     destinations.removeIf(connection -> connection.component == c && connection.inputIndex == inputIndex);
+    engine.invalidateTopology();
   }
 
   public List<PortConnection> getDestinations() {
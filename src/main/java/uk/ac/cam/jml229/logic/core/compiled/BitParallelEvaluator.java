@@ -0,0 +1,209 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import uk.ac.cam.jml229.logic.components.gates.GateKind;
+import uk.ac.cam.jml229.logic.components.io.OutputProbe;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.exceptions.UnsupportedComponentException;
+
+/**
+ * Evaluates an acyclic combinational circuit on 64 input vectors at once.
+ *
+ * Each net holds a {@code long} whose bit k is the net's value in test
+ * vector k, so one pass through the gates (in topological order, one
+ * {@link GateKind} fold per gate) simulates 64 patterns. Inputs are the
+ * circuit's Switches and outputs its OutputProbes, both ordered top to
+ * bottom like the pins of a CustomComponent.
+ *
+ * The evaluator itself is immutable; callers running it from several
+ * threads give each thread its own workspace.
+ */
+public class BitParallelEvaluator {
+
+  private final int netCount;
+  private final int zeroSlot; // Extra always-0 word for unconnected pins
+
+  private final List<Switch> inputs = new ArrayList<>();
+  private final List<OutputProbe> outputs = new ArrayList<>();
+  private final int[] inputNets;
+  private final int[] outputNets;
+
+  // Program: gates in topological order, fan-in stored CSR-style
+  private final GateKind[] ops;
+  private final int[] opOut;
+  private final int[] opInStart;
+  private final int[] opIn;
+
+  public static BitParallelEvaluator compile(Circuit circuit) {
+    return new BitParallelEvaluator(CircuitCompiler.compile(circuit, false, 0));
+  }
+
+  BitParallelEvaluator(CompiledCircuit cc) {
+    int n = cc.nodeCount;
+    this.netCount = cc.netCount;
+    this.zeroSlot = netCount;
+
+    // Fan-in per node, derived from the CSR fan-out
+    int[] inBase = new int[n + 1];
+    for (int i = 0; i < n; i++)
+      inBase[i + 1] = inBase[i] + cc.inputCount[i];
+    int[] fanIn = new int[inBase[n]];
+    Arrays.fill(fanIn, zeroSlot);
+    int[] indegree = new int[n];
+    for (int net = 0; net < netCount; net++) {
+      for (int f = cc.fanStart[net]; f < cc.fanStart[net + 1]; f++) {
+        int dest = cc.fanNode[f];
+        fanIn[inBase[dest] + cc.fanPin[f]] = net;
+        indegree[dest]++;
+      }
+    }
+
+    // Kahn's algorithm: gates become a straight-line program
+    int[] order = new int[n];
+    int head = 0, tail = 0;
+    for (int i = 0; i < n; i++) {
+      byte k = cc.kind[i];
+      if (k == CompiledCircuit.CLOCK || k == CompiledCircuit.D_FF
+          || k == CompiledCircuit.T_FF || k == CompiledCircuit.JK_FF)
+        throw new UnsupportedComponentException(cc.nameOf(i), "bit-parallel");
+      if (indegree[i] == 0)
+        order[tail++] = i;
+    }
+    while (head < tail) {
+      int node = order[head++];
+      for (int net = cc.outStart[node]; net < cc.outStart[node + 1]; net++) {
+        for (int f = cc.fanStart[net]; f < cc.fanStart[net + 1]; f++) {
+          if (--indegree[cc.fanNode[f]] == 0)
+            order[tail++] = cc.fanNode[f];
+        }
+      }
+    }
+    if (tail < n)
+      throw new IllegalArgumentException("Circuit contains a combinational loop; bit-parallel mode needs an acyclic circuit");
+
+    List<GateKind> opList = new ArrayList<>();
+    List<Integer> outList = new ArrayList<>();
+    List<Integer> startList = new ArrayList<>();
+    List<Integer> inList = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      int node = order[i];
+      GateKind gk = gateKindOf(cc.kind[node]);
+      if (gk == null)
+        continue; // Switches are inputs, displays are passive
+      opList.add(gk);
+      outList.add(cc.outStart[node]);
+      startList.add(inList.size());
+      for (int p = inBase[node]; p < inBase[node + 1]; p++)
+        inList.add(fanIn[p]);
+    }
+    startList.add(inList.size());
+
+    this.ops = opList.toArray(new GateKind[0]);
+    this.opOut = outList.stream().mapToInt(Integer::intValue).toArray();
+    this.opInStart = startList.stream().mapToInt(Integer::intValue).toArray();
+    this.opIn = inList.stream().mapToInt(Integer::intValue).toArray();
+
+    // Pins, ordered by position like CustomComponent
+    List<Integer> inNodes = new ArrayList<>();
+    List<Integer> outNodes = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      if (cc.componentAt(i) == null)
+        continue; // Inside a chip
+      if (cc.kind[i] == CompiledCircuit.SWITCH)
+        inNodes.add(i);
+      else if (cc.kind[i] == CompiledCircuit.PROBE)
+        outNodes.add(i);
+    }
+    Comparator<Integer> byY = Comparator.comparingInt(i -> cc.componentAt(i).getY());
+    inNodes.sort(byY);
+    outNodes.sort(byY);
+    this.inputNets = inNodes.stream().mapToInt(i -> cc.outStart[i]).toArray();
+    this.outputNets = outNodes.stream().mapToInt(i -> cc.outStart[i]).toArray();
+    for (int i : inNodes)
+      inputs.add((Switch) cc.componentAt(i));
+    for (int i : outNodes)
+      outputs.add((OutputProbe) cc.componentAt(i));
+  }
+
+  static GateKind gateKindOf(byte kind) {
+    return switch (kind) {
+      case CompiledCircuit.AND -> GateKind.AND;
+      case CompiledCircuit.OR -> GateKind.OR;
+      case CompiledCircuit.XOR -> GateKind.XOR;
+      case CompiledCircuit.NAND -> GateKind.NAND;
+      case CompiledCircuit.NOR -> GateKind.NOR;
+      case CompiledCircuit.NOT -> GateKind.NOT;
+      case CompiledCircuit.BUFFER, CompiledCircuit.PROBE -> GateKind.BUFFER;
+      default -> null;
+    };
+  }
+
+  // --- Word-level API ---
+
+  public long[] newWorkspace() {
+    return new long[netCount + 1];
+  }
+
+  /**
+   * Evaluates 64 vectors. Bit k of inputWords[i] is input i in vector k;
+   * bit k of outputWords[j] receives output j in vector k.
+   */
+  public void evaluate(long[] inputWords, long[] outputWords, long[] workspace) {
+    workspace[zeroSlot] = 0;
+    for (int i = 0; i < inputNets.length; i++)
+      workspace[inputNets[i]] = inputWords[i];
+    for (int op = 0; op < ops.length; op++)
+      workspace[opOut[op]] = ops[op].evaluate(workspace, opIn, opInStart[op], opInStart[op + 1]);
+    for (int j = 0; j < outputNets.length; j++)
+      outputWords[j] = workspace[outputNets[j]];
+  }
+
+  // --- Matrix API ---
+
+  /**
+   * Simulates every row of a stimulus matrix (row = vector, column = input)
+   * and returns the matching output matrix (row = vector, column = output).
+   */
+  public boolean[][] simulate(boolean[][] stimulus) {
+    boolean[][] result = new boolean[stimulus.length][outputNets.length];
+    long[] in = new long[inputNets.length];
+    long[] out = new long[outputNets.length];
+    long[] workspace = newWorkspace();
+
+    for (int base = 0; base < stimulus.length; base += 64) {
+      int lanes = Math.min(64, stimulus.length - base);
+      Arrays.fill(in, 0);
+      for (int lane = 0; lane < lanes; lane++) {
+        boolean[] row = stimulus[base + lane];
+        for (int i = 0; i < in.length; i++) {
+          if (row[i])
+            in[i] |= 1L << lane;
+        }
+      }
+      evaluate(in, out, workspace);
+      for (int lane = 0; lane < lanes; lane++) {
+        boolean[] row = result[base + lane];
+        for (int j = 0; j < out.length; j++)
+          row[j] = ((out[j] >>> lane) & 1) != 0;
+      }
+    }
+    return result;
+  }
+
+  public List<Switch> getInputs() {
+    return inputs;
+  }
+
+  public List<OutputProbe> getOutputs() {
+    return outputs;
+  }
+
+  public int getGateCount() {
+    return ops.length;
+  }
+}
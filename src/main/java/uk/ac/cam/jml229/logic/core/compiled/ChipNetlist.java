@@ -0,0 +1,360 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.EventScheduler;
+import uk.ac.cam.jml229.logic.core.HeapScheduler;
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
+import uk.ac.cam.jml229.logic.core.SimulationEngine;
+
+/**
+ * Compiled form of a chip definition, shared by every instance of it.
+ *
+ * The topology lives here once; an instance only owns a state vector of
+ * {@link #getStateBits()} bits: one per net of the flattened chip, plus
+ * the last clock level of each flip-flop (a flip-flop's Q is its output
+ * net, and every gate input is the net feeding it), plus a flag set while
+ * the last settle was cut short. Node evaluations still waiting for their
+ * delay are kept in the instance's {@link Pending}.
+ *
+ * Timing matches the chip inlined by {@link CircuitFlattener}: the pins add
+ * no delay, every node keeps its own delay on the host's timeline, and each
+ * tick runs in delta rounds (all nodes due evaluated against one snapshot,
+ * then committed together, as in CompiledCircuit), so flip-flops sharing a
+ * clock never see each other's new outputs on the same edge.
+ */
+public final class ChipNetlist {
+
+  final CompiledCircuit topology; // Its own simulation state is unused
+  private final int[] inStart; // node -> first entry in pinSource
+  private final int[] pinSource; // (node, pin) -> net feeding it, -1 if unconnected
+  private final int[] lastClockBit; // node -> state bit of a flip-flop's last clock, -1 otherwise
+  final int[] inputNets; // chip input -> net of its pin switch
+  final int[] outputDrivers; // chip output -> net feeding its probe, -1 if none
+  private final int unsettledBit; // Set when the last settle hit its budget
+  private final int stateBits;
+  private final long[] initialState;
+
+  private final ThreadLocal<Scratch> scratch;
+
+  // Buffers for one delta round, shared by every instance on a thread
+  private static final class Scratch {
+    final int[] batch;
+    final long[] batchOut;
+    final boolean[] inBatch;
+    final long[] state = new long[1]; // Flip-flop state handed to the evaluator
+
+    Scratch(int n) {
+      batch = new int[n];
+      batchOut = new long[n];
+      inBatch = new boolean[n];
+    }
+  }
+
+  /**
+   * Node evaluations an instance has booked on the host's timeline. Empty
+   * (and unallocated) while the chip is quiet.
+   */
+  public static final class Pending {
+    private HeapScheduler queue = null; // key = node
+    private long lastTick = -1; // Tick of the last update, to notice a cleared engine
+    private long wakeTick = -1; // Host update already booked for this tick
+
+    private void add(long tick, int node) {
+      if (queue == null)
+        queue = new HeapScheduler();
+      queue.add(tick, node, 0L);
+    }
+
+    public boolean isEmpty() {
+      return queue == null || queue.isEmpty();
+    }
+
+    public void clear() {
+      if (queue != null)
+        queue.clear();
+      wakeTick = -1;
+    }
+
+    /**
+     * Writes the booked evaluations as absolute ticks, which stay valid
+     * because checkpoints restore the engine's tick as well.
+     */
+    public void write(DataOutput out) throws IOException {
+      if (isEmpty()) {
+        out.writeInt(0);
+        return;
+      }
+      long[] events = new long[2 * queue.size()];
+      int[] n = { 0 };
+      queue.forEach((tick, key, value) -> {
+        events[n[0]++] = tick;
+        events[n[0]++] = key;
+      });
+      out.writeInt(queue.size());
+      for (long e : events)
+        out.writeLong(e);
+    }
+
+    public void read(DataInput in, int nodeCount) throws IOException {
+      clear();
+      lastTick = -1;
+      int count = in.readInt();
+      for (int i = 0; i < count; i++) {
+        long tick = in.readLong();
+        long node = in.readLong();
+        if (node < 0 || node >= nodeCount)
+          throw new IOException("Corrupt checkpoint chip event: " + node);
+        add(tick, (int) node);
+      }
+    }
+  }
+
+  private ChipNetlist(CompiledCircuit topology, int[] inputNodes, int[] outputNodes) {
+    this.topology = topology;
+    int n = topology.nodeCount;
+
+    inStart = new int[n + 1];
+    for (int i = 0; i < n; i++)
+      inStart[i + 1] = inStart[i] + topology.inputCount[i];
+    pinSource = new int[inStart[n]];
+    Arrays.fill(pinSource, -1);
+    for (int net = 0; net < topology.netCount; net++) {
+      for (int f = topology.fanStart[net]; f < topology.fanStart[net + 1]; f++)
+        pinSource[inStart[topology.fanNode[f]] + topology.fanPin[f]] = net;
+    }
+
+    int bits = topology.netCount;
+    lastClockBit = new int[n];
+    for (int i = 0; i < n; i++) {
+      byte k = topology.kind[i];
+      boolean flipFlop = k == CompiledCircuit.D_FF || k == CompiledCircuit.T_FF || k == CompiledCircuit.JK_FF;
+      lastClockBit[i] = flipFlop ? bits++ : -1;
+    }
+    unsettledBit = bits++;
+    stateBits = bits;
+
+    inputNets = new int[inputNodes.length];
+    for (int i = 0; i < inputNodes.length; i++)
+      inputNets[i] = topology.outStart[inputNodes[i]];
+    outputDrivers = new int[outputNodes.length];
+    for (int o = 0; o < outputNodes.length; o++)
+      outputDrivers[o] = pinSource[inStart[outputNodes[o]]];
+
+    scratch = ThreadLocal.withInitial(() -> new Scratch(n));
+
+    // Start from the template's values, settled with zero delay
+    initialState = new long[(stateBits + 63) >>> 6];
+    System.arraycopy(topology.netBits, 0, initialState, 0, topology.netBits.length);
+    for (int i = 0; i < n; i++) {
+      if (lastClockBit[i] >= 0)
+        setBit(initialState, lastClockBit[i], (topology.nodeState[i] & 2) != 0);
+    }
+    Pending p = new Pending();
+    for (int i = 0; i < n; i++)
+      p.add(0, i);
+    setBit(initialState, unsettledBit, !settle(initialState, p, 0, null));
+  }
+
+  /**
+   * Compiles a chip's template circuit. Nested chips are inlined from their
+   * own (already compiled) definitions.
+   *
+   * @param inputPins  the template's switches, in pin order
+   * @param outputPins the template's probes, in pin order
+   */
+  public static ChipNetlist compile(Circuit template, List<? extends Component> inputPins,
+      List<? extends Component> outputPins) {
+    CompiledCircuit cc = CircuitCompiler.compile(template, false, 0);
+    int[] in = inputPins.stream().mapToInt(cc::nodeOf).toArray();
+    int[] out = outputPins.stream().mapToInt(cc::nodeOf).toArray();
+    return new ChipNetlist(cc, in, out);
+  }
+
+  // --- Instances ---
+
+  /**
+   * A fresh state vector holding the template's (settled) values.
+   */
+  public long[] newState() {
+    return initialState.clone();
+  }
+
+  /**
+   * Reads the host's input pins into the state and runs every evaluation
+   * due on the host's current tick. Later ones stay in {@code pending},
+   * and the host is booked an update for the earliest of them.
+   *
+   * @return false if the chip oscillated within the tick and was cut short
+   */
+  public boolean update(long[] state, Pending pending, Component host) {
+    SimulationEngine engine = host.getEngine();
+    SimulationConfig config = engine.getConfig();
+    long now = engine.getTick();
+    if (now < pending.lastTick)
+      pending.clear(); // The engine was cleared: those ticks will never come
+    pending.lastTick = now;
+
+    for (int i = 0; i < inputNets.length; i++)
+      drive(state, inputNets[i], host.getInput(i), pending, now, config);
+    if (bit(state, unsettledBit)) {
+      // The dropped evaluations left nets stale; start again from every node
+      for (int i = 0; i < topology.nodeCount; i++)
+        pending.add(now + delay(i, config), i);
+    }
+    boolean settled = settle(state, pending, now, config);
+    setBit(state, unsettledBit, !settled);
+
+    long next = pending.isEmpty() ? Long.MAX_VALUE : pending.queue.peekTick();
+    if (next != Long.MAX_VALUE && next != pending.wakeTick) {
+      pending.wakeTick = next;
+      engine.scheduleUpdate(host, (int) Math.min(Integer.MAX_VALUE, next - now));
+    }
+    return settled;
+  }
+
+  public boolean getOutput(long[] state, int output) {
+    int net = outputDrivers[output];
+    return net >= 0 && bit(state, net);
+  }
+
+  public int getInputCount() {
+    return inputNets.length;
+  }
+
+  public int getOutputCount() {
+    return outputDrivers.length;
+  }
+
+  /**
+   * Size of an instance's state vector, in bits.
+   */
+  public int getStateBits() {
+    return stateBits;
+  }
+
+  public int getNodeCount() {
+    return topology.nodeCount;
+  }
+
+  // Delta rounds on one tick; a null config means zero delay throughout
+  private boolean settle(long[] state, Pending pending, long now, SimulationConfig config) {
+    Scratch s = scratch.get();
+    long budget = 64L * topology.nodeCount + 64; // Bounds an oscillating chip
+    while (!pending.isEmpty()) {
+      // Gather every node due now (once each)...
+      int size = 0;
+      long key;
+      while ((key = pending.queue.pollDue(now)) != EventScheduler.NONE) {
+        int node = (int) key;
+        if (s.inBatch[node])
+          continue;
+        s.inBatch[node] = true;
+        s.batch[size++] = node;
+      }
+      if (size == 0)
+        return true;
+      budget -= size;
+
+      // ...evaluate them all against the same nets...
+      for (int b = 0; b < size; b++)
+        s.batchOut[b] = evaluate(state, s.batch[b], s.state);
+
+      // ...then commit the results together
+      for (int b = 0; b < size; b++) {
+        int node = s.batch[b];
+        s.inBatch[node] = false;
+        long out = s.batchOut[b];
+        for (int net = topology.outStart[node], o = 0; net < topology.outStart[node + 1]; net++, o++)
+          drive(state, net, ((out >>> o) & 1) != 0, pending, now, config);
+      }
+      if (budget < 0) {
+        pending.clear();
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int delay(int node, SimulationConfig config) {
+    if (config == null || !config.propagationDelay())
+      return 0;
+    int custom = topology.customDelay[node];
+    return (custom >= 0) ? custom : config.gateDelay();
+  }
+
+  private long evaluate(long[] state, int node, long[] st) {
+    long in = 0;
+    for (int p = inStart[node]; p < inStart[node + 1]; p++) {
+      int net = pinSource[p];
+      if (net >= 0 && bit(state, net))
+        in |= 1L << (p - inStart[node]);
+    }
+    int last = lastClockBit[node];
+    st[0] = (bit(state, topology.outStart[node]) ? 1 : 0) | (last >= 0 && bit(state, last) ? 2 : 0);
+    long out = CompiledCircuit.evaluate(topology.kind[node], topology.inputCount[node], in, st, 0);
+    if (last >= 0)
+      setBit(state, last, (st[0] & 2) != 0);
+    return out;
+  }
+
+  private void drive(long[] state, int net, boolean value, Pending pending, long now, SimulationConfig config) {
+    if (bit(state, net) == value)
+      return;
+    setBit(state, net, value);
+    for (int f = topology.fanStart[net]; f < topology.fanStart[net + 1]; f++) {
+      int node = topology.fanNode[f];
+      pending.add(now + delay(node, config), node);
+    }
+  }
+
+  // --- Inlining (see CircuitFlattener) ---
+
+  /**
+   * Copies an instance's values into the block of a flattened netlist that
+   * starts at the given node and net.
+   */
+  void load(long[] state, CompiledCircuit into, int nodeBase, int netBase) {
+    for (int net = 0; net < topology.netCount; net++) {
+      if (bit(state, net))
+        into.netBits[(netBase + net) >>> 6] |= 1L << (netBase + net);
+    }
+    for (int i = 0; i < topology.nodeCount; i++) {
+      long q = bit(state, topology.outStart[i]) ? 1 : 0;
+      int last = lastClockBit[i];
+      into.nodeState[nodeBase + i] = (last >= 0 && bit(state, last)) ? q | 2 : q;
+    }
+  }
+
+  /**
+   * The reverse of {@link #load}. The pin nets are taken from the host,
+   * since the flattened netlist bypasses them.
+   */
+  void store(long[] state, Component host, CompiledCircuit from, int nodeBase, int netBase) {
+    for (int net = 0; net < topology.netCount; net++)
+      setBit(state, net, (from.netBits[(netBase + net) >>> 6] & (1L << (netBase + net))) != 0);
+    for (int i = 0; i < topology.nodeCount; i++) {
+      if (lastClockBit[i] >= 0)
+        setBit(state, lastClockBit[i], (from.nodeState[nodeBase + i] & 2) != 0);
+    }
+    for (int i = 0; i < inputNets.length; i++)
+      setBit(state, inputNets[i], host.getInput(i));
+  }
+
+  private static boolean bit(long[] bits, int i) {
+    return (bits[i >>> 6] & (1L << i)) != 0;
+  }
+
+  private static void setBit(long[] bits, int i, boolean value) {
+    if (value)
+      bits[i >>> 6] |= 1L << i;
+    else
+      bits[i >>> 6] &= ~(1L << i);
+  }
+}
@@ -0,0 +1,97 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import uk.ac.cam.jml229.logic.components.BusComponent;
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.components.gates.*;
+import uk.ac.cam.jml229.logic.components.io.*;
+import uk.ac.cam.jml229.logic.components.seq.*;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
+import uk.ac.cam.jml229.logic.exceptions.UnsupportedComponentException;
+
+/**
+ * Lowers a Circuit object graph into the flat arrays of a
+ * {@link CompiledCircuit}.
+ *
+ * CustomComponents are inlined from their shared definitions (see
+ * {@link CircuitFlattener}), every output pin becomes a net, numbered
+ * contiguously per node, and fan-out is stored in CSR form (net -> list of
+ * node/pin pairs). The current values of the object graph are copied in,
+ * so a running simulation can be handed over without losing state.
+ */
+public class CircuitCompiler {
+
+  /**
+   * Compiles using the propagation-delay settings of the circuit's engine.
+   */
+  public static CompiledCircuit compile(Circuit circuit) {
+    SimulationConfig config = circuit.getEngine().getConfig();
+    return compile(circuit, config.propagationDelay(), config.gateDelay());
+  }
+
+  /**
+   * @param delayEnabled when false every node evaluates with zero delay
+   * @param defaultDelay delay for components without a custom override
+   */
+  public static CompiledCircuit compile(Circuit circuit, boolean delayEnabled, int defaultDelay) {
+    // Chips are inlined, everything else with logic becomes a node
+    CircuitFlattener flat = new CircuitFlattener(circuit);
+    int[] delay = new int[flat.nodeCount];
+    for (int i = 0; i < flat.nodeCount; i++) {
+      if (flat.inputCount[i] > 64)
+        throw new UnsupportedComponentException(flat.components[i].getName(), "compiled");
+      if (delayEnabled)
+        delay[i] = (flat.customDelay[i] >= 0) ? flat.customDelay[i] : defaultDelay;
+    }
+
+    CompiledCircuit cc = new CompiledCircuit(flat.kind, flat.inputCount, delay, flat.customDelay, flat.outStart,
+        flat.fanStart, flat.fanNode, flat.fanPin, flat.components, flat.netWires);
+    cc.setChips(flat);
+    cc.loadStateFromComponents();
+    return cc;
+  }
+
+  static byte kindOf(Component c) {
+    // Nets are single bits: buses stay on the event-driven engine
+    if (c instanceof BusComponent bus && bus.getBusWidth() > 1)
+      throw new UnsupportedComponentException(c.getName(), "compiled");
+    // Order matters: OutputProbe is a UnaryGate, check it first
+    if (c instanceof Switch)
+      return CompiledCircuit.SWITCH;
+    if (c instanceof Clock)
+      return CompiledCircuit.CLOCK;
+    if (c instanceof OutputProbe)
+      return CompiledCircuit.PROBE;
+    if (c instanceof AndGate)
+      return CompiledCircuit.AND;
+    if (c instanceof OrGate)
+      return CompiledCircuit.OR;
+    if (c instanceof XorGate)
+      return CompiledCircuit.XOR;
+    if (c instanceof NandGate)
+      return CompiledCircuit.NAND;
+    if (c instanceof NorGate)
+      return CompiledCircuit.NOR;
+    if (c instanceof NotGate)
+      return CompiledCircuit.NOT;
+    if (c instanceof BufferGate)
+      return CompiledCircuit.BUFFER;
+    if (c instanceof DFlipFlop)
+      return CompiledCircuit.D_FF;
+    if (c instanceof TFlipFlop)
+      return CompiledCircuit.T_FF;
+    if (c instanceof JKFlipFlop)
+      return CompiledCircuit.JK_FF;
+    if (c instanceof SevenSegmentDisplay || c instanceof HexDisplay)
+      return CompiledCircuit.SINK;
+    throw new UnsupportedComponentException(c.getName(), "compiled");
+  }
+
+  static int outputCountOf(byte kind) {
+    return switch (kind) {
+      case CompiledCircuit.SINK -> 0;
+      case CompiledCircuit.D_FF, CompiledCircuit.T_FF, CompiledCircuit.JK_FF -> 2;
+      default -> 1;
+    };
+  }
+}
@@ -0,0 +1,217 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.components.CustomComponent;
+import uk.ac.cam.jml229.logic.components.misc.TextLabel;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.Wire;
+
+/**
+ * Lays out one circuit level as a flat netlist, inlining every
+ * CustomComponent.
+ *
+ * Top-level components become one node each. A chip contributes a copy of
+ * its definition's compiled netlist (see {@link ChipNetlist}), which is
+ * already flat, so nesting costs nothing here. The chip's pin switches stay
+ * in the block as dead nodes: whatever they fed is re-attached to the net
+ * driving that pin outside, and whatever reads a chip output reads the net
+ * feeding the matching probe inside. Nets therefore run straight across
+ * any number of chip boundaries.
+ *
+ * Block nodes have no Component of their own (definitions are shared), so
+ * their values are synced through the owning chip's state vector.
+ */
+final class CircuitFlattener {
+
+  // --- Nodes (Component is null inside chip blocks) ---
+  final int nodeCount;
+  final int netCount;
+  final byte[] kind;
+  final int[] inputCount;
+  final int[] customDelay; // -1 = use the default
+  final int[] outStart;
+  final Component[] components;
+  final Wire[] netWires;
+
+  // --- Fan-out (CSR over nets) ---
+  final int[] fanStart;
+  final int[] fanNode;
+  final int[] fanPin;
+
+  // --- Inlined chips ---
+  final CustomComponent[] chips;
+  final int[] chipNodeBase;
+  final int[][] chipInputNets; // Net driving each pin, or the dead pin net if undriven
+  final int[][] chipOutputNets; // Net behind each output, -1 if undriven
+
+  CircuitFlattener(Circuit circuit) {
+    List<Component> top = new ArrayList<>();
+    List<CustomComponent> chipList = new ArrayList<>();
+    int n = 0;
+    for (Component c : circuit.getComponents()) {
+      if (c instanceof TextLabel)
+        continue; // Carries no logic
+      top.add(c);
+      if (c instanceof CustomComponent chip) {
+        chipList.add(chip);
+        n += netlistOf(chip).topology.nodeCount;
+      } else {
+        n++;
+      }
+    }
+
+    nodeCount = n;
+    kind = new byte[n];
+    inputCount = new int[n];
+    customDelay = new int[n];
+    outStart = new int[n + 1];
+    components = new Component[n];
+    chips = chipList.toArray(new CustomComponent[0]);
+    chipNodeBase = new int[chips.length];
+
+    // Node layout, chips as contiguous blocks
+    Map<Component, Integer> leafIndex = new IdentityHashMap<>();
+    Map<Component, Integer> chipIndex = new IdentityHashMap<>();
+    int node = 0;
+    for (Component c : top) {
+      if (c instanceof CustomComponent chip) {
+        CompiledCircuit block = netlistOf(chip).topology;
+        int b = chipIndex.size();
+        chipIndex.put(chip, b);
+        chipNodeBase[b] = node;
+        for (int k = 0; k < block.nodeCount; k++, node++) {
+          kind[node] = block.kind[k];
+          inputCount[node] = block.inputCount[k];
+          customDelay[node] = block.customDelay[k];
+          outStart[node + 1] = outStart[node] + block.outStart[k + 1] - block.outStart[k];
+        }
+      } else {
+        leafIndex.put(c, node);
+        kind[node] = CircuitCompiler.kindOf(c);
+        inputCount[node] = c.getInputCount();
+        customDelay[node] = (c.getCustomDelay() != null) ? c.getCustomDelay() : -1;
+        outStart[node + 1] = outStart[node] + CircuitCompiler.outputCountOf(kind[node]);
+        components[node] = c;
+        node++;
+      }
+    }
+    netCount = outStart[n];
+    netWires = new Wire[netCount];
+
+    // Fan-out entries: chip interiors, then the wires of this level
+    int capacity = 0;
+    for (CustomComponent chip : chips)
+      capacity += netlistOf(chip).topology.fanNode.length;
+    for (Component c : top) {
+      for (int o = 0; o < c.getOutputCount(); o++) {
+        Wire w = c.getOutputWire(o);
+        if (w != null)
+          capacity += w.getDestinations().size();
+      }
+    }
+    int[] entryNet = new int[capacity];
+    int[] entryNode = new int[capacity];
+    int[] entryPin = new int[capacity];
+    int size = 0;
+
+    for (int b = 0; b < chips.length; b++) {
+      CompiledCircuit block = netlistOf(chips[b]).topology;
+      int nodeBase = chipNodeBase[b];
+      int netBase = outStart[nodeBase];
+      for (int net = 0; net < block.netCount; net++) {
+        for (int f = block.fanStart[net]; f < block.fanStart[net + 1]; f++, size++) {
+          entryNet[size] = netBase + net;
+          entryNode[size] = nodeBase + block.fanNode[f];
+          entryPin[size] = block.fanPin[f];
+        }
+      }
+    }
+
+    // A chip's pin net is an alias of whatever drives the pin outside
+    int[] alias = new int[netCount];
+    Arrays.fill(alias, -1);
+    int[][] outputDrivers = new int[chips.length][];
+    for (Component c : top) {
+      Integer leaf = leafIndex.get(c);
+      int outputs = (leaf != null) ? outStart[leaf + 1] - outStart[leaf] : netlistOf((CustomComponent) c).getOutputCount();
+      int[] drivers = new int[outputs];
+      for (int o = 0; o < outputs; o++) {
+        if (leaf != null) {
+          drivers[o] = outStart[leaf] + o;
+          netWires[drivers[o]] = c.getOutputWire(o);
+        } else {
+          int b = chipIndex.get(c);
+          int inner = netlistOf(chips[b]).outputDrivers[o];
+          drivers[o] = (inner >= 0) ? outStart[chipNodeBase[b]] + inner : -1;
+        }
+        Wire w = c.getOutputWire(o);
+        if (w == null || drivers[o] < 0)
+          continue;
+        for (Wire.PortConnection pc : w.getDestinations()) {
+          Integer dest = leafIndex.get(pc.component);
+          if (dest != null) {
+            entryNet[size] = drivers[o];
+            entryNode[size] = dest;
+            entryPin[size++] = pc.inputIndex;
+            continue;
+          }
+          Integer b = chipIndex.get(pc.component);
+          ChipNetlist target = (b != null) ? netlistOf(chips[b]) : null;
+          if (target != null && pc.inputIndex < target.getInputCount())
+            alias[outStart[chipNodeBase[b]] + target.inputNets[pc.inputIndex]] = drivers[o];
+        }
+      }
+      if (leaf == null)
+        outputDrivers[chipIndex.get(c)] = drivers;
+    }
+
+    // Resolve aliases (a chain through several pass-through chips included)
+    for (int i = 0; i < size; i++)
+      entryNet[i] = resolve(alias, entryNet[i], chips.length);
+    chipInputNets = new int[chips.length][];
+    chipOutputNets = new int[chips.length][];
+    for (int b = 0; b < chips.length; b++) {
+      ChipNetlist nl = netlistOf(chips[b]);
+      int netBase = outStart[chipNodeBase[b]];
+      chipInputNets[b] = new int[nl.getInputCount()];
+      for (int p = 0; p < chipInputNets[b].length; p++)
+        chipInputNets[b][p] = resolve(alias, netBase + nl.inputNets[p], chips.length);
+      chipOutputNets[b] = new int[outputDrivers[b].length];
+      for (int o = 0; o < chipOutputNets[b].length; o++) {
+        int d = outputDrivers[b][o];
+        chipOutputNets[b][o] = (d >= 0) ? resolve(alias, d, chips.length) : -1;
+      }
+    }
+
+    // CSR by net, keeping entry order
+    fanStart = new int[netCount + 1];
+    for (int i = 0; i < size; i++)
+      fanStart[entryNet[i] + 1]++;
+    for (int net = 0; net < netCount; net++)
+      fanStart[net + 1] += fanStart[net];
+    int[] fill = new int[netCount];
+    fanNode = new int[size];
+    fanPin = new int[size];
+    for (int i = 0; i < size; i++) {
+      int f = fanStart[entryNet[i]] + fill[entryNet[i]]++;
+      fanNode[f] = entryNode[i];
+      fanPin[f] = entryPin[i];
+    }
+  }
+
+  private static ChipNetlist netlistOf(CustomComponent chip) {
+    return chip.getDefinition().getNetlist();
+  }
+
+  private static int resolve(int[] alias, int net, int maxHops) {
+    for (int i = 0; i <= maxHops && alias[net] >= 0; i++)
+      net = alias[net];
+    return net;
+  }
+}
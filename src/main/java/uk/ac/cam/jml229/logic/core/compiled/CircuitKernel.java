@@ -0,0 +1,17 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+/**
+ * One settle pass of a circuit, as generated by {@link KernelGenerator}.
+ */
+public interface CircuitKernel {
+
+  /**
+   * Evaluates every gate once in topological order, then clocks the
+   * flip-flops.
+   *
+   * @param state net values and flip-flop bookkeeping (see KernelProgram)
+   * @return non-zero if any flip-flop output changed, i.e. another pass is
+   *         needed before the circuit is settled
+   */
+  long eval(long[] state);
+}
@@ -0,0 +1,465 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.components.CustomComponent;
+import uk.ac.cam.jml229.logic.core.EventScheduler;
+import uk.ac.cam.jml229.logic.core.TimingWheelScheduler;
+import uk.ac.cam.jml229.logic.core.Wire;
+
+/**
+ * Struct-of-arrays netlist with a switch-based evaluator.
+ *
+ * Nodes are identified by index into flat arrays (kind code, input count,
+ * delay, packed input bits, sequential state); every output pin is a net
+ * whose value lives in one bitset, and fan-out is stored CSR-style. The
+ * evaluator never touches the Component objects: they become a view that
+ * is refreshed with {@link #syncToComponents()} when something needs to
+ * render them.
+ *
+ * Each tick is processed in delta rounds: all nodes due are evaluated
+ * against the current inputs, then all their output changes are committed
+ * together. Results therefore do not depend on evaluation order, which is
+ * what lets the partitioned engine reproduce them exactly.
+ */
+public class CompiledCircuit {
+
+  // --- Node Kinds ---
+  public static final byte SWITCH = 0;
+  public static final byte CLOCK = 1;
+  public static final byte AND = 2;
+  public static final byte OR = 3;
+  public static final byte XOR = 4;
+  public static final byte NAND = 5;
+  public static final byte NOR = 6;
+  public static final byte NOT = 7;
+  public static final byte BUFFER = 8;
+  public static final byte PROBE = 9;
+  public static final byte D_FF = 10;
+  public static final byte T_FF = 11;
+  public static final byte JK_FF = 12;
+  public static final byte SINK = 13;
+
+  // --- Topology (fixed after compilation) ---
+  final int nodeCount;
+  final int netCount;
+  final byte[] kind;
+  final int[] inputCount;
+  final int[] delay;
+  final int[] customDelay; // per-node override, -1 = default (kept for inlining into other netlists)
+  final int[] outStart; // node -> first net, nets of node i are [outStart[i], outStart[i+1])
+  final int[] fanStart; // net -> first fan-out entry
+  final int[] fanNode;
+  final int[] fanPin;
+  final int[] clockNodes;
+
+  // --- Simulation State ---
+  final long[] inputBits; // one word per node, bit i = input pin i
+  final long[] nodeState; // sequential state (see Component.getStateBits)
+  final long[] netBits; // bitset over net ids
+
+  // --- Scheduling ---
+  private final EventScheduler queue = new TimingWheelScheduler();
+  private final long[] queuedFor; // tick a node is queued for, -1 if none
+  private final int[] batch;
+  private final long[] batchOut;
+  private long currentTick = 0;
+  private long evaluations = 0;
+
+  // --- View Mapping ---
+  private final Component[] components;
+  private final Wire[] netWires;
+  private final Map<Component, Integer> nodeIndex = new IdentityHashMap<>();
+
+  // Chips inlined by CircuitFlattener, synced through their state vectors
+  private CustomComponent[] chips = new CustomComponent[0];
+  private int[] chipNodeBase = new int[0];
+  private int[][] chipInputNets = new int[0][];
+  private int[][] chipOutputNets = new int[0][];
+  private final Map<Component, Integer> chipIndex = new IdentityHashMap<>();
+
+  CompiledCircuit(byte[] kind, int[] inputCount, int[] delay, int[] customDelay, int[] outStart,
+      int[] fanStart, int[] fanNode, int[] fanPin, Component[] components, Wire[] netWires) {
+    this.nodeCount = kind.length;
+    this.netCount = outStart[nodeCount];
+    this.kind = kind;
+    this.inputCount = inputCount;
+    this.delay = delay;
+    this.customDelay = customDelay;
+    this.outStart = outStart;
+    this.fanStart = fanStart;
+    this.fanNode = fanNode;
+    this.fanPin = fanPin;
+    this.components = components;
+    this.netWires = netWires;
+
+    this.inputBits = new long[nodeCount];
+    this.nodeState = new long[nodeCount];
+    this.netBits = new long[(netCount + 63) >>> 6];
+    this.queuedFor = new long[nodeCount];
+    this.batch = new int[nodeCount];
+    this.batchOut = new long[nodeCount];
+    Arrays.fill(queuedFor, -1);
+
+    // Only top-level clocks tick, as with Circuit.tick
+    int clocks = 0;
+    for (int i = 0; i < nodeCount; i++) {
+      if (components[i] == null)
+        continue;
+      nodeIndex.put(components[i], i);
+      if (kind[i] == CLOCK)
+        clocks++;
+    }
+    this.clockNodes = new int[clocks];
+    for (int i = 0, k = 0; i < nodeCount; i++) {
+      if (kind[i] == CLOCK && components[i] != null)
+        clockNodes[k++] = i;
+    }
+  }
+
+  void setChips(CircuitFlattener flat) {
+    chips = flat.chips;
+    chipNodeBase = flat.chipNodeBase;
+    chipInputNets = flat.chipInputNets;
+    chipOutputNets = flat.chipOutputNets;
+    for (int b = 0; b < chips.length; b++)
+      chipIndex.put(chips[b], b);
+  }
+
+  // --- Running ---
+
+  /**
+   * Advances the simulation by the given number of ticks.
+   */
+  public void run(int ticks) {
+    for (int i = 0; i < ticks; i++) {
+      processTick();
+      currentTick++;
+    }
+  }
+
+  /**
+   * Runs until no events are pending or the tick limit is reached.
+   *
+   * @return true if the circuit settled
+   */
+  public boolean runUntilStable(int maxTicks) {
+    for (int i = 0; i < maxTicks && !queue.isEmpty(); i++) {
+      processTick();
+      currentTick++;
+    }
+    return queue.isEmpty();
+  }
+
+  private void processTick() {
+    while (true) {
+      // Gather every node due now...
+      int size = 0;
+      long key;
+      while ((key = queue.pollDue(currentTick)) != EventScheduler.NONE) {
+        int node = (int) key;
+        queuedFor[node] = -1;
+        batch[size++] = node;
+      }
+      if (size == 0)
+        return;
+
+      // ...evaluate them all against the same input snapshot...
+      for (int b = 0; b < size; b++)
+        batchOut[b] = evaluate(batch[b]);
+      evaluations += size;
+
+      // ...then publish the results together
+      for (int b = 0; b < size; b++) {
+        int node = batch[b];
+        long out = batchOut[b];
+        for (int net = outStart[node], o = 0; net < outStart[node + 1]; net++, o++)
+          driveNet(net, ((out >>> o) & 1) != 0);
+      }
+    }
+  }
+
+  private long evaluate(int node) {
+    return evaluate(kind[node], inputCount[node], inputBits[node], nodeState, node);
+  }
+
+  /**
+   * Computes a node's outputs (bit i = output i) and updates its state.
+   * Static so every backend sharing this netlist format evaluates nodes
+   * the same way.
+   */
+  static long evaluate(byte kind, int count, long in, long[] nodeState, int node) {
+    long mask = (count == 64) ? -1L : (1L << count) - 1;
+
+    switch (kind) {
+      case AND:
+        return ((in & mask) == mask) ? 1 : 0;
+      case OR:
+        return ((in & mask) != 0) ? 1 : 0;
+      case XOR:
+        return Long.bitCount(in & mask) & 1;
+      case NAND:
+        return ((in & mask) == mask) ? 0 : 1;
+      case NOR:
+        return ((in & mask) != 0) ? 0 : 1;
+      case NOT:
+        return ~in & 1;
+      case BUFFER:
+      case PROBE:
+        return in & 1;
+      case D_FF:
+      case T_FF:
+      case JK_FF:
+        return evaluateFlipFlop(kind, in, nodeState, node);
+      case SWITCH:
+      case CLOCK:
+        return nodeState[node] & 1;
+      default:
+        return 0;
+    }
+  }
+
+  // Inputs: D/T/J at pin 0, clock at pin 1, K at pin 2. Outputs: Q, !Q.
+  private static long evaluateFlipFlop(byte kind, long in, long[] nodeState, int node) {
+    long st = nodeState[node];
+    boolean q = (st & 1) != 0;
+    boolean lastClock = (st & 2) != 0;
+    boolean clk = (in & 2) != 0;
+
+    if (clk && !lastClock) {
+      boolean a = (in & 1) != 0;
+      switch (kind) {
+        case D_FF -> q = a;
+        case T_FF -> q ^= a;
+        default -> {
+          boolean k = (in & 4) != 0;
+          if (a && k)
+            q = !q;
+          else if (a)
+            q = true;
+          else if (k)
+            q = false;
+        }
+      }
+    }
+    nodeState[node] = (q ? 1 : 0) | (clk ? 2 : 0);
+    return q ? 1 : 2;
+  }
+
+  // Sets a net and, if it changed, forwards the new value to its fan-out
+  private void driveNet(int net, boolean value) {
+    long bit = 1L << net;
+    int word = net >>> 6;
+    if (((netBits[word] & bit) != 0) == value)
+      return;
+    netBits[word] ^= bit;
+
+    for (int f = fanStart[net]; f < fanStart[net + 1]; f++) {
+      int dest = fanNode[f];
+      long pinBit = 1L << fanPin[f];
+      if (value)
+        inputBits[dest] |= pinBit;
+      else
+        inputBits[dest] &= ~pinBit;
+      schedule(dest, currentTick + delay[dest]);
+    }
+  }
+
+  private void schedule(int node, long tick) {
+    // Several inputs changing for the same tick only need one evaluation
+    if (queuedFor[node] == tick)
+      return;
+    queuedFor[node] = tick;
+    queue.add(tick, node, 0);
+  }
+
+  // --- Stimulus ---
+
+  /**
+   * Toggles every clock once (the compiled equivalent of Circuit.tick).
+   */
+  public void tickClocks() {
+    for (int node : clockNodes) {
+      nodeState[node] ^= 1;
+      driveNet(outStart[node], (nodeState[node] & 1) != 0);
+    }
+  }
+
+  public void setSwitch(Component sw, boolean on) {
+    int node = nodeOf(sw);
+    if (kind[node] != SWITCH)
+      throw new IllegalArgumentException(sw.getName() + " is not a switch");
+    nodeState[node] = on ? 1 : 0;
+    driveNet(outStart[node], on);
+  }
+
+  // --- Observation ---
+
+  /**
+   * Reads an output of a top-level component, chips included.
+   */
+  public boolean getOutput(Component c, int outputIndex) {
+    int net = netOf(c, outputIndex);
+    return net >= 0 && (netBits[net >>> 6] & (1L << net)) != 0;
+  }
+
+  // Net behind an output pin, or -1 for an undriven chip output
+  int netOf(Component c, int outputIndex) {
+    Integer node = nodeIndex.get(c);
+    if (node != null)
+      return outStart[node] + outputIndex;
+    Integer b = chipIndex.get(c);
+    if (b == null)
+      throw new IllegalArgumentException(c.getName() + " is not part of this compiled circuit");
+    return chipOutputNets[b][outputIndex];
+  }
+
+  public boolean getInput(Component c, int inputIndex) {
+    Integer b = chipIndex.get(c);
+    if (b != null)
+      return netValue(chipInputNets[b][inputIndex]);
+    return (inputBits[nodeOf(c)] & (1L << inputIndex)) != 0;
+  }
+
+  /**
+   * The component behind a node, or null for a node inside an inlined chip.
+   */
+  Component componentAt(int node) {
+    return components[node];
+  }
+
+  // Name for error messages: the component, or the chip a node belongs to
+  String nameOf(int node) {
+    if (components[node] != null)
+      return components[node].getName();
+    int b = chips.length - 1;
+    while (b > 0 && chipNodeBase[b] > node)
+      b--;
+    return chips[b].getName();
+  }
+
+  int nodeOf(Component c) {
+    Integer node = nodeIndex.get(c);
+    if (node == null)
+      throw new IllegalArgumentException(c.getName() + " is not part of this compiled circuit");
+    return node;
+  }
+
+  public boolean isStable() {
+    return queue.isEmpty();
+  }
+
+  public long getTick() {
+    return currentTick;
+  }
+
+  /**
+   * Total node evaluations performed so far.
+   */
+  public long getEvaluationCount() {
+    return evaluations;
+  }
+
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  public int getNetCount() {
+    return netCount;
+  }
+
+  // --- Sync with the Object Graph ---
+
+  /**
+   * Copies the current values out of the Component/Wire objects and queues
+   * every node for one evaluation so the arrays are self-consistent.
+   */
+  void loadStateFromComponents() {
+    for (int i = 0; i < nodeCount; i++) {
+      Component c = components[i];
+      if (c == null)
+        continue;
+      long mask = (inputCount[i] == 64) ? -1L : (1L << inputCount[i]) - 1;
+      inputBits[i] = c.getInputBits() & mask;
+      nodeState[i] = c.getStateBits();
+    }
+    for (int net = 0; net < netCount; net++) {
+      if (netWires[net] != null && netWires[net].getSignal())
+        netBits[net >>> 6] |= 1L << net;
+    }
+
+    // Chip interiors come from each instance's state vector
+    for (int b = 0; b < chips.length; b++) {
+      ChipNetlist nl = chips[b].getDefinition().getNetlist();
+      nl.load(chips[b].getState(), this, chipNodeBase[b], outStart[chipNodeBase[b]]);
+    }
+    for (int net = 0; net < netCount; net++) {
+      if (!netValue(net))
+        continue;
+      for (int f = fanStart[net]; f < fanStart[net + 1]; f++) {
+        if (components[fanNode[f]] == null)
+          inputBits[fanNode[f]] |= 1L << fanPin[f];
+      }
+    }
+    for (int i = 0; i < nodeCount; i++)
+      schedule(i, currentTick);
+  }
+
+  /**
+   * Overwrites every net (non-zero word = high) and the input bits derived
+   * from them without scheduling anything. Used by backends that keep
+   * their own copy of the state and reuse this class for syncing.
+   */
+  void loadNetValues(long[] words) {
+    Arrays.fill(netBits, 0);
+    Arrays.fill(inputBits, 0);
+    for (int net = 0; net < netCount; net++) {
+      if (words[net] == 0)
+        continue;
+      netBits[net >>> 6] |= 1L << net;
+      for (int f = fanStart[net]; f < fanStart[net + 1]; f++)
+        inputBits[fanNode[f]] |= 1L << fanPin[f];
+    }
+  }
+
+  /**
+   * Writes the compiled state back into the Component/Wire objects so the
+   * renderer (or anything else reading them) sees the current values.
+   * No events are generated.
+   */
+  public void syncToComponents() {
+    for (int i = 0; i < nodeCount; i++) {
+      Component c = components[i];
+      if (c == null)
+        continue;
+      c.restoreStateBits(nodeState[i]);
+      for (int p = 0; p < inputCount[i]; p++)
+        c.restoreInput(p, (inputBits[i] & (1L << p)) != 0);
+    }
+    for (int net = 0; net < netCount; net++) {
+      if (netWires[net] != null)
+        netWires[net].restoreSignal(netValue(net));
+    }
+
+    // Inlined chips: pins, output wires and the state vector
+    for (int b = 0; b < chips.length; b++) {
+      CustomComponent chip = chips[b];
+      for (int p = 0; p < chipInputNets[b].length; p++)
+        chip.restoreInput(p, netValue(chipInputNets[b][p]));
+      for (int o = 0; o < chipOutputNets[b].length; o++) {
+        Wire w = chip.getOutputWire(o);
+        if (w != null)
+          w.restoreSignal(chipOutputNets[b][o] >= 0 && netValue(chipOutputNets[b][o]));
+      }
+      chip.getDefinition().getNetlist().store(chip.getState(), chip, this, chipNodeBase[b], outStart[chipNodeBase[b]]);
+      chip.getPending().clear(); // Events still in flight here were not carried back
+    }
+  }
+
+  private boolean netValue(int net) {
+    return (netBits[net >>> 6] & (1L << net)) != 0;
+  }
+}
@@ -0,0 +1,143 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.core.Circuit;
+
+/**
+ * Cycle-based simulation backend for long headless runs: the circuit is
+ * turned into a hidden class whose {@code eval} is straight-line code with
+ * one expression per gate (see {@link KernelGenerator}).
+ *
+ * Semantics are zero-delay: every call settles the combinational logic and
+ * clocks the flip-flops until nothing changes. The kernel is regenerated
+ * automatically when the circuit's structure version changes, after the
+ * current values have been written back so none are lost.
+ */
+public class GeneratedCircuit {
+
+  private final Circuit circuit;
+  private int structureVersion;
+
+  private CompiledCircuit layout; // Net numbering and sync with the objects
+  private KernelProgram program;
+  private CircuitKernel kernel;
+  private long[] state;
+  private long passes = 0;
+
+  public GeneratedCircuit(Circuit circuit) {
+    this.circuit = circuit;
+    rebuild();
+  }
+
+  private void ensureCurrent() {
+    if (circuit.getStructureVersion() != structureVersion) {
+      syncToComponents();
+      rebuild();
+    }
+  }
+
+  private void rebuild() {
+    structureVersion = circuit.getStructureVersion();
+    layout = CircuitCompiler.compile(circuit, false, 0);
+    program = KernelProgram.from(layout);
+    kernel = KernelGenerator.generate(program);
+
+    state = new long[program.stateSize];
+    for (int net = 0; net < layout.netCount; net++)
+      state[net] = ((layout.netBits[net >>> 6] >>> net) & 1) != 0 ? -1L : 0L;
+    for (int node = 0; node < layout.nodeCount; node++) {
+      byte k = layout.kind[node];
+      if (k == CompiledCircuit.SWITCH || k == CompiledCircuit.CLOCK)
+        state[layout.outStart[node]] = word(layout.nodeState[node] & 1);
+    }
+    for (int f = 0; f < program.flipFlopNodes.length; f++) {
+      int node = program.flipFlopNodes[f];
+      long st = layout.nodeState[node];
+      state[layout.outStart[node]] = word(st & 1);
+      state[layout.outStart[node] + 1] = ~word(st & 1);
+      state[program.lastSlot[f]] = word(st & 2);
+    }
+    settle();
+  }
+
+  // --- Running ---
+
+  /**
+   * Evaluates until no flip-flop changes. A chain of n flip-flops clocking
+   * each other needs n passes; anything still changing after that is
+   * oscillating.
+   *
+   * @return true if the circuit settled
+   */
+  public boolean settle() {
+    ensureCurrent();
+    int limit = program.flipFlopNodes.length + 1;
+    for (int i = 0; i < limit; i++) {
+      passes++;
+      if (kernel.eval(state) == 0)
+        return true;
+    }
+    return false;
+  }
+
+  /**
+   * Toggles every clock once and settles, like Circuit.tick followed by
+   * running the engine to stability.
+   */
+  public void tick() {
+    ensureCurrent();
+    for (int node : layout.clockNodes)
+      state[layout.outStart[node]] = ~state[layout.outStart[node]];
+    settle();
+  }
+
+  public void run(int ticks) {
+    for (int i = 0; i < ticks; i++)
+      tick();
+  }
+
+  // --- Stimulus and Observation ---
+
+  public void setSwitch(Component sw, boolean on) {
+    ensureCurrent();
+    int node = layout.nodeOf(sw);
+    if (layout.kind[node] != CompiledCircuit.SWITCH)
+      throw new IllegalArgumentException(sw.getName() + " is not a switch");
+    state[layout.outStart[node]] = on ? -1L : 0L;
+    settle();
+  }
+
+  public boolean getOutput(Component c, int outputIndex) {
+    ensureCurrent();
+    int net = layout.netOf(c, outputIndex);
+    return net >= 0 && state[net] != 0;
+  }
+
+  /**
+   * Number of kernel passes run so far.
+   */
+  public long getPassCount() {
+    return passes;
+  }
+
+  /**
+   * Writes the current values back into the Component/Wire objects.
+   */
+  public void syncToComponents() {
+    for (int node = 0; node < layout.nodeCount; node++) {
+      byte k = layout.kind[node];
+      if (k == CompiledCircuit.SWITCH || k == CompiledCircuit.CLOCK)
+        layout.nodeState[node] = state[layout.outStart[node]] & 1;
+    }
+    for (int f = 0; f < program.flipFlopNodes.length; f++) {
+      int node = program.flipFlopNodes[f];
+      layout.nodeState[node] = (state[layout.outStart[node]] & 1) | (state[program.lastSlot[f]] & 2);
+    }
+    layout.loadNetValues(state);
+    layout.syncToComponents();
+  }
+
+  private static long word(long bit) {
+    return (bit != 0) ? -1L : 0L;
+  }
+}
@@ -0,0 +1,238 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import static java.lang.classfile.ClassFile.ACC_FINAL;
+import static java.lang.classfile.ClassFile.ACC_PRIVATE;
+import static java.lang.classfile.ClassFile.ACC_PUBLIC;
+import static java.lang.classfile.ClassFile.ACC_STATIC;
+import static java.lang.classfile.ClassFile.ACC_SUPER;
+import static java.lang.constant.ConstantDescs.CD_Object;
+import static java.lang.constant.ConstantDescs.CD_long;
+import static java.lang.constant.ConstantDescs.INIT_NAME;
+import static java.lang.constant.ConstantDescs.MTD_void;
+
+import java.lang.classfile.ClassBuilder;
+import java.lang.classfile.ClassFile;
+import java.lang.classfile.CodeBuilder;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+
+import uk.ac.cam.jml229.logic.components.gates.GateKind;
+
+/**
+ * Turns a {@link KernelProgram} into bytecode with the ClassFile API and
+ * loads it as a hidden class.
+ *
+ * Every gate becomes one expression over the state array, e.g.
+ * {@code s[9] = ~(s[3] & s[4])}, with net numbers baked in as constants,
+ * so the JIT sees the whole netlist as straight-line code. Methods are cut
+ * well below HotSpot's 8000-byte limit on compiling huge methods, and very
+ * large netlists are spread over several classes to stay clear of the
+ * constant pool limit.
+ */
+final class KernelGenerator {
+
+  private static final ClassDesc CD_KERNEL = ClassDesc.of(CircuitKernel.class.getName());
+  private static final ClassDesc CD_SELF = ClassDesc.of(KernelGenerator.class.getPackageName() + ".GeneratedKernel");
+  private static final MethodTypeDesc MTD_EVAL = MethodTypeDesc.of(CD_long, CD_long.arrayType());
+
+  private static final int METHOD_BYTES = 6000; // Estimated code size per method
+  private static final int CLASS_METHODS = 48;
+
+  // Locals of every chunk method: s, rise (2 slots), changed (2 slots)
+  private static final int S = 0;
+  private static final int RISE = 1;
+  private static final int CHANGED = 3;
+
+  private KernelGenerator() {
+  }
+
+  static CircuitKernel generate(KernelProgram program) {
+    // Split into methods by estimated size, and methods into classes
+    List<int[]> methods = new ArrayList<>();
+    int from = 0, bytes = 0;
+    for (int i = 0; i < program.size(); i++) {
+      bytes += 16 + 6 * (program.argStart[i + 1] - program.argStart[i]);
+      if (bytes > METHOD_BYTES) {
+        methods.add(new int[] { from, i + 1 });
+        from = i + 1;
+        bytes = 0;
+      }
+    }
+    if (from < program.size() || methods.isEmpty())
+      methods.add(new int[] { from, program.size() });
+
+    List<CircuitKernel> parts = new ArrayList<>();
+    for (int m = 0; m < methods.size(); m += CLASS_METHODS)
+      parts.add(define(program, methods.subList(m, Math.min(methods.size(), m + CLASS_METHODS))));
+    if (parts.size() == 1)
+      return parts.get(0);
+
+    CircuitKernel[] chain = parts.toArray(new CircuitKernel[0]);
+    return state -> {
+      long changed = 0;
+      for (CircuitKernel k : chain)
+        changed |= k.eval(state);
+      return changed;
+    };
+  }
+
+  private static CircuitKernel define(KernelProgram program, List<int[]> methods) {
+    byte[] bytes = ClassFile.of().build(CD_SELF, clb -> {
+      clb.withFlags(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+      clb.withInterfaceSymbols(CD_KERNEL);
+      clb.withMethodBody(INIT_NAME, MTD_void, ACC_PUBLIC, cb -> cb
+          .aload(0)
+          .invokespecial(CD_Object, INIT_NAME, MTD_void)
+          .return_());
+
+      for (int m = 0; m < methods.size(); m++) {
+        int[] range = methods.get(m);
+        emitChunk(clb, "pass" + m, program, range[0], range[1]);
+      }
+
+      clb.withMethodBody("eval", MTD_EVAL, ACC_PUBLIC | ACC_FINAL, cb -> {
+        cb.lconst_0();
+        for (int m = 0; m < methods.size(); m++) {
+          cb.aload(1);
+          cb.invokestatic(CD_SELF, "pass" + m, MTD_EVAL);
+          cb.lor();
+        }
+        cb.lreturn();
+      });
+    });
+
+    try {
+      Class<?> kernel = MethodHandles.lookup().defineHiddenClass(bytes, true).lookupClass();
+      return (CircuitKernel) kernel.getConstructor().newInstance();
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Failed to load generated circuit kernel", e);
+    }
+  }
+
+  // --- Code Emission ---
+
+  private static void emitChunk(ClassBuilder clb, String name, KernelProgram p, int from, int to) {
+    clb.withMethodBody(name, MTD_EVAL, ACC_PRIVATE | ACC_STATIC, cb -> {
+      cb.lconst_0();
+      cb.lstore(CHANGED);
+      for (int i = from; i < to; i++) {
+        int a = p.argStart[i];
+        switch (p.op[i]) {
+          case KernelProgram.SAMPLE_D, KernelProgram.SAMPLE_T, KernelProgram.SAMPLE_JK -> emitSample(cb, p, i, a);
+          case KernelProgram.COMMIT -> emitCommit(cb, p.args[a], p.args[a + 1], p.args[a + 2]);
+          default -> emitGate(cb, KernelProgram.GATES[p.op[i]], p.args, a, p.argStart[i + 1]);
+        }
+      }
+      cb.lload(CHANGED);
+      cb.lreturn();
+    });
+  }
+
+  // s[out] = [~](s[in0] op s[in1] op ...)
+  private static void emitGate(CodeBuilder cb, GateKind kind, int[] args, int from, int to) {
+    cb.aload(S);
+    index(cb, args[from]);
+    if (to - from == 1) {
+      cb.loadConstant(kind.identity());
+    } else {
+      load(cb, args[from + 1]);
+      for (int i = from + 2; i < to; i++) {
+        load(cb, args[i]);
+        switch (kind) {
+          case AND, NAND -> cb.land();
+          case XOR -> cb.lxor();
+          default -> cb.lor();
+        }
+      }
+    }
+    if (kind.isInverted())
+      not(cb);
+    cb.lastore();
+  }
+
+  // rise = clk & ~last; last = clk; next = (q & ~rise) | (value & rise)
+  private static void emitSample(CodeBuilder cb, KernelProgram p, int op, int a) {
+    int next = p.args[a], q = p.args[a + 1], clk = p.args[a + 2], last = p.args[a + 3], in = p.args[a + 4];
+
+    load(cb, clk);
+    load(cb, last);
+    not(cb);
+    cb.land();
+    cb.lstore(RISE);
+
+    cb.aload(S);
+    index(cb, last);
+    load(cb, clk);
+    cb.lastore();
+
+    cb.aload(S);
+    index(cb, next);
+    load(cb, q);
+    cb.lload(RISE);
+    not(cb);
+    cb.land();
+    switch (p.op[op]) {
+      case KernelProgram.SAMPLE_D -> load(cb, in);
+      case KernelProgram.SAMPLE_T -> {
+        load(cb, q);
+        load(cb, in);
+        cb.lxor();
+      }
+      default -> {
+        // J & ~q | ~K & q
+        load(cb, in);
+        load(cb, q);
+        not(cb);
+        cb.land();
+        load(cb, p.args[a + 5]);
+        not(cb);
+        load(cb, q);
+        cb.land();
+        cb.lor();
+      }
+    }
+    cb.lload(RISE);
+    cb.land();
+    cb.lor();
+    cb.lastore();
+  }
+
+  // changed |= next ^ q; q = next; nq = ~next
+  private static void emitCommit(CodeBuilder cb, int next, int q, int nq) {
+    load(cb, next);
+    load(cb, q);
+    cb.lxor();
+    cb.lload(CHANGED);
+    cb.lor();
+    cb.lstore(CHANGED);
+
+    cb.aload(S);
+    index(cb, q);
+    load(cb, next);
+    cb.lastore();
+
+    cb.aload(S);
+    index(cb, nq);
+    load(cb, next);
+    not(cb);
+    cb.lastore();
+  }
+
+  private static void load(CodeBuilder cb, int slot) {
+    cb.aload(S);
+    index(cb, slot);
+    cb.laload();
+  }
+
+  private static void index(CodeBuilder cb, int slot) {
+    cb.loadConstant(slot); // sipush below 32768, so no constant pool entry
+  }
+
+  private static void not(CodeBuilder cb) {
+    cb.loadConstant(-1L);
+    cb.lxor();
+  }
+}
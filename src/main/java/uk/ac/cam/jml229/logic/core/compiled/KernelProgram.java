@@ -0,0 +1,164 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import java.util.Arrays;
+
+import uk.ac.cam.jml229.logic.components.gates.GateKind;
+
+/**
+ * Straight-line evaluation schedule for one settle of a compiled circuit,
+ * the input to {@link KernelGenerator}.
+ *
+ * The state vector holds one word per net (0 = low, -1 = high), then a
+ * constant-zero word for unconnected pins, then two words per flip-flop:
+ * the clock level it last saw and its next Q. One pass runs every gate in
+ * topological order (flip-flop outputs count as sources), then samples all
+ * flip-flops and finally commits their new outputs, so a shift register
+ * moves one stage per edge whatever order the flip-flops come in.
+ */
+final class KernelProgram {
+
+  // --- Op Codes (gate ops reuse GateKind ordinals) ---
+  static final byte SAMPLE_D = 64; // next, q, clk, last, d
+  static final byte SAMPLE_T = 65; // next, q, clk, last, t
+  static final byte SAMPLE_JK = 66; // next, q, clk, last, j, k
+  static final byte COMMIT = 67; // next, q, nq
+
+  static final GateKind[] GATES = GateKind.values();
+
+  final int stateSize;
+  final int zeroSlot;
+  final byte[] op;
+  final int[] argStart; // operands of op i are args[argStart[i]..argStart[i+1])
+  final int[] args;
+
+  // Flip-flop bookkeeping for loading/syncing state
+  final int[] flipFlopNodes;
+  final int[] lastSlot;
+
+  private KernelProgram(int stateSize, int zeroSlot, byte[] op, int[] argStart, int[] args,
+      int[] flipFlopNodes, int[] lastSlot) {
+    this.stateSize = stateSize;
+    this.zeroSlot = zeroSlot;
+    this.op = op;
+    this.argStart = argStart;
+    this.args = args;
+    this.flipFlopNodes = flipFlopNodes;
+    this.lastSlot = lastSlot;
+  }
+
+  int size() {
+    return op.length;
+  }
+
+  /**
+   * Schedules a compiled circuit. Combinational loops cannot be written as
+   * straight-line code and are rejected.
+   */
+  static KernelProgram from(CompiledCircuit cc) {
+    int n = cc.nodeCount;
+    int zero = cc.netCount;
+
+    // Fan-in per node, unconnected pins read the zero slot
+    int[] inBase = new int[n + 1];
+    for (int i = 0; i < n; i++)
+      inBase[i + 1] = inBase[i] + cc.inputCount[i];
+    int[] fanIn = new int[inBase[n]];
+    Arrays.fill(fanIn, zero);
+    int[] indegree = new int[n];
+    for (int net = 0; net < cc.netCount; net++) {
+      for (int f = cc.fanStart[net]; f < cc.fanStart[net + 1]; f++) {
+        int dest = cc.fanNode[f];
+        fanIn[inBase[dest] + cc.fanPin[f]] = net;
+        if (!isFlipFlop(cc.kind[dest]))
+          indegree[dest]++;
+      }
+    }
+
+    // Kahn's algorithm; flip-flops break every path through them
+    int[] order = new int[n];
+    int head = 0, tail = 0, flipFlops = 0;
+    for (int i = 0; i < n; i++) {
+      if (isFlipFlop(cc.kind[i]))
+        flipFlops++;
+      if (indegree[i] == 0)
+        order[tail++] = i;
+    }
+    while (head < tail) {
+      int node = order[head++];
+      for (int net = cc.outStart[node]; net < cc.outStart[node + 1]; net++) {
+        for (int f = cc.fanStart[net]; f < cc.fanStart[net + 1]; f++) {
+          int dest = cc.fanNode[f];
+          if (!isFlipFlop(cc.kind[dest]) && --indegree[dest] == 0)
+            order[tail++] = dest;
+        }
+      }
+    }
+    if (tail < n)
+      throw new IllegalArgumentException("Circuit contains a combinational loop; generated code needs one through a flip-flop");
+
+    int[] ffNodes = new int[flipFlops];
+    int[] lastSlot = new int[flipFlops];
+    int stateSize = zero + 1 + 2 * flipFlops;
+
+    byte[] op = new byte[n + 2 * flipFlops];
+    int[] argStart = new int[op.length + 1];
+    int[] args = new int[inBase[n] + 2 * n + 8 * flipFlops];
+    int ops = 0, a = 0, f = 0;
+
+    // Combinational pass
+    for (int i = 0; i < n; i++) {
+      int node = order[i];
+      GateKind gk = BitParallelEvaluator.gateKindOf(cc.kind[node]);
+      if (gk == null) {
+        if (isFlipFlop(cc.kind[node])) {
+          ffNodes[f] = node;
+          lastSlot[f] = zero + 1 + 2 * f;
+          f++;
+        }
+        continue; // Sources and displays emit nothing here
+      }
+      op[ops] = (byte) gk.ordinal();
+      argStart[ops++] = a;
+      args[a++] = cc.outStart[node];
+      for (int p = inBase[node]; p < inBase[node + 1]; p++)
+        args[a++] = fanIn[p];
+    }
+
+    // Sample every flip-flop against the settled nets...
+    for (int k = 0; k < flipFlops; k++) {
+      int node = ffNodes[k];
+      int in = inBase[node];
+      op[ops] = switch (cc.kind[node]) {
+        case CompiledCircuit.D_FF -> SAMPLE_D;
+        case CompiledCircuit.T_FF -> SAMPLE_T;
+        default -> SAMPLE_JK;
+      };
+      argStart[ops++] = a;
+      args[a++] = lastSlot[k] + 1;
+      args[a++] = cc.outStart[node];
+      args[a++] = fanIn[in + 1];
+      args[a++] = lastSlot[k];
+      args[a++] = fanIn[in];
+      if (cc.kind[node] == CompiledCircuit.JK_FF)
+        args[a++] = fanIn[in + 2];
+    }
+
+    // ...then commit them together
+    for (int k = 0; k < flipFlops; k++) {
+      int node = ffNodes[k];
+      op[ops] = COMMIT;
+      argStart[ops++] = a;
+      args[a++] = lastSlot[k] + 1;
+      args[a++] = cc.outStart[node];
+      args[a++] = cc.outStart[node] + 1;
+    }
+    argStart[ops] = a;
+
+    return new KernelProgram(stateSize, zero, Arrays.copyOf(op, ops), Arrays.copyOf(argStart, ops + 1),
+        Arrays.copyOf(args, a), ffNodes, lastSlot);
+  }
+
+  static boolean isFlipFlop(byte kind) {
+    return kind == CompiledCircuit.D_FF || kind == CompiledCircuit.T_FF || kind == CompiledCircuit.JK_FF;
+  }
+}
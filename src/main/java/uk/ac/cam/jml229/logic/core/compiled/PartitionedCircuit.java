@@ -0,0 +1,375 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import java.util.Arrays;
+import java.util.concurrent.Semaphore;
+
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.EventScheduler;
+import uk.ac.cam.jml229.logic.core.TimingWheelScheduler;
+
+/**
+ * Multi-threaded version of {@link CompiledCircuit}.
+ *
+ * The netlist is split into partitions with few cut nets (see
+ * {@link Partitioner}), each owning its nodes' inputs, state, output nets
+ * and a local event queue, and each run by one thread. Every delta round
+ * goes through three phases separated by barriers:
+ * <ol>
+ * <li>each partition evaluates its due nodes against the current inputs;
+ * <li>each partition commits its outputs, updating local fan-out directly
+ * and posting changes for other partitions to per-pair outboxes;
+ * <li>each partition applies its inboxes, in partition order.
+ * </ol>
+ * This is exactly the compiled engine's delta-round semantics with the
+ * work split up, so results (including evaluation counts) are identical to
+ * the single-threaded engine for any number of threads.
+ *
+ * Between runs the worker threads sleep; call {@link #close()} to stop them.
+ */
+public class PartitionedCircuit implements AutoCloseable {
+
+  private final CompiledCircuit cc; // Topology, and syncing with the objects
+  private final int parts;
+  private final int[] partOf;
+  private final Partition[] partitions;
+  private final int cutNets;
+
+  // Node state, each entry written only by the owning partition
+  private final long[] inputBits;
+  private final long[] nodeState;
+  private final boolean[] netValue;
+  private final long[] queuedFor;
+
+  // --- Threads ---
+  private final SpinBarrier barrier;
+  private final boolean[][] flags; // per round parity, per partition
+  private final Thread[] workers;
+  private final Semaphore[] start;
+  private final Semaphore done = new Semaphore(0);
+  private volatile boolean closed = false;
+
+  // Current job, published to workers through the start semaphores
+  private long currentTick = 0;
+  private int jobTicks;
+  private boolean jobUntilStable;
+
+  private final class Partition {
+    final int id;
+    final EventScheduler queue = new TimingWheelScheduler();
+    int[] batch = new int[64];
+    long[] batchOut = new long[64];
+    int batchSize;
+    final long[][] outbox; // messages to partition q: dest << 8 | pin << 1 | value
+    final int[] outboxSize;
+    long evaluations;
+    long tickDone; // Ticks completed in the current job
+
+    Partition(int id) {
+      this.id = id;
+      this.outbox = new long[parts][16];
+      this.outboxSize = new int[parts];
+    }
+
+    // Phase 1
+    void evaluate(long tick) {
+      batchSize = 0;
+      long key;
+      while ((key = queue.pollDue(tick)) != EventScheduler.NONE) {
+        int node = (int) key;
+        queuedFor[node] = -1;
+        if (batchSize == batch.length) {
+          batch = Arrays.copyOf(batch, batchSize * 2);
+          batchOut = Arrays.copyOf(batchOut, batchSize * 2);
+        }
+        batch[batchSize++] = node;
+      }
+      for (int b = 0; b < batchSize; b++) {
+        int node = batch[b];
+        batchOut[b] = CompiledCircuit.evaluate(cc.kind[node], cc.inputCount[node], inputBits[node], nodeState, node);
+      }
+      evaluations += batchSize;
+    }
+
+    // Phase 2
+    void commit(long tick) {
+      for (int b = 0; b < batchSize; b++) {
+        int node = batch[b];
+        long out = batchOut[b];
+        for (int net = cc.outStart[node], o = 0; net < cc.outStart[node + 1]; net++, o++) {
+          boolean value = ((out >>> o) & 1) != 0;
+          if (netValue[net] == value)
+            continue;
+          netValue[net] = value;
+          for (int f = cc.fanStart[net]; f < cc.fanStart[net + 1]; f++) {
+            int dest = cc.fanNode[f];
+            int q = partOf[dest];
+            if (q == id)
+              applyInput(dest, cc.fanPin[f], value, tick);
+            else
+              post(q, ((long) dest << 8) | (cc.fanPin[f] << 1) | (value ? 1 : 0));
+          }
+        }
+      }
+    }
+
+    private void post(int q, long message) {
+      if (outboxSize[q] == outbox[q].length)
+        outbox[q] = Arrays.copyOf(outbox[q], outboxSize[q] * 2);
+      outbox[q][outboxSize[q]++] = message;
+    }
+
+    // Phase 3
+    void deliver(long tick) {
+      for (Partition src : partitions) {
+        long[] box = src.outbox[id];
+        int size = src.outboxSize[id];
+        for (int i = 0; i < size; i++) {
+          long m = box[i];
+          applyInput((int) (m >>> 8), (int) (m >>> 1) & 0x7F, (m & 1) != 0, tick);
+        }
+        src.outboxSize[id] = 0;
+      }
+    }
+  }
+
+  /**
+   * Compiles the circuit with the current delay settings and splits it
+   * for the given number of threads (the calling thread is one of them).
+   */
+  public PartitionedCircuit(Circuit circuit, int threads) {
+    this(CircuitCompiler.compile(circuit), threads);
+  }
+
+  /**
+   * Splits an already compiled circuit, starting from the values it was
+   * compiled with. The compiled circuit should not be run afterwards.
+   */
+  public PartitionedCircuit(CompiledCircuit cc, int threads) {
+    this.cc = cc;
+    this.parts = Math.max(1, Math.min(threads, Math.max(1, cc.nodeCount)));
+    this.partOf = Partitioner.partition(cc, parts);
+    this.partitions = new Partition[parts];
+    for (int p = 0; p < parts; p++)
+      partitions[p] = new Partition(p);
+
+    this.inputBits = cc.inputBits.clone();
+    this.nodeState = cc.nodeState.clone();
+    this.netValue = new boolean[cc.netCount];
+    for (int net = 0; net < cc.netCount; net++)
+      netValue[net] = ((cc.netBits[net >>> 6] >>> net) & 1) != 0;
+    this.queuedFor = new long[cc.nodeCount];
+    Arrays.fill(queuedFor, -1);
+
+    int cut = 0;
+    for (int node = 0; node < cc.nodeCount; node++) {
+      for (int net = cc.outStart[node]; net < cc.outStart[node + 1]; net++) {
+        for (int f = cc.fanStart[net]; f < cc.fanStart[net + 1]; f++) {
+          if (partOf[cc.fanNode[f]] != partOf[node]) {
+            cut++;
+            break;
+          }
+        }
+      }
+    }
+    this.cutNets = cut;
+
+    // Same starting point as CompiledCircuit: every node queued once
+    for (int node = 0; node < cc.nodeCount; node++)
+      schedule(node, currentTick);
+
+    this.barrier = new SpinBarrier(parts);
+    this.flags = new boolean[2][parts];
+    this.workers = new Thread[parts];
+    this.start = new Semaphore[parts];
+    for (int p = 1; p < parts; p++) {
+      int id = p;
+      start[p] = new Semaphore(0);
+      workers[p] = new Thread(() -> workerLoop(id), "sim-partition-" + p);
+      workers[p].setDaemon(true);
+      workers[p].start();
+    }
+  }
+
+  // --- Running ---
+
+  /**
+   * Advances the simulation by the given number of ticks.
+   */
+  public void run(int ticks) {
+    runJob(ticks, false);
+  }
+
+  /**
+   * Runs until no events are pending or the tick limit is reached.
+   *
+   * @return true if the circuit settled
+   */
+  public boolean runUntilStable(int maxTicks) {
+    if (!isStable())
+      runJob(maxTicks, true);
+    return isStable();
+  }
+
+  private void runJob(int ticks, boolean untilStable) {
+    if (closed)
+      throw new IllegalStateException("Partitioned circuit has been closed");
+    jobTicks = ticks;
+    jobUntilStable = untilStable;
+    for (int p = 1; p < parts; p++)
+      start[p].release(); // Publishes the job fields
+    runPartition(partitions[0]);
+    done.acquireUninterruptibly(parts - 1);
+    currentTick += partitions[0].tickDone;
+  }
+
+  private void workerLoop(int id) {
+    while (true) {
+      start[id].acquireUninterruptibly();
+      if (closed)
+        return;
+      runPartition(partitions[id]);
+      done.release();
+    }
+  }
+
+  private void runPartition(Partition p) {
+    long tick = currentTick;
+    int round = 0;
+    p.tickDone = 0;
+    for (int t = 0; t < jobTicks; t++) {
+      // Delta rounds until no partition has anything due this tick
+      while (true) {
+        p.evaluate(tick);
+        boolean[] active = flags[round++ & 1];
+        active[p.id] = p.batchSize > 0;
+        barrier.await();
+        if (!any(active))
+          break;
+        p.commit(tick);
+        barrier.await();
+        p.deliver(tick);
+        barrier.await();
+      }
+      tick++;
+      p.tickDone++;
+
+      if (jobUntilStable) {
+        boolean[] pending = flags[round++ & 1];
+        pending[p.id] = !p.queue.isEmpty();
+        barrier.await();
+        if (!any(pending))
+          return;
+      }
+    }
+  }
+
+  private static boolean any(boolean[] flags) {
+    for (boolean f : flags) {
+      if (f)
+        return true;
+    }
+    return false;
+  }
+
+  // Called by the owning partition only (or the caller while idle)
+  private void applyInput(int node, int pin, boolean value, long tick) {
+    long bit = 1L << pin;
+    if (value)
+      inputBits[node] |= bit;
+    else
+      inputBits[node] &= ~bit;
+    schedule(node, tick + cc.delay[node]);
+  }
+
+  private void schedule(int node, long tick) {
+    if (queuedFor[node] == tick)
+      return;
+    queuedFor[node] = tick;
+    partitions[partOf[node]].queue.add(tick, node, 0);
+  }
+
+  // --- Stimulus (between runs, from the calling thread) ---
+
+  public void setSwitch(Component sw, boolean on) {
+    int node = cc.nodeOf(sw);
+    if (cc.kind[node] != CompiledCircuit.SWITCH)
+      throw new IllegalArgumentException(sw.getName() + " is not a switch");
+    nodeState[node] = on ? 1 : 0;
+    driveNet(cc.outStart[node], on);
+  }
+
+  /**
+   * Toggles every clock once (the compiled equivalent of Circuit.tick).
+   */
+  public void tickClocks() {
+    for (int node : cc.clockNodes) {
+      nodeState[node] ^= 1;
+      driveNet(cc.outStart[node], (nodeState[node] & 1) != 0);
+    }
+  }
+
+  private void driveNet(int net, boolean value) {
+    if (netValue[net] == value)
+      return;
+    netValue[net] = value;
+    for (int f = cc.fanStart[net]; f < cc.fanStart[net + 1]; f++)
+      applyInput(cc.fanNode[f], cc.fanPin[f], value, currentTick);
+  }
+
+  // --- Observation ---
+
+  public boolean getOutput(Component c, int outputIndex) {
+    int net = cc.netOf(c, outputIndex);
+    return net >= 0 && netValue[net];
+  }
+
+  public boolean isStable() {
+    for (Partition p : partitions) {
+      if (!p.queue.isEmpty())
+        return false;
+    }
+    return true;
+  }
+
+  public long getTick() {
+    return currentTick;
+  }
+
+  public long getEvaluationCount() {
+    long total = 0;
+    for (Partition p : partitions)
+      total += p.evaluations;
+    return total;
+  }
+
+  public int getPartitionCount() {
+    return parts;
+  }
+
+  /**
+   * Nets with at least one destination outside their driver's partition.
+   */
+  public int getCutNetCount() {
+    return cutNets;
+  }
+
+  /**
+   * Writes the current values back into the Component/Wire objects.
+   */
+  public void syncToComponents() {
+    long[] words = new long[cc.netCount];
+    for (int net = 0; net < cc.netCount; net++)
+      words[net] = netValue[net] ? 1 : 0;
+    cc.loadNetValues(words);
+    System.arraycopy(nodeState, 0, cc.nodeState, 0, nodeState.length);
+    cc.syncToComponents();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    for (int p = 1; p < parts; p++)
+      start[p].release();
+  }
+}
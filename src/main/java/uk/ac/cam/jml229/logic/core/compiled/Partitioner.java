@@ -0,0 +1,100 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import java.util.Arrays;
+
+/**
+ * Splits a compiled netlist into balanced parts with few cut nets.
+ *
+ * Nodes are laid out in breadth-first order over the undirected netlist,
+ * so connected logic ends up adjacent, and the order is cut into equal
+ * slices. A greedy refinement pass then moves boundary nodes to the part
+ * holding most of their neighbours while keeping parts within 5% of the
+ * average size. Not optimal, but cheap and good enough for the locality
+ * that real designs (and CustomComponent boundaries) have.
+ */
+final class Partitioner {
+
+  private Partitioner() {
+  }
+
+  /**
+   * @return part index per node, in [0, parts)
+   */
+  static int[] partition(CompiledCircuit cc, int parts) {
+    int n = cc.nodeCount;
+    int[] part = new int[n];
+    if (parts <= 1 || n == 0)
+      return part;
+
+    // Undirected adjacency: driver <-> each fan-out node (CSR)
+    int[] driver = new int[cc.netCount];
+    for (int node = 0; node < n; node++) {
+      for (int net = cc.outStart[node]; net < cc.outStart[node + 1]; net++)
+        driver[net] = node;
+    }
+    int[] degree = new int[n + 1];
+    for (int net = 0; net < cc.netCount; net++) {
+      for (int f = cc.fanStart[net]; f < cc.fanStart[net + 1]; f++) {
+        degree[driver[net] + 1]++;
+        degree[cc.fanNode[f] + 1]++;
+      }
+    }
+    for (int i = 0; i < n; i++)
+      degree[i + 1] += degree[i];
+    int[] adj = new int[degree[n]];
+    int[] fill = new int[n];
+    for (int net = 0; net < cc.netCount; net++) {
+      int d = driver[net];
+      for (int f = cc.fanStart[net]; f < cc.fanStart[net + 1]; f++) {
+        int dest = cc.fanNode[f];
+        adj[degree[d] + fill[d]++] = dest;
+        adj[degree[dest] + fill[dest]++] = d;
+      }
+    }
+
+    // Breadth-first layout, cut into equal slices
+    int[] order = new int[n];
+    boolean[] seen = new boolean[n];
+    int tail = 0;
+    for (int root = 0; root < n; root++) {
+      if (seen[root])
+        continue;
+      seen[root] = true;
+      order[tail++] = root;
+      for (int head = tail - 1; head < tail; head++) {
+        int v = order[head];
+        for (int e = degree[v]; e < degree[v + 1]; e++) {
+          if (!seen[adj[e]]) {
+            seen[adj[e]] = true;
+            order[tail++] = adj[e];
+          }
+        }
+      }
+    }
+    int[] size = new int[parts];
+    for (int i = 0; i < n; i++) {
+      part[order[i]] = (int) ((long) i * parts / n);
+      size[part[order[i]]]++;
+    }
+
+    // Greedy refinement
+    int cap = (int) Math.ceil(n * 1.05 / parts);
+    int[] count = new int[parts];
+    for (int v = 0; v < n; v++) {
+      Arrays.fill(count, 0);
+      for (int e = degree[v]; e < degree[v + 1]; e++)
+        count[part[adj[e]]]++;
+      int best = part[v];
+      for (int p = 0; p < parts; p++) {
+        if (count[p] > count[best] && size[p] < cap)
+          best = p;
+      }
+      if (best != part[v] && size[part[v]] > 1) {
+        size[part[v]]--;
+        size[best]++;
+        part[v] = best;
+      }
+    }
+    return part;
+  }
+}
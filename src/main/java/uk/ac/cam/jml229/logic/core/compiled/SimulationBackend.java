@@ -0,0 +1,427 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.components.CustomComponent;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.components.seq.Clock;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
+import uk.ac.cam.jml229.logic.core.SimulationConfig.EngineType;
+import uk.ac.cam.jml229.logic.core.SimulationEngine;
+import uk.ac.cam.jml229.logic.core.TurboRunner;
+import uk.ac.cam.jml229.logic.core.Wire;
+import uk.ac.cam.jml229.logic.exceptions.UnsupportedComponentException;
+
+/**
+ * One of the simulation engines behind a common stimulus/observe
+ * interface, for headless runs that do not care which engine does the
+ * work.
+ *
+ * A cycle is two clock toggles, each followed by a full settle (as in
+ * TurboRunner). The compiled backends toggle every clock together, so
+ * circuits with self-timed clocks stay on the object engine, which runs
+ * one period of the fastest clock per cycle instead. Close the backend
+ * when done: that stops any worker threads and writes the final values
+ * back into the Component objects.
+ */
+public abstract class SimulationBackend implements AutoCloseable {
+
+  // Components above which a partitioned run beats a single thread
+  private static final int PARTITION_THRESHOLD = 50_000;
+  // Ticks a compiled backend may take to settle before it counts as oscillating
+  private static final int SETTLE_LIMIT = 1_000_000;
+
+  protected final Circuit circuit;
+
+  protected SimulationBackend(Circuit circuit) {
+    this.circuit = circuit;
+  }
+
+  // --- Selection ---
+
+  /**
+   * Opens the fastest backend that supports the circuit under the engine's
+   * settings, for a run measured in cycles.
+   */
+  public static SimulationBackend open(Circuit circuit) {
+    return open(circuit, false);
+  }
+
+  /**
+   * Opens the fastest backend that supports the circuit under the engine's
+   * settings: the generated kernel for zero-delay runs, the compiled
+   * netlist (partitioned when large) with delay, and the object engine for
+   * anything the compiled forms reject (buses, memories), self-timed
+   * clocks or custom chips (which the compiled forms would inline; see
+   * {@link #hasCustomChips}).
+   *
+   * @param ticks whether the run will use {@link #runTicks}; zero-delay
+   *              tick runs then stay on the object engine, since the
+   *              generated kernel has no ticks and the compiled netlist
+   *              cannot stop an oscillation inside one
+   */
+  public static SimulationBackend open(Circuit circuit, boolean ticks) {
+    SimulationConfig config = circuit.getEngine().getConfig();
+    if (hasSelfTimedClock(circuit) || hasCustomChips(circuit) || (ticks && !config.propagationDelay()))
+      return open(circuit, EngineType.OBJECT);
+    EngineType preferred;
+    if (!config.propagationDelay())
+      preferred = EngineType.GENERATED;
+    else if (circuit.getComponents().size() >= PARTITION_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1)
+      preferred = EngineType.PARTITIONED;
+    else
+      preferred = EngineType.COMPILED;
+    try {
+      return open(circuit, preferred);
+    } catch (UnsupportedComponentException e) {
+      return open(circuit, EngineType.OBJECT);
+    }
+  }
+
+  /**
+   * Opens a specific backend.
+   *
+   * @throws UnsupportedComponentException if a compiled backend cannot
+   *                                       handle a component
+   */
+  public static SimulationBackend open(Circuit circuit, EngineType type) {
+    return switch (type) {
+      case OBJECT -> new ObjectBackend(circuit);
+      case COMPILED -> new CompiledBackend(circuit);
+      case GENERATED -> new GeneratedBackend(circuit);
+      case PARTITIONED -> new PartitionedBackend(circuit, Runtime.getRuntime().availableProcessors());
+    };
+  }
+
+  /**
+   * Whether the circuit contains custom chips. The compiled backends
+   * flatten them into the netlist, so they are never evaluated as
+   * components and only the top-level circuit can be inspected.
+   */
+  public static boolean hasCustomChips(Circuit circuit) {
+    for (Component c : circuit.getComponents())
+      if (c instanceof CustomComponent)
+        return true;
+    return false;
+  }
+
+  private static boolean hasSelfTimedClock(Circuit circuit) {
+    for (Clock c : circuit.getClocks())
+      if (c.isSelfTimed())
+        return true;
+    return false;
+  }
+
+  // --- Running ---
+
+  public abstract EngineType getType();
+
+  /**
+   * Runs up to {@code n} cycles. Changes made since the last run (e.g. by
+   * {@link #setSwitch}) settle before the first clock edge.
+   *
+   * @return cycles completed; fewer than {@code n} if the circuit
+   *         oscillated
+   */
+  public abstract long runCycles(long n);
+
+  /**
+   * Advances the simulation clock by a number of ticks without touching
+   * the clocks' toggle timer.
+   *
+   * @return false if the run stopped early on an oscillation (see
+   *         {@link #getTick} for how far it got)
+   * @throws UnsupportedOperationException on the generated kernel, which
+   *                                       has no notion of time
+   */
+  public abstract boolean runTicks(int ticks);
+
+  /**
+   * Sets a switch. The change propagates on the next run, so a tick run
+   * sees it at the current tick.
+   */
+  public abstract void setSwitch(Switch sw, boolean on);
+
+  /**
+   * Reads an output pin of a top-level component.
+   */
+  public abstract boolean getOutput(Component c, int outputIndex);
+
+  /**
+   * Reads the signal arriving at an input pin (e.g. an OutputProbe's),
+   * false when nothing drives it.
+   */
+  public boolean getInput(Component c, int inputIndex) {
+    Wire w = circuit.getDriver(c, inputIndex);
+    if (w == null || w.getSource() == null)
+      return false;
+    Component src = w.getSource();
+    for (int o = 0; o < src.getOutputCount(); o++)
+      if (src.getOutputWire(o) == w)
+        return getOutput(src, o);
+    return false;
+  }
+
+  /**
+   * Simulation time reached, in ticks; 0 for the generated kernel.
+   */
+  public abstract long getTick();
+
+  /**
+   * Component evaluations (kernel passes for the generated kernel).
+   */
+  public abstract long getWorkCount();
+
+  /**
+   * Writes the final values back into the Component objects.
+   */
+  @Override
+  public void close() {
+  }
+
+  // --- Backends ---
+
+  private static final class ObjectBackend extends SimulationBackend {
+    private final SimulationEngine engine;
+    private final TurboRunner runner;
+
+    ObjectBackend(Circuit circuit) {
+      super(circuit);
+      this.engine = circuit.getEngine();
+      this.runner = new TurboRunner(circuit);
+      runner.setSettleLimit(SETTLE_LIMIT);
+    }
+
+    @Override
+    public EngineType getType() {
+      return EngineType.OBJECT;
+    }
+
+    @Override
+    public long runCycles(long n) {
+      if (!settle())
+        return 0;
+      runner.begin(n, null);
+      while (runner.runFor(Long.MAX_VALUE)) {
+        // One call normally finishes the run; loop in case it yields
+      }
+      return runner.getCycles();
+    }
+
+    @Override
+    public boolean runTicks(int ticks) {
+      engine.run(ticks);
+      return engine.getOscillation() == null;
+    }
+
+    @Override
+    public void setSwitch(Switch sw, boolean on) {
+      sw.toggle(on);
+    }
+
+    // Same bound as the compiled backends' runUntilStable
+    private boolean settle() {
+      long limit = engine.getTick() + SETTLE_LIMIT;
+      while (!engine.isStable()) {
+        if (engine.getTick() >= limit)
+          return false;
+        engine.run(64);
+        if (engine.getOscillation() != null)
+          return false;
+      }
+      return true;
+    }
+
+    @Override
+    public boolean getOutput(Component c, int outputIndex) {
+      Wire w = c.getOutputWire(outputIndex);
+      return w != null && w.getSignal();
+    }
+
+    @Override
+    public long getTick() {
+      return engine.getTick();
+    }
+
+    @Override
+    public long getWorkCount() {
+      return engine.getEvaluationCount();
+    }
+  }
+
+  private static final class CompiledBackend extends SimulationBackend {
+    private final CompiledCircuit cc;
+
+    CompiledBackend(Circuit circuit) {
+      super(circuit);
+      this.cc = CircuitCompiler.compile(circuit);
+      cc.runUntilStable(SETTLE_LIMIT);
+    }
+
+    @Override
+    public EngineType getType() {
+      return EngineType.COMPILED;
+    }
+
+    @Override
+    public long runCycles(long n) {
+      if (!cc.runUntilStable(SETTLE_LIMIT))
+        return 0;
+      for (long i = 0; i < n; i++) {
+        cc.tickClocks();
+        if (!cc.runUntilStable(SETTLE_LIMIT))
+          return i;
+        cc.tickClocks();
+        if (!cc.runUntilStable(SETTLE_LIMIT))
+          return i;
+      }
+      return n;
+    }
+
+    @Override
+    public boolean runTicks(int ticks) {
+      cc.run(ticks); // With delay every tick ends, however busy
+      return true;
+    }
+
+    @Override
+    public void setSwitch(Switch sw, boolean on) {
+      cc.setSwitch(sw, on);
+    }
+
+    @Override
+    public boolean getOutput(Component c, int outputIndex) {
+      return cc.getOutput(c, outputIndex);
+    }
+
+    @Override
+    public long getTick() {
+      return cc.getTick();
+    }
+
+    @Override
+    public long getWorkCount() {
+      return cc.getEvaluationCount();
+    }
+
+    @Override
+    public void close() {
+      cc.syncToComponents();
+    }
+  }
+
+  private static final class PartitionedBackend extends SimulationBackend {
+    private final PartitionedCircuit pc;
+
+    PartitionedBackend(Circuit circuit, int threads) {
+      super(circuit);
+      this.pc = new PartitionedCircuit(circuit, threads);
+      pc.runUntilStable(SETTLE_LIMIT);
+    }
+
+    @Override
+    public EngineType getType() {
+      return EngineType.PARTITIONED;
+    }
+
+    @Override
+    public long runCycles(long n) {
+      if (!pc.runUntilStable(SETTLE_LIMIT))
+        return 0;
+      for (long i = 0; i < n; i++) {
+        pc.tickClocks();
+        if (!pc.runUntilStable(SETTLE_LIMIT))
+          return i;
+        pc.tickClocks();
+        if (!pc.runUntilStable(SETTLE_LIMIT))
+          return i;
+      }
+      return n;
+    }
+
+    @Override
+    public boolean runTicks(int ticks) {
+      pc.run(ticks);
+      return true;
+    }
+
+    @Override
+    public void setSwitch(Switch sw, boolean on) {
+      pc.setSwitch(sw, on);
+    }
+
+    @Override
+    public boolean getOutput(Component c, int outputIndex) {
+      return pc.getOutput(c, outputIndex);
+    }
+
+    @Override
+    public long getTick() {
+      return pc.getTick();
+    }
+
+    @Override
+    public long getWorkCount() {
+      return pc.getEvaluationCount();
+    }
+
+    @Override
+    public void close() {
+      pc.syncToComponents();
+      pc.close();
+    }
+  }
+
+  private static final class GeneratedBackend extends SimulationBackend {
+    private final GeneratedCircuit gc;
+
+    GeneratedBackend(Circuit circuit) {
+      super(circuit);
+      this.gc = new GeneratedCircuit(circuit);
+    }
+
+    @Override
+    public EngineType getType() {
+      return EngineType.GENERATED;
+    }
+
+    @Override
+    public long runCycles(long n) {
+      for (long i = 0; i < n; i++) {
+        gc.tick();
+        gc.tick();
+      }
+      return n;
+    }
+
+    @Override
+    public boolean runTicks(int ticks) {
+      throw new UnsupportedOperationException("The generated kernel is zero-delay; run cycles instead");
+    }
+
+    @Override
+    public void setSwitch(Switch sw, boolean on) {
+      gc.setSwitch(sw, on); // Zero delay: settles at once
+    }
+
+    @Override
+    public boolean getOutput(Component c, int outputIndex) {
+      return gc.getOutput(c, outputIndex);
+    }
+
+    @Override
+    public long getTick() {
+      return 0;
+    }
+
+    @Override
+    public long getWorkCount() {
+      return gc.getPassCount();
+    }
+
+    @Override
+    public void close() {
+      gc.syncToComponents();
+    }
+  }
+}
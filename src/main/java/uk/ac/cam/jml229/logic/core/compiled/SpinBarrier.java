@@ -0,0 +1,37 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reusable barrier for a fixed group of threads that meet thousands of
+ * times per second. Waiters spin briefly, then yield, so oversubscribed
+ * machines still make progress.
+ */
+final class SpinBarrier {
+
+  private static final int SPINS = 1000;
+
+  private final int parties;
+  private final AtomicInteger arrived = new AtomicInteger();
+  private volatile int generation = 0;
+
+  SpinBarrier(int parties) {
+    this.parties = parties;
+  }
+
+  void await() {
+    int gen = generation;
+    if (arrived.incrementAndGet() == parties) {
+      arrived.set(0);
+      generation = gen + 1; // Releases everyone (volatile write)
+      return;
+    }
+    int spins = 0;
+    while (generation == gen) {
+      if (++spins < SPINS)
+        Thread.onSpinWait();
+      else
+        Thread.yield();
+    }
+  }
+}
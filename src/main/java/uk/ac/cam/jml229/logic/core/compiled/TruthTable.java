@@ -0,0 +1,211 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import uk.ac.cam.jml229.logic.components.ChipDefinition;
+import uk.ac.cam.jml229.logic.components.io.OutputProbe;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.core.Circuit;
+
+/**
+ * Exhaustive truth table of a combinational circuit (or chip definition),
+ * written as CSV.
+ *
+ * Every combination of the free inputs is enumerated; inputs can be fixed
+ * to restrict the table to a subset. Rows are in counting order with the
+ * topmost free input as the most significant bit. The row space is cut
+ * into blocks of {@link #BLOCK_ROWS} rows, and each block is evaluated 64
+ * rows at a time by a BitParallelEvaluator and formatted on a ForkJoinPool
+ * worker. Blocks are written in order as they finish, with a bounded
+ * number in flight, so memory use does not grow with the table.
+ */
+public class TruthTable {
+
+  public static final int MAX_FREE_INPUTS = 40; // ~1T rows
+  static final int BLOCK_ROWS = 1 << 16;
+
+  // Bit k of LANE_PATTERN[p] is bit p of k, i.e. row bits 0-5 within a word
+  private static final long[] LANE_PATTERN = {
+      0xAAAAAAAAAAAAAAAAL, 0xCCCCCCCCCCCCCCCCL, 0xF0F0F0F0F0F0F0F0L,
+      0xFF00FF00FF00FF00L, 0xFFFF0000FFFF0000L, 0xFFFFFFFF00000000L };
+
+  private static final long FREE = 1L; // Marker: neither of the fixed words 0 and -1
+
+  private final BitParallelEvaluator evaluator;
+  // Per input: FREE when enumerated, else the fixed word (0 or all ones)
+  private final long[] fixed;
+
+  public TruthTable(BitParallelEvaluator evaluator) {
+    this.evaluator = evaluator;
+    this.fixed = new long[evaluator.getInputs().size()];
+    Arrays.fill(fixed, FREE);
+  }
+
+  public static TruthTable of(Circuit circuit) {
+    return new TruthTable(BitParallelEvaluator.compile(circuit));
+  }
+
+  public static TruthTable of(ChipDefinition chip) {
+    return of(chip.getTemplate());
+  }
+
+  // --- Configuration ---
+
+  public List<Switch> getInputs() {
+    return evaluator.getInputs();
+  }
+
+  public List<OutputProbe> getOutputs() {
+    return evaluator.getOutputs();
+  }
+
+  /**
+   * Holds an input at a constant instead of enumerating it.
+   */
+  public TruthTable fix(Switch input, boolean value) {
+    int i = indexOf(input);
+    fixed[i] = value ? -1L : 0L;
+    return this;
+  }
+
+  /**
+   * Puts a fixed input back into the enumeration.
+   */
+  public TruthTable free(Switch input) {
+    fixed[indexOf(input)] = FREE;
+    return this;
+  }
+
+  private int indexOf(Switch input) {
+    int i = evaluator.getInputs().indexOf(input);
+    if (i < 0)
+      throw new IllegalArgumentException("Not an input of this circuit: " + input.getName());
+    return i;
+  }
+
+  public int getFreeInputCount() {
+    int n = 0;
+    for (long f : fixed)
+      if (f == FREE)
+        n++;
+    return n;
+  }
+
+  public long getRowCount() {
+    return 1L << getFreeInputCount();
+  }
+
+  // --- Output ---
+
+  /**
+   * Writes the header and every row on the common pool.
+   *
+   * @return rows written
+   */
+  public long write(OutputStream out) throws IOException {
+    return write(out, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Writes a header line (input names, then output names) and every row,
+   * as 0/1 columns. The stream is flushed but not closed.
+   *
+   * @return rows written
+   */
+  public long write(OutputStream out, ForkJoinPool pool) throws IOException {
+    int free = getFreeInputCount();
+    if (free > MAX_FREE_INPUTS)
+      throw new IllegalArgumentException(free + " free inputs is too many (at most " + MAX_FREE_INPUTS
+          + "); fix some of them");
+
+    out.write(header().getBytes(StandardCharsets.UTF_8));
+
+    // Bit position of each input within the row number; -1 if fixed
+    int[] rowBit = new int[fixed.length];
+    int bit = free;
+    for (int i = 0; i < fixed.length; i++)
+      rowBit[i] = (fixed[i] == FREE) ? --bit : -1;
+
+    long rows = 1L << free;
+    int window = 2 * pool.getParallelism();
+    ArrayDeque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>();
+    long next = 0;
+    try {
+      while (next < rows || !pending.isEmpty()) {
+        while (next < rows && pending.size() < window) {
+          long first = next;
+          int count = (int) Math.min(BLOCK_ROWS, rows - first);
+          pending.add(pool.submit(() -> block(rowBit, first, count)));
+          next += count;
+        }
+        out.write(pending.remove().join());
+      }
+    } finally {
+      for (ForkJoinTask<byte[]> t : pending)
+        t.cancel(false);
+    }
+    out.flush();
+    return rows;
+  }
+
+  private String header() {
+    List<String> names = new ArrayList<>();
+    for (Switch s : evaluator.getInputs())
+      names.add(s.getName());
+    for (OutputProbe p : evaluator.getOutputs())
+      names.add(p.getName());
+    return String.join(",", names) + "\n";
+  }
+
+  // Formats rows [first, first + count); first is a multiple of 64
+  private byte[] block(int[] rowBit, long first, int count) {
+    int inCount = fixed.length;
+    int outCount = evaluator.getOutputs().size();
+    int columns = inCount + outCount;
+    int rowBytes = Math.max(1, 2 * columns); // "0,1,...,0\n"; just "\n" with no pins
+    byte[] buf = new byte[count * rowBytes];
+
+    long[] in = new long[inCount];
+    long[] outWords = new long[outCount];
+    long[] workspace = evaluator.newWorkspace();
+
+    int pos = 0;
+    for (int base = 0; base < count; base += 64) {
+      long row = first + base;
+      for (int i = 0; i < inCount; i++) {
+        int b = rowBit[i];
+        if (b < 0)
+          in[i] = fixed[i];
+        else if (b < 6)
+          in[i] = LANE_PATTERN[b];
+        else
+          in[i] = ((row >>> b) & 1) != 0 ? -1L : 0L;
+      }
+      evaluator.evaluate(in, outWords, workspace);
+
+      int lanes = Math.min(64, count - base);
+      for (int lane = 0; lane < lanes; lane++) {
+        for (int i = 0; i < inCount; i++) {
+          buf[pos++] = (byte) ('0' + ((in[i] >>> lane) & 1));
+          buf[pos++] = ',';
+        }
+        for (int j = 0; j < outCount; j++) {
+          buf[pos++] = (byte) ('0' + ((outWords[j] >>> lane) & 1));
+          buf[pos++] = ',';
+        }
+        if (columns > 0)
+          pos--; // Last separator becomes the newline
+        buf[pos++] = '\n';
+      }
+    }
+    return buf;
+  }
+}
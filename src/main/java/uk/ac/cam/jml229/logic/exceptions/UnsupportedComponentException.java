@@ -0,0 +1,10 @@
+package uk.ac.cam.jml229.logic.exceptions;
+
+public class UnsupportedComponentException extends RuntimeException {
+
+  public UnsupportedComponentException(String componentName, String engine) {
+    super(String.format(
+        "Component '%s' cannot be simulated by the %s engine.",
+        componentName, engine));
+  }
+}
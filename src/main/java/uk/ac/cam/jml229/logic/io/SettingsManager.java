@@ -2,6 +2,8 @@ package uk.ac.cam.jml229.logic.io;
 
 import java.util.prefs.Preferences;
 
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
+
 public class SettingsManager {
 
   private static final Preferences prefs = Preferences.userNodeForPackage(SettingsManager.class);
@@ -18,6 +20,8 @@ public class SettingsManager {
   // Propagation Settings
   private static final String KEY_PROP_DELAY_ENABLED = "prop_delay_enabled";
   private static final String KEY_GATE_DELAY = "gate_delay";
+  private static final String KEY_INERTIAL_DELAY = "inertial_delay";
+  private static final String KEY_FOUR_STATE = "four_state";
 
   private static final String DEFAULT_THEME = "Default Light";
 
@@ -37,6 +41,46 @@ public class SettingsManager {
     prefs.putInt(KEY_GATE_DELAY, delay);
   }
 
+  public static boolean isInertialDelayEnabled() {
+    return prefs.getBoolean(KEY_INERTIAL_DELAY, false);
+  }
+
+  public static void setInertialDelayEnabled(boolean enabled) {
+    prefs.putBoolean(KEY_INERTIAL_DELAY, enabled);
+  }
+
+  public static boolean isFourStateEnabled() {
+    return prefs.getBoolean(KEY_FOUR_STATE, false);
+  }
+
+  public static void setFourStateEnabled(boolean enabled) {
+    prefs.putBoolean(KEY_FOUR_STATE, enabled);
+  }
+
+  /**
+   * Reads the stored simulation settings into a snapshot. Only the GUI
+   * calls this; the simulator itself works from SimulationConfig.
+   */
+  public static SimulationConfig loadSimulationConfig() {
+    return SimulationConfig.DEFAULT
+        .withPropagationDelay(isPropagationDelayEnabled())
+        .withGateDelay(getGateDelay())
+        .withDelayModel(isInertialDelayEnabled() ? SimulationConfig.DelayModel.INERTIAL
+            : SimulationConfig.DelayModel.TRANSPORT)
+        .withFourState(isFourStateEnabled());
+  }
+
+  /**
+   * Stores the settings and makes them current for every engine.
+   */
+  public static void saveSimulationConfig(SimulationConfig config) {
+    setPropagationDelayEnabled(config.propagationDelay());
+    setGateDelay(config.gateDelay());
+    setInertialDelayEnabled(config.delayModel() == SimulationConfig.DelayModel.INERTIAL);
+    setFourStateEnabled(config.fourState());
+    SimulationConfig.setCurrent(config);
+  }
+
   public static String getThemeName() {
     return prefs.get(KEY_THEME, DEFAULT_THEME);
   }
@@ -1,6 +1,10 @@
 package uk.ac.cam.jml229.logic.io;
 
 import java.io.*;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.regex.*;
 import java.awt.Point;
@@ -9,6 +13,9 @@ import uk.ac.cam.jml229.logic.components.*;
 import uk.ac.cam.jml229.logic.components.Component;
 import uk.ac.cam.jml229.logic.components.gates.LogicGate;
 import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.components.mem.MemoryComponent;
+import uk.ac.cam.jml229.logic.components.mem.Rom;
+import uk.ac.cam.jml229.logic.components.seq.Clock;
 import uk.ac.cam.jml229.logic.core.Circuit;
 import uk.ac.cam.jml229.logic.core.Wire;
 
@@ -160,6 +167,20 @@ public class StorageManager {
         extra += " INPUTS:" + c.getInputCount();
       }
 
+      // Memories default to 8 data bits, so their width is always written
+      if (c instanceof BusComponent bus && (bus.getBusWidth() > 1 || c instanceof MemoryComponent)) {
+        extra += " WIDTH:" + bus.getBusWidth();
+      }
+
+      if (c instanceof MemoryComponent mem) {
+        extra += " ADDR:" + mem.getAddressWidth();
+      }
+
+      // Paths may contain spaces, and tokens are split on whitespace
+      if (c instanceof Rom rom && rom.getImage() != null) {
+        extra += " IMAGE:" + URLEncoder.encode(rom.getImage().toString(), StandardCharsets.UTF_8);
+      }
+
       if (c.getCustomDelay() != null) {
         extra += " DELAY:" + c.getCustomDelay();
       }
@@ -168,6 +189,10 @@ public class StorageManager {
         extra += " IS_ON:" + ((Switch) c).getState();
       }
 
+      if (c instanceof Clock clock && clock.isSelfTimed()) {
+        extra += " TIMING:" + clock.getPeriod() + "," + clock.getPhase() + "," + clock.getDutyCycle();
+      }
+
       writer.printf("COMP %s %d %d %d %d%s%n", type, id, c.getX(), c.getY(), c.getRotation(), extra);
     }
 
@@ -245,6 +270,34 @@ public class StorageManager {
             }
           }
 
+          // Handle WIDTH (bus components; must precede any wiring)
+          if (part.startsWith("WIDTH:") && c instanceof BusComponent bus) {
+            try {
+              bus.setBusWidth(Integer.parseInt(part.substring(6)));
+            } catch (NumberFormatException e) {
+              // ignore
+            }
+          }
+
+          // Handle ADDR (address bits of a RAM or ROM)
+          if (part.startsWith("ADDR:") && c instanceof MemoryComponent mem) {
+            try {
+              mem.setAddressWidth(Integer.parseInt(part.substring(5)));
+            } catch (NumberFormatException e) {
+              // ignore
+            }
+          }
+
+          // Handle IMAGE (a ROM's image file, mapped rather than embedded)
+          if (part.startsWith("IMAGE:") && c instanceof Rom rom) {
+            String path = URLDecoder.decode(part.substring(6), StandardCharsets.UTF_8);
+            try {
+              rom.loadImage(Path.of(path));
+            } catch (IOException | RuntimeException e) {
+              System.err.println("Failed to load ROM image " + path + ": " + e.getMessage());
+            }
+          }
+
           // Handle DELAY (Applies to ANY component)
           if (part.startsWith("DELAY:")) {
             try {
@@ -255,6 +308,16 @@ public class StorageManager {
             }
           }
 
+          // Handle TIMING (period,phase,duty of a self-timed Clock)
+          if (part.startsWith("TIMING:") && c instanceof Clock clock) {
+            try {
+              String[] t = part.substring(7).split(",");
+              clock.setTiming(Integer.parseInt(t[0]), Integer.parseInt(t[1]), Integer.parseInt(t[2]));
+            } catch (RuntimeException e) {
+              // ignore
+            }
+          }
+
           if (part.startsWith("IS_ON:") && c instanceof Switch) {
             try {
               boolean isOn = Boolean.parseBoolean(part.substring(6));
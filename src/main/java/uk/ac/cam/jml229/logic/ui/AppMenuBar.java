@@ -13,6 +13,7 @@ import uk.ac.cam.jml229.logic.io.SettingsManager;
 import uk.ac.cam.jml229.logic.ui.panels.CircuitPanel;
 import uk.ac.cam.jml229.logic.ui.interaction.CircuitInteraction;
 import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.components.io.OutputProbe;
 import uk.ac.cam.jml229.logic.core.Wire;
 import uk.ac.cam.jml229.logic.ui.timing.SignalMonitor;
 import uk.ac.cam.jml229.logic.ui.timing.TimingContainer;
@@ -32,6 +33,7 @@ public class AppMenuBar extends JMenuBar {
   private final Runnable toggleTimingCallback;
 
   private final JLabel zoomStatusLabel;
+  private final JLabel turboStatusLabel;
 
   public AppMenuBar(JFrame parentFrame,
       CircuitPanel circuitPanel,
@@ -57,6 +59,9 @@ public class AppMenuBar extends JMenuBar {
 
     this.zoomStatusLabel = new JLabel("Zoom: 100%  ");
     this.zoomStatusLabel.setForeground(Color.GRAY);
+    this.turboStatusLabel = new JLabel();
+    this.turboStatusLabel.setForeground(Color.GRAY);
+    simController.setStatusCallback(status -> turboStatusLabel.setText(status + "    "));
 
     initMenus();
     updateTheme();
@@ -136,6 +141,18 @@ public class AppMenuBar extends JMenuBar {
     stepItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_T, 0));
     stepItem.addActionListener(e -> simController.step());
 
+    JMenu turboMenu = new JMenu("Turbo");
+    JMenuItem turboCyclesItem = new JMenuItem("Run N Cycles...");
+    turboCyclesItem.addActionListener(e -> runTurboCycles());
+    JMenuItem turboUntilItem = new JMenuItem("Run Until Selected Output Is High");
+    turboUntilItem.addActionListener(e -> runTurboUntilSelected());
+    JMenuItem turboStopItem = new JMenuItem("Stop Turbo");
+    turboStopItem.addActionListener(e -> simController.stopTurbo());
+    turboMenu.add(turboCyclesItem);
+    turboMenu.add(turboUntilItem);
+    turboMenu.addSeparator();
+    turboMenu.add(turboStopItem);
+
     JMenu clockSpeedMenu = new JMenu("Clock Speed");
     ButtonGroup clockGroup = new ButtonGroup();
     addSpeedItem(clockSpeedMenu, clockGroup, "0.5 Hz (Slow)", 2000, false);
@@ -155,12 +172,14 @@ public class AppMenuBar extends JMenuBar {
     simMenu.add(startItem);
     simMenu.add(stopItem);
     simMenu.add(stepItem);
+    simMenu.add(turboMenu);
     simMenu.addSeparator();
     simMenu.add(clockSpeedMenu);
     simMenu.add(logicSpeedMenu);
     add(simMenu);
 
     add(Box.createHorizontalGlue());
+    add(turboStatusLabel);
     add(zoomStatusLabel);
   }
 
@@ -248,6 +267,35 @@ public class AppMenuBar extends JMenuBar {
     }
   }
 
+  private void runTurboCycles() {
+    String input = JOptionPane.showInputDialog(parentFrame, "Clock cycles to run:", "1000000");
+    if (input == null)
+      return;
+    try {
+      long cycles = Long.parseLong(input.trim().replace(",", "").replace("_", ""));
+      if (cycles <= 0)
+        throw new NumberFormatException();
+      simController.runTurbo(cycles, null);
+    } catch (NumberFormatException ex) {
+      JOptionPane.showMessageDialog(parentFrame, "Please enter a positive number of cycles.");
+    }
+  }
+
+  private void runTurboUntilSelected() {
+    List<Component> selection = circuitPanel.getInteraction().getSelectedComponents();
+    Component watched = selection.isEmpty() ? null : selection.get(0);
+    if (watched instanceof OutputProbe probe) {
+      simController.runTurbo(Long.MAX_VALUE, probe::getState);
+      return;
+    }
+    Wire w = (watched != null) ? watched.getOutputWire(0) : null;
+    if (w == null) {
+      JOptionPane.showMessageDialog(parentFrame, "Please select a probe or a connected component to watch.");
+      return;
+    }
+    simController.runTurbo(Long.MAX_VALUE, w::getSignal);
+  }
+
   public void updateZoomLabel(double scale) {
     int pct = (int) (scale * 100);
     zoomStatusLabel.setText("Zoom: " + pct + "%  ");
@@ -270,6 +318,8 @@ public class AppMenuBar extends JMenuBar {
 
     if (zoomStatusLabel != null)
       zoomStatusLabel.setForeground(Theme.PALETTE_HEADINGS);
+    if (turboStatusLabel != null)
+      turboStatusLabel.setForeground(Theme.PALETTE_HEADINGS);
 
     SwingUtilities.updateComponentTreeUI(this);
   }
@@ -4,14 +4,19 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import uk.ac.cam.jml229.logic.app.Theme;
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
 import uk.ac.cam.jml229.logic.io.SettingsManager;
 
 public class SettingsDialog extends JDialog {
 
-  public SettingsDialog(Frame owner) {
+  /**
+   * @param onApply run after new settings are saved, e.g. to re-evaluate
+   *                the open circuit
+   */
+  public SettingsDialog(Frame owner, Runnable onApply) {
     super(owner, "Preferences", true);
     setLayout(new BorderLayout());
-    setSize(400, 250);
+    setSize(400, 330);
     setLocationRelativeTo(owner);
 
     JPanel content = new JPanel();
@@ -29,7 +34,7 @@ public class SettingsDialog extends JDialog {
 
     // Checkbox
     JCheckBox enableDelay = new JCheckBox("Enable Propagation Delay (Hazards)");
-    enableDelay.setSelected(SettingsManager.isPropagationDelayEnabled());
+    enableDelay.setSelected(SimulationConfig.current().propagationDelay());
     enableDelay.setOpaque(false);
     enableDelay.setForeground(Theme.TEXT_COLOR);
     enableDelay.setFocusPainted(false);
@@ -50,7 +55,7 @@ public class SettingsDialog extends JDialog {
     JLabel delayLabel = new JLabel("Gate Delay (Ticks): ");
     delayLabel.setForeground(Theme.TEXT_COLOR);
 
-    JSpinner delaySpinner = new JSpinner(new SpinnerNumberModel(SettingsManager.getGateDelay(), 1, 1000000, 100));
+    JSpinner delaySpinner = new JSpinner(new SpinnerNumberModel(SimulationConfig.current().gateDelay(), 1, 1000000, 100));
     styleSpinner(delaySpinner);
 
     delayPanel.add(delayLabel);
@@ -61,6 +66,39 @@ public class SettingsDialog extends JDialog {
     enableDelay.addActionListener(e -> delaySpinner.setEnabled(enableDelay.isSelected()));
 
     content.add(delayPanel);
+    content.add(Box.createVerticalStrut(15));
+
+    // Inertial Delay
+    JCheckBox inertialDelay = new JCheckBox("Inertial Delay (Filter Short Glitches)");
+    inertialDelay.setSelected(SimulationConfig.current().delayModel() == SimulationConfig.DelayModel.INERTIAL);
+    inertialDelay.setOpaque(false);
+    inertialDelay.setForeground(Theme.TEXT_COLOR);
+    inertialDelay.setFocusPainted(false);
+    inertialDelay.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+    if (Theme.isDarkMode) {
+      inertialDelay.setIcon(new FlatIcons.CheckIcon());
+    }
+
+    inertialDelay.setEnabled(enableDelay.isSelected());
+    enableDelay.addActionListener(e -> inertialDelay.setEnabled(enableDelay.isSelected()));
+
+    content.add(inertialDelay);
+    content.add(Box.createVerticalStrut(15));
+
+    // Four-State Logic
+    JCheckBox fourState = new JCheckBox("Four-State Logic (Show X/Z)");
+    fourState.setSelected(SimulationConfig.current().fourState());
+    fourState.setOpaque(false);
+    fourState.setForeground(Theme.TEXT_COLOR);
+    fourState.setFocusPainted(false);
+    fourState.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+    if (Theme.isDarkMode) {
+      fourState.setIcon(new FlatIcons.CheckIcon());
+    }
+
+    content.add(fourState);
     content.add(Box.createVerticalGlue());
 
     // Buttons
@@ -72,12 +110,20 @@ public class SettingsDialog extends JDialog {
       enableDelay.setSelected(true);
       delaySpinner.setValue(1);
       delaySpinner.setEnabled(true);
+      inertialDelay.setSelected(false);
+      inertialDelay.setEnabled(true);
+      fourState.setSelected(false);
     });
 
     JButton okBtn = createStyledButton("OK");
     okBtn.addActionListener(e -> {
-      SettingsManager.setPropagationDelayEnabled(enableDelay.isSelected());
-      SettingsManager.setGateDelay((Integer) delaySpinner.getValue());
+      SettingsManager.saveSimulationConfig(SimulationConfig.current()
+          .withPropagationDelay(enableDelay.isSelected())
+          .withGateDelay((Integer) delaySpinner.getValue())
+          .withDelayModel(inertialDelay.isSelected() ? SimulationConfig.DelayModel.INERTIAL
+              : SimulationConfig.DelayModel.TRANSPORT)
+          .withFourState(fourState.isSelected()));
+      onApply.run();
       dispose();
     });
 
@@ -1,87 +1,179 @@
 package uk.ac.cam.jml229.logic.ui;
 
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
 import javax.swing.Timer;
 import uk.ac.cam.jml229.logic.core.Circuit;
-import uk.ac.cam.jml229.logic.core.Simulator;
+import uk.ac.cam.jml229.logic.core.SignalSnapshot;
+import uk.ac.cam.jml229.logic.core.SimulationThread;
+import uk.ac.cam.jml229.logic.core.TurboRunner;
 
 /**
  * Manages the simulation loop, clock timing, and logic propagation.
  * Decouples the "Game Loop" from the main GUI window.
+ *
+ * The engine runs on a {@link SimulationThread}; the Swing timer here only
+ * repaints at display rate from the thread's published snapshot. UI code
+ * changes the circuit through {@link #post} (signal changes) or
+ * {@link #runExclusive} (structural edits). In turbo mode a
+ * {@link TurboRunner} drives the clocks flat out on the same thread.
  */
 public class SimulationController {
 
   private final Timer timer;
   private final Runnable repaintCallback;
+  private final SimulationThread simThread;
   private Circuit circuit;
+  private boolean threadStarted = false;
 
-  // Simulation Settings
-  private int logicStepsPerFrame = 1000;
-  private int clockDelayMs = 500;
-  private long lastClockTick = 0;
+  // Turbo Mode
+  private TurboRunner turbo = null;
+  private Consumer<String> statusCallback = status -> {
+  };
 
   public SimulationController(Circuit initialCircuit, Runnable repaintCallback) {
     this.circuit = initialCircuit;
     this.repaintCallback = repaintCallback;
+    this.simThread = new SimulationThread(initialCircuit);
 
-    // 60Hz Loop (approx 16ms)
+    // 60Hz Repaint (approx 16ms)
     this.timer = new Timer(16, e -> tick());
   }
 
   public void setCircuit(Circuit circuit) {
+    stopTurbo();
+    // Each circuit owns its engine, so the old circuit's pending events are
+    // simply left behind with it
     this.circuit = circuit;
-    Simulator.clear(); // Clear pending events for the old circuit
+    simThread.setCircuit(circuit);
   }
 
   public void start() {
+    if (!threadStarted) {
+      simThread.start();
+      threadStarted = true;
+    }
     timer.start();
+    simThread.setRunning(true);
   }
 
   public void stop() {
-    timer.stop();
+    stopTurbo();
+    simThread.setRunning(false);
   }
 
   public boolean isRunning() {
-    return timer.isRunning();
+    return simThread.isRunning();
   }
 
   /**
    * Manual single-step (Process one clock cycle + resulting logic)
    */
   public void step() {
-    if (circuit != null) {
-      circuit.tick();
-      Simulator.run(1000); // Ensure logic ripples through
-      repaintCallback.run();
+    Circuit c = circuit;
+    if (c != null && !isTurboRunning()) {
+      post(() -> {
+        c.tick();
+        c.getEngine().run(1000); // Ensure logic ripples through
+      });
     }
   }
 
   public void setClockSpeed(int hz) {
     if (hz > 0) {
-      this.clockDelayMs = 1000 / hz;
+      simThread.setClockDelayMs(1000 / hz);
     }
   }
 
   // Direct MS setter for custom inputs
   public void setClockDelayMs(int ms) {
-    this.clockDelayMs = Math.max(1, ms);
+    simThread.setClockDelayMs(ms);
   }
 
   public void setLogicStepsPerFrame(int steps) {
-    this.logicStepsPerFrame = steps;
+    simThread.setLogicStepsPerFrame(steps);
   }
 
-  private void tick() {
-    if (circuit == null)
+  // --- Simulation Thread Access ---
+
+  /**
+   * Queues a signal-level change (e.g. a switch toggle) for the simulation
+   * thread.
+   */
+  public void post(Runnable command) {
+    simThread.post(command);
+  }
+
+  /**
+   * Applies changed simulation settings to the current circuit, e.g.
+   * floating its unconnected inputs when four-state logic is switched on.
+   */
+  public void refreshSettings() {
+    Circuit c = circuit;
+    if (c != null)
+      c.refreshUndrivenInputs();
+  }
+
+  /**
+   * Runs a structural edit while the simulation thread is parked.
+   */
+  public void runExclusive(Runnable edit) {
+    simThread.runExclusive(edit);
+  }
+
+  public SignalSnapshot getSnapshot() {
+    return simThread.getSnapshot();
+  }
+
+  // --- Turbo Mode ---
+
+  /**
+   * Receives a short status line (cycles and cycles/sec) at display rate
+   * while turbo runs, and once more when it ends.
+   */
+  public void setStatusCallback(Consumer<String> statusCallback) {
+    this.statusCallback = statusCallback;
+  }
+
+  /**
+   * Runs clock cycles flat out on the simulation thread until
+   * {@code cycles} have completed or {@code stopWhen} holds (either may be
+   * unbounded). The condition is checked on the simulation thread.
+   */
+  public void runTurbo(long cycles, BooleanSupplier stopWhen) {
+    if (circuit == null || isTurboRunning())
       return;
+    turbo = new TurboRunner(circuit);
+    turbo.begin(cycles, stopWhen);
+    simThread.runTurbo(turbo);
+  }
+
+  public void stopTurbo() {
+    if (turbo != null) {
+      turbo.stop(); // The simulation thread ends it after the current half cycle
+      reportTurbo(" (stopped)");
+      turbo = null;
+    }
+  }
 
-    // Process Logic Gates (Event Queue)
-    Simulator.run(logicStepsPerFrame);
+  public boolean isTurboRunning() {
+    return turbo != null && turbo.isRunning();
+  }
+
+  private void reportTurbo(String end) {
+    statusCallback.accept(String.format("Turbo: %,d cycles, %,.0f cycles/s%s",
+        turbo.getCycles(), turbo.getCyclesPerSecond(), end));
+  }
 
-    // Process Clocks
-    long now = System.currentTimeMillis();
-    if (now - lastClockTick >= clockDelayMs) {
-      circuit.tick();
-      lastClockTick = now;
+  private void tick() {
+    if (turbo != null) {
+      if (turbo.isRunning()) {
+        reportTurbo("");
+      } else {
+        reportTurbo(turbo.isConditionMet() ? " (condition met)" : " (done)");
+        turbo = null;
+      }
     }
 
     // Update UI
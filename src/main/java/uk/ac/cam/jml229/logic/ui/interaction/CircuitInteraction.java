@@ -10,8 +10,10 @@ import java.util.function.Consumer;
 import uk.ac.cam.jml229.logic.components.*;
 import uk.ac.cam.jml229.logic.components.Component;
 import uk.ac.cam.jml229.logic.components.misc.TextLabel;
+import uk.ac.cam.jml229.logic.components.seq.Clock;
 import uk.ac.cam.jml229.logic.core.Circuit;
 import uk.ac.cam.jml229.logic.core.Wire;
+import uk.ac.cam.jml229.logic.exceptions.UnsupportedComponentException;
 import uk.ac.cam.jml229.logic.ui.panels.CircuitPanel;
 import uk.ac.cam.jml229.logic.ui.panels.ComponentPalette;
 import uk.ac.cam.jml229.logic.ui.render.CircuitRenderer;
@@ -38,6 +40,9 @@ public class CircuitInteraction extends MouseAdapter implements KeyListener {
   // --- Callback for Timing ---
   private Consumer<List<Component>> onOpenTiming;
 
+  // Where signal-level changes (switch toggles) are sent
+  private Consumer<Runnable> commandSink = Runnable::run;
+
   // --- SHARED VIEW STATE ---
   private final List<Component> selectedComponents = new ArrayList<>();
   private final List<WaypointRef> selectedWaypoints = new ArrayList<>();
@@ -72,6 +77,26 @@ public class CircuitInteraction extends MouseAdapter implements KeyListener {
     this.onOpenTiming = callback;
   }
 
+  /**
+   * Routes signal-level changes to the thread that runs the simulation.
+   * By default they run immediately.
+   */
+  public void setCommandSink(Consumer<Runnable> sink) {
+    this.commandSink = (sink != null) ? sink : Runnable::run;
+  }
+
+  public void postCommand(Runnable command) {
+    commandSink.accept(command);
+  }
+
+  /**
+   * Runs an edit that reshapes a component (see Circuit.edit) while the
+   * simulation is parked.
+   */
+  public void runExclusive(Runnable edit) {
+    circuit.edit(edit);
+  }
+
   public void setState(InteractionState newState) {
     if (currentState != null)
       currentState.onExit();
@@ -157,6 +182,39 @@ public class CircuitInteraction extends MouseAdapter implements KeyListener {
     currentState.mousePressed(e);
   }
 
+  private void setClockTiming(List<Clock> clocks) {
+    Clock first = clocks.get(0);
+    String current = first.isSelfTimed()
+        ? first.getPeriod() + "," + first.getPhase() + "," + first.getDutyCycle()
+        : "";
+    String input = (String) JOptionPane.showInputDialog(panel,
+        "Period, phase (ticks) and duty cycle (%), e.g. 100,0,50\n(Leave empty to follow the global clock speed):",
+        "Set Clock Timing", JOptionPane.QUESTION_MESSAGE, null, null, current);
+    if (input == null)
+      return;
+    int period = 0, phase = 0, duty = 50;
+    try {
+      if (!input.trim().isEmpty()) {
+        String[] parts = input.split(",");
+        period = Integer.parseInt(parts[0].trim());
+        if (parts.length > 1)
+          phase = Integer.parseInt(parts[1].trim());
+        if (parts.length > 2)
+          duty = Integer.parseInt(parts[2].trim());
+      }
+      Clock.checkTiming(period, duty); // Applied on the simulation thread
+    } catch (IllegalArgumentException ex) {
+      JOptionPane.showMessageDialog(panel, "Invalid clock timing: " + input, "Error", JOptionPane.ERROR_MESSAGE);
+      return;
+    }
+    saveHistory();
+    int p = period, ph = phase, d = duty;
+    postCommand(() -> {
+      for (Clock c : clocks)
+        c.setTiming(p, ph, d);
+    });
+  }
+
   private void showContextMenu(MouseEvent e) {
     JPopupMenu menu = new JPopupMenu();
 
@@ -202,13 +260,27 @@ public class CircuitInteraction extends MouseAdapter implements KeyListener {
             return;
           }
         }
-        for (Component c : selectedComponents) {
-          c.setCustomDelay(val);
-        }
+        Integer delay = val;
+        List<Component> targets = new ArrayList<>(selectedComponents);
+        postCommand(() -> {
+          for (Component c : targets)
+            c.setCustomDelay(delay);
+        });
       }
     });
     menu.add(delayItem);
 
+    List<Clock> selectedClocks = new ArrayList<>();
+    for (Component c : selectedComponents) {
+      if (c instanceof Clock clock)
+        selectedClocks.add(clock);
+    }
+    if (!selectedClocks.isEmpty()) {
+      JMenuItem clockItem = new JMenuItem("Set Clock Timing...");
+      clockItem.addActionListener(ev -> setClockTiming(selectedClocks));
+      menu.add(clockItem);
+    }
+
     menu.addSeparator();
     JMenuItem renameItem = new JMenuItem("Rename");
     renameItem.addActionListener(ev -> {
@@ -335,8 +407,11 @@ public class CircuitInteraction extends MouseAdapter implements KeyListener {
       selectedWireSegment = null;
     }
 
-    for (Component c : new ArrayList<>(selectedComponents))
-      circuit.removeComponent(c);
+    List<Component> doomed = new ArrayList<>(selectedComponents);
+    circuit.edit(() -> {
+      for (Component c : doomed)
+        circuit.removeComponent(c);
+    });
     selectedComponents.clear();
     panel.repaint();
   }
@@ -344,7 +419,8 @@ public class CircuitInteraction extends MouseAdapter implements KeyListener {
   public void copy() {
     if (selectedComponents.isEmpty())
       return;
-    Circuit temp = new Circuit();
+    // Share the live engine so the selection is not rebound to a throwaway one
+    Circuit temp = new Circuit(circuit.getEngine());
     for (Component c : selectedComponents)
       temp.addComponent(c);
     clipboardString = StorageManager.saveToString(temp, null);
@@ -432,8 +508,14 @@ public class CircuitInteraction extends MouseAdapter implements KeyListener {
       }
     }
 
-    // Create the CustomComponent wrapper
-    CustomComponent newTool = new CustomComponent(name, innerCircuit);
+    // Create the CustomComponent wrapper (chips compile to single-bit nets)
+    CustomComponent newTool;
+    try {
+      newTool = new CustomComponent(name, innerCircuit);
+    } catch (UnsupportedComponentException ex) {
+      JOptionPane.showMessageDialog(panel, ex.getMessage(), "Cannot Create Component", JOptionPane.ERROR_MESSAGE);
+      return;
+    }
 
     // Add to Palette
     if (palette != null) {
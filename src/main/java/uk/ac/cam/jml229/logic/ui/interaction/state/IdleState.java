@@ -3,12 +3,21 @@ package uk.ac.cam.jml229.logic.ui.interaction.state;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.Point2D;
+import java.io.IOException;
 import javax.swing.*;
 
+import uk.ac.cam.jml229.logic.components.BusComponent;
 import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.components.bus.Merger;
+import uk.ac.cam.jml229.logic.components.bus.Splitter;
 import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.components.mem.MemoryComponent;
+import uk.ac.cam.jml229.logic.components.mem.Rom;
+import uk.ac.cam.jml229.logic.components.gates.BufferGate;
 import uk.ac.cam.jml229.logic.components.gates.LogicGate;
+import uk.ac.cam.jml229.logic.components.gates.NotGate;
 import uk.ac.cam.jml229.logic.components.misc.TextLabel;
+import uk.ac.cam.jml229.logic.core.Wire;
 import uk.ac.cam.jml229.logic.ui.interaction.*;
 import uk.ac.cam.jml229.logic.ui.render.CircuitRenderer.Pin;
 import uk.ac.cam.jml229.logic.ui.render.CircuitRenderer.WireSegment;
@@ -144,8 +153,8 @@ public class IdleState implements InteractionState {
     Component c = ctx.getHitTester().findComponentAt(worldPt);
 
     if (c != null) {
-      if (c instanceof Switch) {
-        ((Switch) c).toggle(!((Switch) c).getState());
+      if (c instanceof Switch s) {
+        ctx.postCommand(() -> s.toggle(!s.getState()));
         ctx.getPanel().repaint();
       } else if (e.getClickCount() == 2) {
         renameComponent(c);
@@ -217,6 +226,22 @@ public class IdleState implements InteractionState {
     }
   }
 
+  // Probes are UnaryGates too, but stay single-bit: they are chip output pins
+  private boolean isBusCapable(Component c) {
+    return c instanceof LogicGate || c instanceof NotGate || c instanceof BufferGate
+        || c instanceof Splitter || c instanceof Merger || c instanceof MemoryComponent;
+  }
+
+  private boolean isConnected(Component c) {
+    for (Wire w : c.getAllOutputs())
+      if (!w.getDestinations().isEmpty())
+        return true;
+    for (int i = 0; i < c.getInputCount(); i++)
+      if (ctx.getCircuit().getDriver(c, i) != null)
+        return true;
+    return false;
+  }
+
   private void showContextMenu(int x, int y) {
     JPopupMenu menu = new JPopupMenu();
 
@@ -238,7 +263,7 @@ public class IdleState implements InteractionState {
             int n = Integer.parseInt(input);
             // Save history BEFORE changing state so Undo works
             ctx.saveHistory();
-            gate.resizeInputs(n);
+            ctx.runExclusive(() -> gate.resizeInputs(n));
             ctx.getPanel().repaint();
           } catch (NumberFormatException ex) {
             // Ignore invalid numbers
@@ -246,6 +271,91 @@ public class IdleState implements InteractionState {
         }
       });
       menu.add(setInputs);
+    }
+
+    if (ctx.getSelection().size() == 1 && isBusCapable(ctx.getSelection().get(0))) {
+      Component target = ctx.getSelection().get(0);
+      BusComponent bus = (BusComponent) target;
+
+      JMenuItem setWidth = new JMenuItem("Set Bus Width...");
+      setWidth.addActionListener(e -> {
+        // Wires keep the width they were made with
+        if (isConnected(target)) {
+          JOptionPane.showMessageDialog(ctx.getPanel(), "Disconnect the component before changing its bus width.");
+          return;
+        }
+        String input = JOptionPane.showInputDialog(ctx.getPanel(),
+            "Bits per pin (1-64):",
+            String.valueOf(bus.getBusWidth()));
+
+        if (input != null) {
+          try {
+            int n = Integer.parseInt(input);
+            ctx.saveHistory();
+            ctx.runExclusive(() -> {
+              bus.setBusWidth(n);
+              target.update();
+            });
+            ctx.getPanel().repaint();
+          } catch (NumberFormatException ex) {
+            // Ignore invalid numbers
+          }
+        }
+      });
+      menu.add(setWidth);
+
+      if (target instanceof MemoryComponent mem) {
+        JMenuItem setAddress = new JMenuItem("Set Address Width...");
+        setAddress.addActionListener(e -> {
+          if (isConnected(target)) {
+            JOptionPane.showMessageDialog(ctx.getPanel(), "Disconnect the component before changing its address width.");
+            return;
+          }
+          String input = JOptionPane.showInputDialog(ctx.getPanel(),
+              "Address bits (1-" + MemoryComponent.MAX_ADDRESS_WIDTH + "):",
+              String.valueOf(mem.getAddressWidth()));
+
+          if (input != null) {
+            try {
+              int n = Integer.parseInt(input);
+              ctx.saveHistory();
+              ctx.runExclusive(() -> {
+                mem.setAddressWidth(n);
+                target.update();
+              });
+              ctx.getPanel().repaint();
+            } catch (NumberFormatException ex) {
+              // Ignore invalid numbers
+            }
+          }
+        });
+        menu.add(setAddress);
+      }
+
+      if (target instanceof Rom rom) {
+        JMenuItem loadImage = new JMenuItem("Load Image...");
+        loadImage.addActionListener(e -> {
+          JFileChooser fc = new JFileChooser();
+          fc.setDialogTitle("Load ROM Image (binary, or .hex text)");
+          if (fc.showOpenDialog(ctx.getPanel()) != JFileChooser.APPROVE_OPTION)
+            return;
+          ctx.saveHistory();
+          IOException[] failure = new IOException[1];
+          ctx.runExclusive(() -> {
+            try {
+              rom.loadImage(fc.getSelectedFile().toPath());
+              target.update();
+            } catch (IOException ex) {
+              failure[0] = ex;
+            }
+          });
+          ctx.getPanel().repaint();
+          if (failure[0] != null)
+            JOptionPane.showMessageDialog(ctx.getPanel(), failure[0].getMessage(), "Cannot Load Image",
+                JOptionPane.ERROR_MESSAGE);
+        });
+        menu.add(loadImage);
+      }
       menu.addSeparator();
     }
 
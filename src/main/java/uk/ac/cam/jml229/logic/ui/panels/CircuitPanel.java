@@ -8,6 +8,7 @@ import java.awt.geom.AffineTransform;
 import java.util.function.Consumer; // For the listener
 
 import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.SignalSnapshot;
 import uk.ac.cam.jml229.logic.ui.render.CircuitRenderer;
 import uk.ac.cam.jml229.logic.ui.interaction.CircuitInteraction;
 import uk.ac.cam.jml229.logic.app.Theme;
@@ -18,6 +19,9 @@ public class CircuitPanel extends JPanel {
   private final CircuitRenderer renderer;
   private final CircuitInteraction interaction;
 
+  // Published values from the simulation thread, if it runs on one
+  private SignalSnapshot snapshot = null;
+
   // Viewport State
   private double panX = 0;
   private double panY = 0;
@@ -61,6 +65,14 @@ public class CircuitPanel extends JPanel {
     this.onCircuitChanged = listener;
   }
 
+  /**
+   * Draws signal values from the snapshot's newest frame instead of reading
+   * the circuit while another thread simulates it.
+   */
+  public void setSnapshot(SignalSnapshot snapshot) {
+    this.snapshot = snapshot;
+  }
+
   // --- Zoom Actions (For Menus/Keyboard) ---
   public void zoomIn() {
     // Zoom to Center of Screen
@@ -223,6 +235,7 @@ public class CircuitPanel extends JPanel {
     double wh = getHeight() / scale;
     Rectangle visibleWorldBounds = new Rectangle((int) wx, (int) wy, (int) ww + 1, (int) wh + 1);
 
+    renderer.setFrame(snapshot != null ? snapshot.acquire() : null);
     renderer.render(g2,
         circuit.getComponents(),
         circuit.getWires(),
@@ -236,7 +249,8 @@ public class CircuitPanel extends JPanel {
         interaction.getCurrentMousePoint(),
         interaction.getSelectionRect(),
         interaction.getComponentToPlace(),
-        visibleWorldBounds);
+        visibleWorldBounds,
+        circuit.getEngine().getOscillation());
 
     g2.setTransform(oldTransform);
   }
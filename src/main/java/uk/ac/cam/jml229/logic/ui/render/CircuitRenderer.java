@@ -7,6 +7,8 @@ import java.util.List;
 
 import uk.ac.cam.jml229.logic.components.Component;
 import uk.ac.cam.jml229.logic.components.io.OutputProbe;
+import uk.ac.cam.jml229.logic.core.OscillationReport;
+import uk.ac.cam.jml229.logic.core.SignalSnapshot;
 import uk.ac.cam.jml229.logic.core.Wire;
 import uk.ac.cam.jml229.logic.app.Theme;
 
@@ -22,6 +24,9 @@ public class CircuitRenderer {
 
   private static final int GRID_SIZE = 20;
 
+  // Values to draw, or null to read the circuit directly
+  private SignalSnapshot.Frame frame = null;
+
   public record Pin(Component component, int index, boolean isInput, Point location) {
   }
 
@@ -31,6 +36,15 @@ public class CircuitRenderer {
   public record WireSegment(Wire wire, Wire.PortConnection connection) {
   }
 
+  /**
+   * Sets the snapshot frame that wire and component values are drawn from
+   * until the next call. Null draws live values.
+   */
+  public void setFrame(SignalSnapshot.Frame frame) {
+    this.frame = frame;
+    componentPainter.setFrame(frame);
+  }
+
   public void render(Graphics2D g2,
       List<Component> components,
       List<Wire> wires,
@@ -44,10 +58,12 @@ public class CircuitRenderer {
       Point currentMousePoint,
       Rectangle selectionRect,
       Component ghostComponent,
-      Rectangle viewBounds) {
+      Rectangle viewBounds,
+      OscillationReport oscillation) {
 
     setupGraphics(g2);
     drawGrid(g2, viewBounds);
+    drawOscillation(g2, oscillation);
     drawWires(g2, wires, selectedWire, hoveredWire, selectedWaypoint, hoveredWaypoint);
     drawComponents(g2, components, selectedComponents, hoveredPin, activePin(hoveredPin, connectionStartPin));
 
@@ -98,6 +114,35 @@ public class CircuitRenderer {
     g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, oldAA);
   }
 
+  // Halo under the loop that failed to settle, so it shows through the wires
+  private void drawOscillation(Graphics2D g2, OscillationReport oscillation) {
+    if (oscillation == null)
+      return;
+    g2.setColor(Theme.OSCILLATION_COLOR);
+    g2.setStroke(new BasicStroke(10, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+    for (Wire w : oscillation.wires()) {
+      Component source = w.getSource();
+      int sourceIndex = 0;
+      for (int i = 0; i < source.getOutputCount(); i++) {
+        if (source.getOutputWire(i) == w) {
+          sourceIndex = i;
+          break;
+        }
+      }
+      Point p1 = componentPainter.getPinLocation(source, false, sourceIndex);
+      for (Wire.PortConnection pc : w.getDestinations()) {
+        if (!oscillation.contains(pc.component))
+          continue;
+        Point p2 = componentPainter.getPinLocation(pc.component, true, pc.inputIndex);
+        g2.draw(wirePainter.createWireShape(p1, p2, pc.waypoints));
+      }
+    }
+    for (Component c : oscillation.components()) {
+      Rectangle r = componentPainter.getComponentBounds(c);
+      g2.fillRoundRect(r.x - 6, r.y - 6, r.width + 12, r.height + 12, 12, 12);
+    }
+  }
+
   private void drawWires(Graphics2D g2, List<Wire> wires,
       WireSegment selectedWire, WireSegment hoveredWire,
       WaypointRef selectedWaypoint, WaypointRef hoveredWaypoint) {
@@ -123,7 +168,9 @@ public class CircuitRenderer {
         boolean isWireHovered = (hoveredWire != null && hoveredWire.wire() == w && hoveredWire.connection() == pc);
 
         Shape path = wirePainter.createWireShape(p1, p2, pc.waypoints);
-        wirePainter.drawWire(g2, path, w.getSignal(), isWireSelected, isWireHovered);
+        int level = (frame != null) ? frame.getLevel(w)
+            : (w.getSignal() ? 1 : 0) | (w.getUnknown() != 0 ? 2 : 0);
+        wirePainter.drawWire(g2, path, level, isWireSelected, isWireHovered, w.getWidth() > 1);
 
         if (isWireSelected || isWireHovered || !pc.waypoints.isEmpty()) {
           for (Point pt : pc.waypoints) {
@@ -10,11 +10,27 @@ import uk.ac.cam.jml229.logic.components.gates.*;
 import uk.ac.cam.jml229.logic.components.io.*;
 import uk.ac.cam.jml229.logic.components.seq.*;
 import uk.ac.cam.jml229.logic.components.misc.*;
+import uk.ac.cam.jml229.logic.core.SignalSnapshot;
 
 public class ComponentPainter {
 
   private static final int PIN_SIZE = 8;
 
+  // Values to draw, or null to read the components directly
+  private SignalSnapshot.Frame frame = null;
+
+  public void setFrame(SignalSnapshot.Frame frame) {
+    this.frame = frame;
+  }
+
+  private long inputBits(Component c) {
+    return (frame != null) ? frame.getInputBits(c) : c.getInputBits();
+  }
+
+  private long stateBits(Component c) {
+    return (frame != null) ? frame.getStateBits(c) : c.getStateBits();
+  }
+
   public void drawComponent(Graphics2D g2, Component c, boolean sel, boolean drawLabel) {
     AffineTransform oldTx = g2.getTransform();
     int x = c.getX();
@@ -65,7 +81,7 @@ public class ComponentPainter {
 
   private boolean shouldDrawLabel(String id) {
     return switch (id) {
-      case "CUSTOM", "D_FF", "JK_FF", "T_FF", "SEVEN_SEG", "HEX", "LABEL" -> false;
+      case "CUSTOM", "D_FF", "JK_FF", "T_FF", "SEVEN_SEG", "HEX", "LABEL", "SPLITTER", "MERGER", "RAM", "ROM" -> false;
       default -> true;
     };
   }
@@ -274,7 +290,7 @@ public class ComponentPainter {
     g2.setStroke(new BasicStroke(1));
     g2.drawRoundRect(x, sy, w, h, arc, arc);
 
-    boolean on = s.getState();
+    boolean on = (stateBits(s) & 1) != 0;
     int thumbSize = 22;
     int thumbY = sy - (thumbSize - h) / 2;
     int thumbX = on ? (x + w - thumbSize) : x;
@@ -306,7 +322,7 @@ public class ComponentPainter {
     g2.setStroke(new BasicStroke(2));
     g2.drawRoundRect(x, y + 5, 40, 30, 5, 5);
 
-    boolean on = c.getState();
+    boolean on = (stateBits(c) & 1) != 0;
     g2.setColor(on ? Theme.SWITCH_ON : new Color(100, 100, 100)); // Uses Switch/Wire color
 
     g2.setStroke(new BasicStroke(2));
@@ -328,7 +344,7 @@ public class ComponentPainter {
       g2.setStroke(new BasicStroke(5));
       g2.drawOval(x, y, 40, 40);
     }
-    boolean on = p.getState();
+    boolean on = (inputBits(p) & 1) != 0;
     Color core = on ? Theme.LED_ON : Theme.LED_OFF; // Theme dependent
 
     if (on) {
@@ -433,11 +449,13 @@ public class ComponentPainter {
   }
 
   private void drawSevenSegment(Graphics2D g2, SevenSegmentDisplay c, int x, int y, boolean sel) {
-    drawDisplayImpl(g2, x, y, 60, 160, sel, c::isSegmentOn);
+    long bits = inputBits(c);
+    drawDisplayImpl(g2, x, y, 60, 160, sel, i -> (bits & (1L << i)) != 0);
   }
 
   private void drawHexDisplay(Graphics2D g2, HexDisplay c, int x, int y, boolean sel) {
-    drawDisplayImpl(g2, x, y, 60, 80, sel, c::isSegmentOn);
+    long bits = inputBits(c);
+    drawDisplayImpl(g2, x, y, 60, 80, sel, i -> HexDisplay.isSegmentOn(bits, i));
   }
 
   // --- Logic Gates ---
@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import uk.ac.cam.jml229.logic.app.Theme;
+import uk.ac.cam.jml229.logic.core.FourState;
 
 public class WirePainter {
 
@@ -31,15 +32,31 @@ public class WirePainter {
     return path;
   }
 
-  public void drawWire(Graphics2D g2, Shape path, boolean isSignalOn, boolean isSelected, boolean isHovered) {
+  /**
+   * Buses are drawn thicker, with one curve for the whole word. The level
+   * is a FourState constant; X and Z only occur in four-state runs.
+   */
+  public void drawWire(Graphics2D g2, Shape path, int level, boolean isSelected, boolean isHovered,
+      boolean isBus) {
+    Stroke base = g2.getStroke();
+    int thickness = isBus ? 6 : 3;
     if (isSelected || isHovered) {
       g2.setColor(isSelected ? Theme.SELECTION_BORDER : Theme.HOVER_COLOR);
-      g2.setStroke(new BasicStroke(6));
+      g2.setStroke(new BasicStroke(thickness + 3));
       g2.draw(path);
-      g2.setStroke(new BasicStroke(3));
+      g2.setStroke(new BasicStroke(thickness));
+    } else if (isBus) {
+      g2.setStroke(new BasicStroke(thickness, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
     }
-    g2.setColor(isSignalOn ? Theme.WIRE_ON : Theme.WIRE_OFF);
+    g2.setColor(switch (level) {
+      case FourState.ONE -> Theme.WIRE_ON;
+      case FourState.X -> Theme.WIRE_UNKNOWN;
+      case FourState.Z -> Theme.WIRE_FLOATING;
+      default -> Theme.WIRE_OFF;
+    });
     g2.draw(path);
+    if (isBus)
+      g2.setStroke(base);
   }
 
   public void drawHandle(Graphics2D g2, Point pt, boolean isSelected, boolean isHovered) {
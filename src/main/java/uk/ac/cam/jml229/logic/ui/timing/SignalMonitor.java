@@ -1,5 +1,6 @@
 package uk.ac.cam.jml229.logic.ui.timing;
 
+import uk.ac.cam.jml229.logic.core.SignalSnapshot;
 import uk.ac.cam.jml229.logic.core.Wire;
 import java.awt.Color;
 
@@ -8,6 +9,7 @@ public class SignalMonitor {
   private final Wire wire;
   private final boolean[] history;
   private int head = 0;
+  private boolean current = false; // Last sampled value
   private final Color color;
 
   public SignalMonitor(String name, Wire wire, Color color, int bufferSize) {
@@ -17,8 +19,19 @@ public class SignalMonitor {
     this.history = new boolean[bufferSize];
   }
 
+  /**
+   * Reads the wire from a published frame rather than from the circuit,
+   * which the simulation thread may be changing (live when frame is null).
+   */
+  public void sample(SignalSnapshot.Frame frame) {
+    current = (frame != null) ? frame.getSignal(wire) : wire.getSignal();
+  }
+
+  /**
+   * Appends the last sampled value to the history.
+   */
   public void tick() {
-    history[head] = wire.getSignal();
+    history[head] = current;
     head = (head + 1) % history.length;
   }
 
@@ -38,6 +51,6 @@ public class SignalMonitor {
   }
 
   public boolean getCurrentState() {
-    return wire.getSignal();
+    return current;
   }
 }
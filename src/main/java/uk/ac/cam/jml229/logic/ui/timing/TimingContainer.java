@@ -6,6 +6,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 
 import uk.ac.cam.jml229.logic.app.Theme;
+import uk.ac.cam.jml229.logic.core.SignalSnapshot;
 import uk.ac.cam.jml229.logic.ui.render.ThemedScrollBarUI;
 
 public class TimingContainer extends JPanel {
@@ -71,6 +72,10 @@ public class TimingContainer extends JPanel {
 
   // --- Public API ---
 
+  public void setSnapshot(SignalSnapshot snapshot) {
+    timingPanel.setSnapshot(snapshot);
+  }
+
   public void addMonitor(SignalMonitor m) {
     timingPanel.addMonitor(m);
     SwingUtilities.invokeLater(this::scrollToPresent);
@@ -5,6 +5,7 @@ import java.awt.*;
 import java.util.ArrayList;
 import java.util.List;
 import uk.ac.cam.jml229.logic.app.Theme;
+import uk.ac.cam.jml229.logic.core.SignalSnapshot;
 
 public class TimingPanel extends JPanel implements Scrollable {
 
@@ -12,6 +13,7 @@ public class TimingPanel extends JPanel implements Scrollable {
   private final int bufferSize = 2000;
   private int timeStep = 5;
   private boolean paused = false;
+  private SignalSnapshot snapshot = null;
 
   // --- Header Component for Names ---
   private final RowHeader rowHeader = new RowHeader();
@@ -36,6 +38,14 @@ public class TimingPanel extends JPanel implements Scrollable {
     repaint();
   }
 
+  /**
+   * Samples monitored wires from the snapshot's newest frame instead of
+   * reading the circuit while another thread simulates it.
+   */
+  public void setSnapshot(SignalSnapshot snapshot) {
+    this.snapshot = snapshot;
+  }
+
   public void addMonitor(SignalMonitor m) {
     monitors.add(m);
     revalidate();
@@ -60,6 +70,9 @@ public class TimingPanel extends JPanel implements Scrollable {
   }
 
   public void tick() {
+    SignalSnapshot.Frame frame = (snapshot != null) ? snapshot.acquire() : null;
+    for (SignalMonitor m : monitors)
+      m.sample(frame);
     if (paused)
       return;
     for (SignalMonitor m : monitors)
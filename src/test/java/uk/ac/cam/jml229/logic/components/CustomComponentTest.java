@@ -0,0 +1,196 @@
+package uk.ac.cam.jml229.logic.components;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.cam.jml229.logic.components.gates.BufferGate;
+import uk.ac.cam.jml229.logic.components.gates.NorGate;
+import uk.ac.cam.jml229.logic.components.io.OutputProbe;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.components.seq.DFlipFlop;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.FourState;
+import uk.ac.cam.jml229.logic.core.OscillationReport;
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
+import uk.ac.cam.jml229.logic.core.SimulationConfig.EngineType;
+import uk.ac.cam.jml229.logic.core.compiled.SimulationBackend;
+
+class CustomComponentTest {
+
+  private static final SimulationConfig ZERO_DELAY = SimulationConfig.DEFAULT.withPropagationDelay(false);
+
+  // A chip whose output is a NOR ring, held still while its input is high
+  private static CustomComponent ringChip() {
+    Circuit inner = new Circuit();
+    Switch hold = new Switch("HOLD");
+    NorGate nor = new NorGate("N");
+    BufferGate back = new BufferGate("B");
+    OutputProbe out = new OutputProbe("OUT");
+    inner.addComponent(hold);
+    inner.addComponent(nor);
+    inner.addComponent(back);
+    inner.addComponent(out);
+    inner.addConnection(hold, nor, 0);
+    inner.addConnection(nor, back, 0);
+    inner.addConnection(back, nor, 1);
+    inner.addConnection(nor, out, 0);
+    return new CustomComponent("RING", inner);
+  }
+
+  private static Circuit host(CustomComponent chip, Switch in, SimulationConfig config) {
+    Circuit circuit = new Circuit();
+    circuit.getEngine().setConfig(config);
+    OutputProbe probe = new OutputProbe("P");
+    circuit.addComponent(in);
+    circuit.addComponent(chip);
+    circuit.addComponent(probe);
+    in.toggle(true); // Before wiring: the chip rings as soon as it sees a low input
+    circuit.addConnection(in, chip, 0);
+    circuit.addConnection(chip, probe, 0);
+    circuit.getEngine().run(8);
+    return circuit;
+  }
+
+  @Test
+  void zeroDelayOscillationInsideChipIsReported() {
+    CustomComponent chip = ringChip();
+    Switch in = new Switch("IN");
+    Circuit circuit = host(chip, in, ZERO_DELAY);
+    assertNull(circuit.getEngine().getOscillation());
+
+    in.toggle(false);
+    circuit.getEngine().run(8);
+    OscillationReport report = circuit.getEngine().getOscillation();
+    assertNotNull(report, "oscillating chip went unreported");
+    assertTrue(report.contains(chip));
+  }
+
+  @Test
+  void zeroDelayOscillatingChipDrivesXInFourStateRuns() {
+    CustomComponent chip = ringChip();
+    Switch in = new Switch("IN");
+    Circuit circuit = host(chip, in, ZERO_DELAY.withFourState(true));
+
+    in.toggle(false);
+    circuit.getEngine().run(8);
+    assertEquals(FourState.X, chip.getOutputWire(0).getLevel(0));
+  }
+
+  @Test
+  void ringInsideChipKeepsItsGateDelays() {
+    CustomComponent chip = ringChip();
+    Switch in = new Switch("IN");
+    Circuit circuit = host(chip, in, SimulationConfig.DEFAULT);
+
+    in.toggle(false);
+    int toggles = 0;
+    boolean last = chip.getOutputWire(0).getSignal();
+    for (int t = 0; t < 40; t++) {
+      circuit.getEngine().run(1);
+      boolean now = chip.getOutputWire(0).getSignal();
+      if (now != last)
+        toggles++;
+      last = now;
+    }
+    assertNull(circuit.getEngine().getOscillation());
+    assertTrue(toggles >= 10, "ring inside the chip stopped: " + toggles + " toggles");
+  }
+
+  // Two D flip-flops on one clock; clockFirstToSecond picks the order the
+  // clock net's fan-out is wired in
+  private static Circuit shiftRegister(boolean clockFirstToSecond) {
+    Circuit c = new Circuit();
+    Switch d = new Switch("D");
+    Switch clk = new Switch("CLK");
+    DFlipFlop ff1 = new DFlipFlop("FF1");
+    DFlipFlop ff2 = new DFlipFlop("FF2");
+    OutputProbe q1 = new OutputProbe("Q1");
+    OutputProbe q2 = new OutputProbe("Q2");
+    d.setPosition(0, 0);
+    clk.setPosition(0, 100);
+    q1.setPosition(300, 0);
+    q2.setPosition(300, 100);
+    c.addComponent(d);
+    c.addComponent(clk);
+    c.addComponent(ff1);
+    c.addComponent(ff2);
+    c.addComponent(q1);
+    c.addComponent(q2);
+    c.addConnection(d, ff1, 0);
+    c.addConnection(ff1, 0, ff2, 0);
+    if (clockFirstToSecond) {
+      c.addConnection(clk, ff1, 1);
+      c.addConnection(clk, ff2, 1);
+    } else {
+      c.addConnection(clk, ff2, 1);
+      c.addConnection(clk, ff1, 1);
+    }
+    c.addConnection(ff1, 0, q1, 0);
+    c.addConnection(ff2, 0, q2, 0);
+    return c;
+  }
+
+  // Host around a shift-register chip; returns {Q1, Q2} after one clock edge
+  private static boolean[] clockOnce(boolean clockFirstToSecond, SimulationConfig config, EngineType type) {
+    CustomComponent chip = new CustomComponent("SR", shiftRegister(clockFirstToSecond));
+    Circuit circuit = new Circuit();
+    circuit.getEngine().setConfig(config);
+    Switch d = new Switch("D");
+    Switch clk = new Switch("CLK");
+    circuit.addComponent(d);
+    circuit.addComponent(clk);
+    circuit.addComponent(chip);
+    circuit.addConnection(d, chip, 0);
+    circuit.addConnection(clk, chip, 1);
+    for (int o = 0; o < 2; o++) {
+      OutputProbe p = new OutputProbe("P" + o);
+      circuit.addComponent(p);
+      circuit.addConnection(chip, o, p, 0);
+    }
+    circuit.getEngine().run(10);
+
+    try (SimulationBackend backend = SimulationBackend.open(circuit, type)) {
+      backend.setSwitch(d, true);
+      backend.runTicks(10);
+      backend.setSwitch(clk, true);
+      backend.runTicks(10);
+      return new boolean[] { backend.getOutput(chip, 0), backend.getOutput(chip, 1) };
+    }
+  }
+
+  @Test
+  void shiftRegisterInsideChipMovesOneStagePerEdge() {
+    for (boolean order : new boolean[] { true, false }) {
+      for (SimulationConfig config : new SimulationConfig[] { SimulationConfig.DEFAULT, ZERO_DELAY }) {
+        boolean[] q = clockOnce(order, config, EngineType.OBJECT);
+        assertTrue(q[0], "Q1 not latched");
+        assertFalse(q[1], "data ran through both stages on one edge");
+      }
+    }
+  }
+
+  @Test
+  void compiledEnginesAgreeWithObjectEngineOnChips() {
+    for (boolean order : new boolean[] { true, false }) {
+      boolean[] object = clockOnce(order, SimulationConfig.DEFAULT, EngineType.OBJECT);
+      for (EngineType type : new EngineType[] { EngineType.COMPILED, EngineType.PARTITIONED }) {
+        boolean[] q = clockOnce(order, SimulationConfig.DEFAULT, type);
+        assertEquals(object[0], q[0], type + " Q1");
+        assertEquals(object[1], q[1], type + " Q2");
+      }
+    }
+  }
+
+  @Test
+  void autoEngineKeepsChipsOnTheObjectEngine() {
+    Circuit circuit = host(ringChip(), new Switch("IN"), SimulationConfig.DEFAULT);
+    try (SimulationBackend backend = SimulationBackend.open(circuit, false)) {
+      assertEquals(EngineType.OBJECT, backend.getType());
+    }
+  }
+}
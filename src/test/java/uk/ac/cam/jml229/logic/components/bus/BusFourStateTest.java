@@ -0,0 +1,44 @@
+package uk.ac.cam.jml229.logic.components.bus;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.cam.jml229.logic.components.io.OutputProbe;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.FourState;
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
+
+class BusFourStateTest {
+
+  @Test
+  void unknownBitsSurviveMergeAndSplit() {
+    Circuit circuit = new Circuit();
+    circuit.getEngine().setConfig(SimulationConfig.DEFAULT.withFourState(true));
+
+    Switch sw = new Switch("A");
+    Merger merger = new Merger("M");
+    merger.setBusWidth(2);
+    Splitter splitter = new Splitter("S");
+    splitter.setBusWidth(2);
+    circuit.addComponent(sw);
+    circuit.addComponent(merger);
+    circuit.addComponent(splitter);
+    circuit.addConnection(sw, merger, 0); // Pin 1 left floating
+    circuit.addConnection(merger, splitter, 0);
+    for (int i = 0; i < 2; i++) {
+      OutputProbe probe = new OutputProbe("Q" + i);
+      circuit.addComponent(probe);
+      circuit.addConnection(splitter, i, probe, 0);
+    }
+    sw.toggle(true);
+    circuit.refreshUndrivenInputs();
+    circuit.getEngine().run(16);
+
+    assertEquals(0b01L, merger.getOutputWire().getValue());
+    assertEquals(0b10L, merger.getOutputWire().getUnknown());
+    assertEquals(FourState.ONE, splitter.getOutputWire(0).getLevel(0));
+    assertEquals(FourState.Z, splitter.getOutputWire(1).getLevel(0));
+  }
+}
@@ -0,0 +1,67 @@
+package uk.ac.cam.jml229.logic.components.gates;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.cam.jml229.logic.components.bus.Merger;
+import uk.ac.cam.jml229.logic.components.bus.Splitter;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
+
+class BusGateTest {
+
+  private Merger merger;
+  private NotGate not;
+  private AndGate and;
+
+  // A two-bit word W from switch A (bit 0) and B (bit 1), then W AND NOT W
+  private Circuit build(SimulationConfig config, boolean connectB) {
+    Circuit circuit = new Circuit();
+    circuit.getEngine().setConfig(config);
+    Switch a = new Switch("A");
+    Switch b = new Switch("B");
+    merger = new Merger("W");
+    not = new NotGate("N");
+    and = new AndGate("G");
+    Splitter sink = new Splitter("S");
+    merger.setBusWidth(2);
+    not.setBusWidth(2);
+    and.setBusWidth(2);
+    sink.setBusWidth(2);
+    circuit.addComponent(a);
+    circuit.addComponent(b);
+    circuit.addComponent(merger);
+    circuit.addComponent(not);
+    circuit.addComponent(and);
+    circuit.addComponent(sink);
+    circuit.addConnection(a, merger, 0);
+    if (connectB)
+      circuit.addConnection(b, merger, 1);
+    circuit.addConnection(merger, not, 0);
+    circuit.addConnection(merger, and, 0);
+    circuit.addConnection(not, and, 1);
+    circuit.addConnection(and, sink, 0);
+    a.toggle(true);
+    circuit.refreshUndrivenInputs();
+    circuit.getEngine().run(16);
+    return circuit;
+  }
+
+  @Test
+  void unaryAndMultiInputGatesWorkBitwise() {
+    build(SimulationConfig.DEFAULT, true);
+    assertEquals(0b10L, not.getOutputWire().getValue());
+    assertEquals(0b00L, and.getOutputWire().getValue());
+  }
+
+  @Test
+  void floatingBitsComeOutUnknown() {
+    build(SimulationConfig.DEFAULT.withFourState(true), false);
+    assertEquals(0b10L, not.getOutputWire().getUnknown());
+    assertEquals(0L, not.getOutputWire().getValue() & 1);
+    assertEquals(0b10L, and.getOutputWire().getUnknown());
+    assertEquals(0L, and.getOutputWire().getValue() & 1);
+  }
+}
@@ -0,0 +1,64 @@
+package uk.ac.cam.jml229.logic.components.mem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+class MemoryImageTest {
+
+  private static ByteBuffer loadHex(String text, int dataWidth) throws IOException {
+    Path file = Files.createTempFile("image", ".hex");
+    try {
+      Files.writeString(file, text);
+      return MemoryImage.load(file, dataWidth);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  void runLengthWordsExpand() throws IOException {
+    ByteBuffer image = loadHex("v2.0 raw\n1 3*ab, 2 # tail\n10*0 ff\n", 8);
+    assertEquals(16, image.capacity());
+    assertEquals(0x01, image.get(0) & 0xFF);
+    for (int i = 1; i <= 3; i++)
+      assertEquals(0xAB, image.get(i) & 0xFF);
+    assertEquals(0x02, image.get(4) & 0xFF);
+    for (int i = 5; i < 15; i++)
+      assertEquals(0, image.get(i));
+    assertEquals(0xFF, image.get(15) & 0xFF);
+  }
+
+  @Test
+  void malformedRunLengthIsRejected() {
+    for (String bad : new String[] { "1f*2", "3*", "3* 4", "99999999999*0" }) {
+      IOException e = assertThrows(IOException.class, () -> loadHex(bad, 8), bad);
+      assertTrue(e.getMessage().contains("hex image"), e.getMessage());
+    }
+  }
+
+  @Test
+  void ramKeepsItsBufferWhenTheSizeAllows() {
+    Ram ram = new Ram("R");
+    ram.setAddressWidth(4);
+    ByteBuffer first = ram.contents;
+    ram.write(3, 0x5A);
+    ram.setBusWidth(7); // Still one byte per word
+    assertSame(first, ram.contents);
+    assertEquals(0x5A, ram.read(3));
+
+    ram.setAddressWidth(3); // Smaller: a cleared view of the same memory
+    assertEquals(0, ram.read(3));
+    ram.setAddressWidth(4);
+    assertEquals(16, ram.contents.capacity());
+    assertEquals(0, ram.read(3));
+  }
+}
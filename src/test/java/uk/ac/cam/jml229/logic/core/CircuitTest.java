@@ -0,0 +1,85 @@
+package uk.ac.cam.jml229.logic.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.components.gates.NotGate;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.components.seq.Clock;
+
+class CircuitTest {
+
+  private static List<Component> chain(Circuit circuit, int length) {
+    List<Component> parts = new ArrayList<>();
+    Component prev = new Switch("S");
+    circuit.addComponent(prev);
+    parts.add(prev);
+    for (int i = 0; i < length; i++) {
+      Component c = (i % 3 == 0) ? new Clock("C" + i) : new NotGate("N" + i);
+      circuit.addComponent(c);
+      if (!(c instanceof Clock))
+        circuit.addConnection(prev, c, 0);
+      parts.add(c);
+      prev = c;
+    }
+    return parts;
+  }
+
+  private static <T> void assertInOrder(List<T> expected, List<T> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++)
+      assertSame(expected.get(i), actual.get(i));
+  }
+
+  @Test
+  void removalKeepsInsertionOrder() {
+    Circuit circuit = new Circuit();
+    List<Component> parts = chain(circuit, 12);
+    List<Wire> wires = new ArrayList<>(circuit.getWires());
+
+    Component gone = parts.get(2);
+    circuit.removeComponent(gone);
+    parts.remove(gone);
+    wires.remove(gone.getOutputWire());
+    assertInOrder(parts, circuit.getComponents());
+    assertInOrder(wires, circuit.getWires());
+
+    List<Clock> clocks = new ArrayList<>(circuit.getClocks());
+    Clock clock = clocks.get(1);
+    circuit.removeComponent(clock);
+    parts.remove(clock);
+    clocks.remove(clock);
+    assertInOrder(parts, circuit.getComponents());
+    assertInOrder(clocks, circuit.getClocks());
+  }
+
+  @Test
+  void batchedRemovalKeepsOrderAndIndexes() {
+    Circuit circuit = new Circuit();
+    List<Component> parts = chain(circuit, 30);
+    List<Component> doomed = List.of(parts.get(29), parts.get(5), parts.get(17), parts.get(6));
+    Component orphan = parts.get(18); // Was driven by parts.get(17)
+    circuit.edit(() -> {
+      for (Component c : doomed)
+        circuit.removeComponent(c);
+      // Read from inside the edit: no holes showing
+      assertEquals(27, circuit.getComponents().size());
+    });
+    parts.removeAll(doomed);
+    assertInOrder(parts, circuit.getComponents());
+
+    // Positions were re-indexed: later removals still hit the right slot
+    Component last = parts.get(parts.size() - 1);
+    circuit.removeComponent(last);
+    parts.remove(last);
+    assertInOrder(parts, circuit.getComponents());
+    assertNull(circuit.getDriver(orphan, 0));
+  }
+}
@@ -0,0 +1,62 @@
+package uk.ac.cam.jml229.logic.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.cam.jml229.logic.components.gates.BufferGate;
+import uk.ac.cam.jml229.logic.components.io.OutputProbe;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.core.SimulationConfig.DelayModel;
+
+class DelayModelTest {
+
+  // Switch -> buffer (delay 4) -> probe. Toggles the switch (starting low)
+  // at the given ticks and returns the buffer output, one character per tick
+  private static String trace(DelayModel model, int... toggles) {
+    Circuit circuit = new Circuit();
+    SimulationEngine engine = circuit.getEngine();
+    engine.setConfig(SimulationConfig.DEFAULT.withDelayModel(model));
+    Switch in = new Switch("IN");
+    BufferGate buf = new BufferGate("B");
+    OutputProbe probe = new OutputProbe("P");
+    buf.setCustomDelay(4);
+    circuit.addComponent(in);
+    circuit.addComponent(buf);
+    circuit.addComponent(probe);
+    circuit.addConnection(in, buf, 0);
+    circuit.addConnection(buf, probe, 0);
+    engine.run(10);
+
+    StringBuilder out = new StringBuilder();
+    int next = 0;
+    for (int t = 0; t < 16; t++) {
+      if (next < toggles.length && toggles[next] == t) {
+        in.toggle(!in.getState());
+        next++;
+      }
+      engine.run(1);
+      out.append(buf.getOutputWire().getSignal() ? '1' : '0');
+    }
+    return out.toString();
+  }
+
+  @Test
+  void transportDelayLetsAGlitchThrough() {
+    // The update booked by the first edge lands inside the second pulse
+    assertTrue(trace(DelayModel.TRANSPORT, 0, 2, 3, 5).contains("1"));
+  }
+
+  @Test
+  void inertialDelayFiltersGlitchesShorterThanTheDelay() {
+    assertEquals("0".repeat(16), trace(DelayModel.INERTIAL, 0, 2, 3, 5));
+  }
+
+  @Test
+  void inertialDelayPassesChangesThatHoldForTheDelay() {
+    String held = trace(DelayModel.INERTIAL, 0, 8);
+    assertEquals(trace(DelayModel.TRANSPORT, 0, 8), held);
+    assertEquals(8, held.chars().filter(ch -> ch == '1').count());
+  }
+}
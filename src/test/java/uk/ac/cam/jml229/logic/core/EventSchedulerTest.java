@@ -0,0 +1,86 @@
+package uk.ac.cam.jml229.logic.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class EventSchedulerTest {
+
+  // Drains everything due up to and including tick, as "tick:key=value"
+  private static void drain(EventScheduler s, long tick, List<String> out) {
+    for (long key; (key = s.pollDue(tick)) != EventScheduler.NONE;)
+      out.add(tick + ":" + key + "=" + s.polledValue());
+  }
+
+  @Test
+  void sameTickEventsComeBackInInsertionOrder() {
+    for (EventScheduler s : new EventScheduler[] { new HeapScheduler(), new TimingWheelScheduler(8) }) {
+      for (long key = 0; key < 50; key++)
+        s.add(3, key, key * 10);
+      List<String> out = new ArrayList<>();
+      drain(s, 2, out);
+      assertTrue(out.isEmpty(), "nothing is due before tick 3");
+      drain(s, 3, out);
+      assertEquals(50, out.size());
+      for (int i = 0; i < 50; i++)
+        assertEquals("3:" + i + "=" + (i * 10), out.get(i));
+      assertTrue(s.isEmpty());
+    }
+  }
+
+  @Test
+  void overflowEventsKeepTheirPlaceAheadOfLaterArrivals() {
+    // Tick 20 is outside an 8-slot window when booked, so it waits in the
+    // overflow heap; an event added for tick 20 later must still follow it
+    TimingWheelScheduler wheel = new TimingWheelScheduler(8);
+    wheel.add(20, 1, 0);
+    List<String> out = new ArrayList<>();
+    for (long t = 0; t < 18; t++)
+      drain(wheel, t, out);
+    wheel.add(20, 2, 0);
+    drain(wheel, 19, out);
+    drain(wheel, 20, out);
+    assertEquals(List.of("20:1=0", "20:2=0"), out);
+  }
+
+  @Test
+  void timingWheelMatchesHeapOnRandomTraffic() {
+    SplittableRandom rng = new SplittableRandom(42);
+    EventScheduler heap = new HeapScheduler();
+    EventScheduler wheel = new TimingWheelScheduler(16);
+    List<String> fromHeap = new ArrayList<>();
+    List<String> fromWheel = new ArrayList<>();
+    long key = 0;
+    for (long now = 0; now < 2000; now++) {
+      int adds = rng.nextInt(6);
+      for (int i = 0; i < adds; i++) {
+        // Mostly near-future, some far beyond the window, a few overdue
+        long tick = switch (rng.nextInt(10)) {
+          case 0 -> now + 16 + rng.nextInt(200);
+          case 1 -> now;
+          default -> now + 1 + rng.nextInt(8);
+        };
+        long value = rng.nextLong();
+        heap.add(tick, key, value);
+        wheel.add(tick, key, value);
+        key++;
+      }
+      if (now % 97 == 0) {
+        List<String> a = new ArrayList<>();
+        List<String> b = new ArrayList<>();
+        heap.forEach((t, k, v) -> a.add(t + ":" + k + "=" + v));
+        wheel.forEach((t, k, v) -> b.add(t + ":" + k + "=" + v));
+        assertEquals(a, b);
+      }
+      drain(heap, now, fromHeap);
+      drain(wheel, now, fromWheel);
+      assertEquals(heap.size(), wheel.size());
+    }
+    assertEquals(fromHeap, fromWheel);
+  }
+}
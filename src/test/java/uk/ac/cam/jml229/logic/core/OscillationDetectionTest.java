@@ -0,0 +1,90 @@
+package uk.ac.cam.jml229.logic.core;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.cam.jml229.logic.components.gates.BufferGate;
+import uk.ac.cam.jml229.logic.components.gates.NotGate;
+import uk.ac.cam.jml229.logic.components.io.OutputProbe;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+
+class OscillationDetectionTest {
+
+  private NotGate[] ring;
+  private BufferGate tail;
+
+  // Three inverters in a loop, with a buffer hanging off the loop
+  private Circuit ringCircuit(SimulationConfig config) {
+    Circuit circuit = new Circuit();
+    circuit.getEngine().setConfig(config);
+    ring = new NotGate[] { new NotGate("N1"), new NotGate("N2"), new NotGate("N3") };
+    tail = new BufferGate("T");
+    OutputProbe probe = new OutputProbe("P");
+    for (NotGate g : ring)
+      circuit.addComponent(g);
+    circuit.addComponent(tail);
+    circuit.addComponent(probe);
+    circuit.addConnection(ring[2], tail, 0);
+    circuit.addConnection(tail, probe, 0);
+    for (int i = 0; i < ring.length; i++)
+      circuit.addConnection(ring[i], ring[(i + 1) % ring.length], 0);
+    return circuit;
+  }
+
+  @Test
+  void zeroDelayRingIsReportedWithoutItsFanout() {
+    Circuit circuit = ringCircuit(SimulationConfig.DEFAULT.withPropagationDelay(false));
+    circuit.getEngine().run(4);
+    OscillationReport report = circuit.getEngine().getOscillation();
+    assertNotNull(report, "ring went unreported");
+    for (NotGate g : ring) {
+      assertTrue(report.contains(g), g.getName() + " missing from the report");
+      assertTrue(report.contains(g.getOutputWire()));
+    }
+    assertFalse(report.contains(tail), "fan-out is not part of the loop");
+  }
+
+  @Test
+  void delayedRingRunsFreely() {
+    Circuit circuit = ringCircuit(SimulationConfig.DEFAULT.withEventBudget(20));
+    int toggles = 0;
+    boolean last = tail.getOutputWire().getSignal();
+    for (int t = 0; t < 60; t++) {
+      circuit.getEngine().run(1);
+      assertNull(circuit.getEngine().getOscillation());
+      boolean now = tail.getOutputWire().getSignal();
+      if (now != last)
+        toggles++;
+      last = now;
+    }
+    assertTrue(toggles >= 10, "ring stopped: " + toggles + " toggles");
+  }
+
+  @Test
+  void busyTickWithoutALoopIsNotReported() {
+    Circuit circuit = new Circuit();
+    circuit.getEngine().setConfig(SimulationConfig.DEFAULT.withEventBudget(5));
+    Switch in = new Switch("IN");
+    circuit.addComponent(in);
+    BufferGate[] fan = new BufferGate[100];
+    for (int i = 0; i < fan.length; i++) {
+      fan[i] = new BufferGate("B" + i);
+      circuit.addComponent(fan[i]);
+      circuit.addConnection(in, fan[i], 0);
+      OutputProbe p = new OutputProbe("P" + i);
+      circuit.addComponent(p);
+      circuit.addConnection(fan[i], p, 0);
+    }
+    circuit.getEngine().run(4);
+
+    in.toggle(true);
+    circuit.getEngine().run(4);
+    assertNull(circuit.getEngine().getOscillation());
+    for (BufferGate b : fan)
+      assertTrue(b.getOutputWire().getSignal(), b.getName() + " never settled");
+  }
+}
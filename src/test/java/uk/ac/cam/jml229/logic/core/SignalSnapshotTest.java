@@ -0,0 +1,104 @@
+package uk.ac.cam.jml229.logic.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.cam.jml229.logic.components.gates.NotGate;
+import uk.ac.cam.jml229.logic.components.io.OutputProbe;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+
+class SignalSnapshotTest {
+
+  private Switch in;
+  private NotGate not;
+
+  private Circuit inverter() {
+    Circuit circuit = new Circuit();
+    circuit.getEngine().setConfig(SimulationConfig.DEFAULT.withPropagationDelay(false));
+    in = new Switch("IN");
+    not = new NotGate("N");
+    OutputProbe probe = new OutputProbe("P");
+    circuit.addComponent(in);
+    circuit.addComponent(not);
+    circuit.addComponent(probe);
+    circuit.addConnection(in, not, 0);
+    circuit.addConnection(not, probe, 0);
+    circuit.getEngine().run(1);
+    return circuit;
+  }
+
+  @Test
+  void acquiredFrameHoldsItsValuesUntilTheNextAcquire() {
+    Circuit circuit = inverter();
+    SignalSnapshot snapshot = new SignalSnapshot();
+    snapshot.publish(circuit);
+    SignalSnapshot.Frame frame = snapshot.acquire();
+    assertFalse(frame.getSignal(in.getOutputWire()));
+    assertTrue(frame.getSignal(not.getOutputWire()));
+
+    in.toggle(true);
+    circuit.getEngine().run(1);
+    snapshot.publish(circuit);
+    // Published, but not yet acquired: the reader's frame is untouched
+    assertFalse(frame.getSignal(in.getOutputWire()));
+    assertTrue(frame.getSignal(not.getOutputWire()));
+
+    SignalSnapshot.Frame next = snapshot.acquire();
+    assertTrue(next.getSignal(in.getOutputWire()));
+    assertFalse(next.getSignal(not.getOutputWire()));
+    assertEquals(circuit.getEngine().getTick(), next.getTick());
+    assertSame(next, snapshot.acquire(), "nothing new was published");
+  }
+
+  @Test
+  void componentsAddedSinceTheFrameReadLive() {
+    Circuit circuit = inverter();
+    SignalSnapshot snapshot = new SignalSnapshot();
+    snapshot.publish(circuit);
+    NotGate late = new NotGate("LATE");
+    circuit.addComponent(late);
+    circuit.addConnection(not, late, 0);
+    OutputProbe probe = new OutputProbe("P2");
+    circuit.addComponent(probe);
+    circuit.addConnection(late, probe, 0);
+    circuit.getEngine().run(1);
+    assertEquals(late.getOutputWire().getSignal(), snapshot.acquire().getSignal(late.getOutputWire()));
+  }
+
+  @Test
+  void readerNeverSeesAHalfWrittenFrame() throws InterruptedException {
+    Circuit circuit = inverter();
+    SignalSnapshot snapshot = new SignalSnapshot();
+    snapshot.publish(circuit);
+    Wire a = in.getOutputWire();
+    Wire b = not.getOutputWire();
+
+    AtomicReference<String> failure = new AtomicReference<>();
+    Thread writer = new Thread(() -> {
+      for (int i = 0; i < 200_000; i++) {
+        in.toggle(!in.getState());
+        circuit.getEngine().run(1);
+        snapshot.publish(circuit);
+      }
+    });
+    writer.start();
+    long lastTick = -1;
+    while (writer.isAlive()) {
+      SignalSnapshot.Frame f = snapshot.acquire();
+      if (f.getSignal(a) == f.getSignal(b))
+        failure.compareAndSet(null, "inverter input and output agree at tick " + f.getTick());
+      if (f.getTick() < lastTick)
+        failure.compareAndSet(null, "frames went back in time: " + f.getTick() + " after " + lastTick);
+      lastTick = f.getTick();
+    }
+    writer.join();
+    assertNull(failure.get());
+  }
+}
@@ -0,0 +1,143 @@
+package uk.ac.cam.jml229.logic.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.components.gates.BufferGate;
+import uk.ac.cam.jml229.logic.components.gates.NotGate;
+import uk.ac.cam.jml229.logic.components.io.OutputProbe;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.components.seq.Clock;
+import uk.ac.cam.jml229.logic.components.seq.DFlipFlop;
+
+class SimulationEngineTest {
+
+  @Test
+  void selfTimedClockSurvivesOscillationReport() {
+    Circuit circuit = new Circuit();
+    SimulationEngine engine = circuit.getEngine();
+    engine.setConfig(SimulationConfig.DEFAULT.withEventBudget(50));
+
+    Clock clock = new Clock("CLK");
+    OutputProbe probe = new OutputProbe("P");
+    circuit.addComponent(clock);
+    circuit.addComponent(probe);
+    circuit.addConnection(clock, probe, 0);
+
+    NotGate[] ring = { new NotGate("N1"), new NotGate("N2"), new NotGate("N3") };
+    for (NotGate g : ring)
+      circuit.addComponent(g);
+    for (int i = 0; i < ring.length; i++)
+      circuit.addConnection(ring[i], ring[(i + 1) % ring.length], 0);
+    clock.setTiming(4, 0, 50);
+
+    // Glitch storm on the ring at tick 4, queued ahead of the clock's edge
+    // there, so the oscillation report leaves that edge for the next tick
+    for (int i = 0; i < 200; i++) {
+      for (NotGate g : ring) {
+        Wire w = g.getOutputWire();
+        engine.schedule(() -> w.setSignal(!w.getSignal()), 4);
+      }
+    }
+
+    boolean reported = false;
+    for (int t = 0; t < 8; t++) {
+      engine.run(1);
+      reported |= engine.getOscillation() != null;
+    }
+    assertTrue(reported, "storm should be reported as an oscillation");
+
+    int toggles = 0;
+    boolean last = clock.getState();
+    for (int t = 0; t < 16; t++) {
+      engine.run(1);
+      if (clock.getState() != last) {
+        toggles++;
+        last = clock.getState();
+      }
+    }
+    assertTrue(toggles >= 7, "clock stopped after the oscillation report (" + toggles + " edges)");
+  }
+
+  @Test
+  void removedIdsAreRecycledOnlyOnceTheirEventsDrain() {
+    Circuit circuit = new Circuit();
+    SimulationEngine engine = circuit.getEngine();
+
+    BufferGate old = new BufferGate("OLD");
+    circuit.addComponent(old);
+    engine.scheduleInput(old, 0, true, 5);
+    int id = old.getEngineId();
+    circuit.removeComponent(old);
+
+    // The stale input is still queued, so the id must not be handed out
+    BufferGate next = new BufferGate("NEXT");
+    circuit.addComponent(next);
+    engine.scheduleUpdate(next, 1);
+    assertNotEquals(id, next.getEngineId());
+    engine.run(10);
+    assertFalse(next.getInput(0));
+
+    // Drained now: the next newcomer reuses it
+    BufferGate reuse = new BufferGate("REUSE");
+    circuit.addComponent(reuse);
+    engine.scheduleUpdate(reuse, 1);
+    assertEquals(id, reuse.getEngineId());
+  }
+
+  @Test
+  void clockTimedBeforeItJoinsACircuitBooksOnTheCircuitEngine() {
+    int before = Simulator.getDefault().getPendingEventCount();
+    Clock clock = new Clock("CLK");
+    clock.setTiming(4, 0, 50); // As StorageManager does while loading
+    assertEquals(before, Simulator.getDefault().getPendingEventCount());
+    assertEquals(-1, clock.getEngineId());
+
+    Circuit circuit = new Circuit();
+    OutputProbe probe = new OutputProbe("P");
+    circuit.addComponent(clock);
+    circuit.addComponent(probe);
+    circuit.addConnection(clock, probe, 0);
+    int toggles = 0;
+    boolean last = clock.getState();
+    for (int t = 0; t < 16; t++) {
+      circuit.getEngine().run(1);
+      if (clock.getState() != last) {
+        toggles++;
+        last = clock.getState();
+      }
+    }
+    assertTrue(toggles >= 7, "clock did not run on the circuit's engine (" + toggles + " edges)");
+  }
+
+  @Test
+  void zeroDelayFlipFlopsSampleBeforeTheEdgeMovesThem() {
+    for (boolean firstToSecond : new boolean[] { true, false }) {
+      Circuit circuit = new Circuit();
+      circuit.getEngine().setConfig(SimulationConfig.DEFAULT.withPropagationDelay(false));
+      Switch d = new Switch("D");
+      Switch clk = new Switch("CLK");
+      DFlipFlop ff1 = new DFlipFlop("FF1");
+      DFlipFlop ff2 = new DFlipFlop("FF2");
+      for (Component c : new Component[] { d, clk, ff1, ff2, new OutputProbe("Q") })
+        circuit.addComponent(c);
+      circuit.addConnection(d, ff1, 0);
+      circuit.addConnection(ff1, 0, ff2, 0);
+      circuit.addConnection(ff2, 0, circuit.getComponents().get(4), 0);
+      circuit.addConnection(clk, firstToSecond ? ff1 : ff2, 1);
+      circuit.addConnection(clk, firstToSecond ? ff2 : ff1, 1);
+
+      d.toggle(true);
+      circuit.getEngine().run(1);
+      clk.toggle(true);
+      circuit.getEngine().run(1);
+      assertTrue(ff1.getOutputWire(0).getSignal(), "FF1 missed the edge");
+      assertFalse(ff2.getOutputWire(0).getSignal(), "data ran through both stages on one edge");
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package uk.ac.cam.jml229.logic.core.compiled;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.components.gates.AndGate;
+import uk.ac.cam.jml229.logic.components.gates.OrGate;
+import uk.ac.cam.jml229.logic.components.gates.XorGate;
+import uk.ac.cam.jml229.logic.components.io.OutputProbe;
+import uk.ac.cam.jml229.logic.components.io.Switch;
+import uk.ac.cam.jml229.logic.components.seq.Clock;
+import uk.ac.cam.jml229.logic.components.seq.TFlipFlop;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.SimulationConfig;
+import uk.ac.cam.jml229.logic.core.SimulationConfig.EngineType;
+
+class EngineAgreementTest {
+
+  private static final int BITS = 4;
+
+  private Switch enable;
+  private final Switch[] addend = new Switch[BITS];
+  private final List<Component> watched = new ArrayList<>();
+
+  // A 4-bit synchronous counter (T flip-flops, AND carry chain) whose
+  // count feeds a ripple-carry adder with four switches
+  private Circuit counterAndAdder(SimulationConfig config) {
+    Circuit c = new Circuit();
+    c.getEngine().setConfig(config);
+    watched.clear();
+    Clock clk = new Clock("CLK");
+    enable = new Switch("EN");
+    c.addComponent(clk);
+    c.addComponent(enable);
+
+    Component t = enable;
+    Component carry = null;
+    for (int i = 0; i < BITS; i++) {
+      TFlipFlop ff = new TFlipFlop("Q" + i);
+      addend[i] = new Switch("B" + i);
+      XorGate half = new XorGate("H" + i);
+      XorGate sum = new XorGate("S" + i);
+      AndGate g1 = new AndGate("G" + i);
+      AndGate g2 = new AndGate("P" + i);
+      OrGate cout = new OrGate("C" + i);
+      OutputProbe probe = new OutputProbe("OUT" + i);
+      for (Component part : new Component[] { ff, addend[i], half, sum, g1, g2, cout, probe })
+        c.addComponent(part);
+      c.addConnection(t, ff, 0);
+      c.addConnection(clk, ff, 1);
+
+      c.addConnection(ff, 0, half, 0);
+      c.addConnection(addend[i], half, 1);
+      c.addConnection(ff, 0, g1, 0);
+      c.addConnection(addend[i], g1, 1);
+      if (carry == null) {
+        c.addConnection(half, sum, 0);
+        c.addConnection(enable, sum, 1); // Carry in: count + B + EN
+        c.addConnection(half, g2, 0);
+        c.addConnection(enable, g2, 1);
+      } else {
+        c.addConnection(half, sum, 0);
+        c.addConnection(carry, sum, 1);
+        c.addConnection(half, g2, 0);
+        c.addConnection(carry, g2, 1);
+      }
+      c.addConnection(g1, cout, 0);
+      c.addConnection(g2, cout, 1);
+      c.addConnection(sum, probe, 0);
+      carry = cout;
+
+      if (i < BITS - 1) {
+        AndGate next = new AndGate("T" + (i + 1));
+        c.addComponent(next);
+        c.addConnection(t, next, 0);
+        c.addConnection(ff, 0, next, 1);
+        t = next;
+      }
+      watched.add(ff);
+      watched.add(sum);
+    }
+    OutputProbe carryOut = new OutputProbe("COUT");
+    c.addComponent(carryOut);
+    c.addConnection(carry, carryOut, 0);
+    watched.add(carry);
+    c.getEngine().run(20);
+    return c;
+  }
+
+  // Count and sum after each of 40 cycles, changing the addend halfway
+  private String trace(SimulationConfig config, EngineType type) {
+    Circuit circuit = counterAndAdder(config);
+    StringBuilder out = new StringBuilder();
+    try (SimulationBackend backend = SimulationBackend.open(circuit, type)) {
+      backend.setSwitch(enable, true);
+      backend.setSwitch(addend[0], true);
+      backend.setSwitch(addend[2], true);
+      for (int cycle = 0; cycle < 40; cycle++) {
+        if (cycle == 20) {
+          backend.setSwitch(addend[1], true);
+          backend.setSwitch(addend[2], false);
+        }
+        assertEquals(1, backend.runCycles(1), type + " stopped at cycle " + cycle);
+        for (Component c : watched)
+          out.append(backend.getOutput(c, 0) ? '1' : '0');
+        out.append(' ');
+      }
+    }
+    return out.toString();
+  }
+
+  @Test
+  void objectEngineCounts() {
+    String t = trace(SimulationConfig.DEFAULT, EngineType.OBJECT);
+    String[] cycles = t.trim().split(" ");
+    for (int i = 0; i < cycles.length; i++) {
+      int count = 0;
+      for (int b = 0; b < BITS; b++)
+        count |= (cycles[i].charAt(2 * b) == '1' ? 1 : 0) << b;
+      assertEquals((i + 1) % 16, count, "count after cycle " + i);
+    }
+  }
+
+  @Test
+  void compiledEnginesAgreeWithDelay() {
+    SimulationConfig config = SimulationConfig.DEFAULT;
+    String expected = trace(config, EngineType.OBJECT);
+    assertEquals(expected, trace(config, EngineType.COMPILED), "COMPILED");
+    assertEquals(expected, trace(config, EngineType.PARTITIONED), "PARTITIONED");
+  }
+
+  @Test
+  void compiledEnginesAgreeWithoutDelay() {
+    SimulationConfig config = SimulationConfig.DEFAULT.withPropagationDelay(false);
+    String expected = trace(config, EngineType.OBJECT);
+    assertEquals(expected, trace(SimulationConfig.DEFAULT, EngineType.OBJECT), "delay changed the settled values");
+    assertEquals(expected, trace(config, EngineType.COMPILED), "COMPILED");
+    assertEquals(expected, trace(config, EngineType.PARTITIONED), "PARTITIONED");
+    assertEquals(expected, trace(config, EngineType.GENERATED), "GENERATED");
+  }
+}
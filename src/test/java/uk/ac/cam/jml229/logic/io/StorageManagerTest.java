@@ -0,0 +1,100 @@
+package uk.ac.cam.jml229.logic.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.cam.jml229.logic.components.Component;
+import uk.ac.cam.jml229.logic.components.bus.Merger;
+import uk.ac.cam.jml229.logic.components.bus.Splitter;
+import uk.ac.cam.jml229.logic.components.gates.NotGate;
+import uk.ac.cam.jml229.logic.components.io.OutputProbe;
+import uk.ac.cam.jml229.logic.components.mem.Ram;
+import uk.ac.cam.jml229.logic.components.mem.Rom;
+import uk.ac.cam.jml229.logic.components.seq.Clock;
+import uk.ac.cam.jml229.logic.core.Circuit;
+import uk.ac.cam.jml229.logic.core.Simulator;
+
+class StorageManagerTest {
+
+  private static Component find(Circuit circuit, String name) {
+    for (Component c : circuit.getComponents())
+      if (c.getName().equals(name))
+        return c;
+    throw new AssertionError("no component " + name);
+  }
+
+  @Test
+  void widthAddressImageAndTimingSurviveARoundTrip() throws IOException {
+    Path image = Files.createTempFile("rom image", ".hex");
+    try {
+      Files.writeString(image, "v2.0 raw\n12 34 4*56\n");
+
+      Circuit circuit = new Circuit();
+      Merger merger = new Merger("W");
+      NotGate not = new NotGate("N");
+      Splitter split = new Splitter("S");
+      merger.setBusWidth(4);
+      not.setBusWidth(4);
+      split.setBusWidth(4);
+      Ram ram = new Ram("RAM");
+      ram.setAddressWidth(5);
+      ram.setBusWidth(16);
+      Rom rom = new Rom("ROM");
+      rom.setAddressWidth(3);
+      rom.loadImage(image);
+      Clock clock = new Clock("CLK");
+      clock.setTiming(6, 1, 33);
+      not.setCustomDelay(3);
+      for (Component c : new Component[] { merger, not, split, ram, rom, clock, new OutputProbe("P") })
+        circuit.addComponent(c);
+      circuit.addConnection(merger, not, 0);
+      circuit.addConnection(not, split, 0);
+      circuit.addConnection(clock, find(circuit, "P"), 0);
+
+      String saved = StorageManager.saveToString(circuit, null);
+      int defaultEvents = Simulator.getDefault().getPendingEventCount();
+      Circuit loaded = StorageManager.loadFromString(saved).circuit();
+      assertEquals(defaultEvents, Simulator.getDefault().getPendingEventCount(), "loading booked on the default engine");
+      assertEquals(saved, StorageManager.saveToString(loaded, null));
+
+      assertEquals(4, ((Merger) find(loaded, "W")).getBusWidth());
+      NotGate n = (NotGate) find(loaded, "N");
+      assertEquals(4, n.getBusWidth());
+      assertEquals(3, (int) n.getCustomDelay());
+      assertEquals(3, loaded.getWires().size(), "bus wires were dropped");
+
+      Ram r = (Ram) find(loaded, "RAM");
+      assertEquals(5, r.getAddressWidth());
+      assertEquals(16, r.getBusWidth());
+
+      Rom o = (Rom) find(loaded, "ROM");
+      assertEquals(3, o.getAddressWidth());
+      assertEquals(image, o.getImage());
+      assertEquals(0x12, o.read(0));
+      assertEquals(0x34, o.read(1));
+      assertEquals(0x56, o.read(5));
+
+      Clock k = (Clock) find(loaded, "CLK");
+      assertEquals(6, k.getPeriod());
+      assertEquals(1, k.getPhase());
+      assertEquals(33, k.getDutyCycle());
+      int toggles = 0;
+      boolean last = k.getState();
+      for (int t = 0; t < 12; t++) {
+        loaded.getEngine().run(1);
+        if (k.getState() != last)
+          toggles++;
+        last = k.getState();
+      }
+      assertTrue(toggles >= 3, "loaded clock is not running on its period (" + toggles + " edges)");
+    } finally {
+      Files.delete(image);
+    }
+  }
+}